@@ -0,0 +1,44 @@
+package com.github.jacek99.springbootcucumber;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Message building with the thread-local StringBuilder vs plain String concatenation
+ * (same shape as the DAO error messages)
+ *
+ * @author Jacek Furmankiewicz
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadLocalsBenchmark {
+
+    private String entityName = "Restaurant";
+    private String id = "restaurant-12345";
+
+    @Benchmark
+    public String threadLocalStringBuilder() {
+        return ThreadLocals.STRINGBUILDER.get()
+                .append(entityName)
+                .append(" identified by ID ")
+                .append(id)
+                .append(" already exists").toString();
+    }
+
+    @Benchmark
+    public String concatenation() {
+        return entityName + " identified by ID " + id + " already exists";
+    }
+}
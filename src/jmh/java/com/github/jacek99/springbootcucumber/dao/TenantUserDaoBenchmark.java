@@ -0,0 +1,86 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.security.PasswordHashingService;
+import com.github.jacek99.springbootcucumber.security.SecurityConstants;
+import com.google.common.collect.ImmutableSet;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Entity / row conversions done by the DAOs on every read and write.
+ * Lives in the dao package, since the conversion methods are protected
+ *
+ * @author Jacek Furmankiewicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TenantUserDaoBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private TenantUserDao dao;
+    private TenantUserDao.TenantUserRow row;
+    private TenantUser entity;
+    private List<TenantUserDao.TenantUserRow> rows;
+
+    @Setup
+    public void setup() {
+        dao = new TenantUserDao();
+        // only toRow() needs it, for hashing the password
+        Field field = ReflectionUtils.findField(TenantUserDao.class, "passwordHashingService");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, dao, new PasswordHashingService());
+
+        rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(TenantUserDao.TenantUserRow.builder()
+                    .tenantId("benchmark")
+                    .userId("user" + i)
+                    .roles(ImmutableSet.of(SecurityConstants.ROLE_TENANT_USER))
+                    .active(true)
+                    .passwordHash("2c0e5f3dc1d0f05bbd1cd4be2c8ef9b8c1a0e4b1")
+                    .passwordSalt("9f3e2a1c0b8d7e6f5a4b3c2d1e0f9a8b")
+                    .passwordHashRepetitions(1500)
+                    .build());
+        }
+        row = rows.get(0);
+        entity = dao.toEntity(row);
+        entity.setPassword("benchmark-password");
+    }
+
+    @Benchmark
+    public List<TenantUser> toEntities() {
+        return dao.toEntities(rows);
+    }
+
+    @Benchmark
+    public TenantUser toEntity() {
+        return dao.toEntity(row);
+    }
+
+    // dominated by the password hashing
+    @Benchmark
+    public TenantUserDao.TenantUserRow toRow() {
+        return dao.toRow(entity);
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.jacek99.springbootcucumber.dao.memory;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.IRestaurantDao;
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
+import com.github.jacek99.springbootcucumber.dao.ITenantUserDao;
+import com.github.jacek99.springbootcucumber.dao.Page;
+import com.github.jacek99.springbootcucumber.domain.Restaurant;
+import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
+import com.github.jacek99.springbootcucumber.security.FailedLoginTracker;
+import com.github.jacek99.springbootcucumber.security.PasswordHashingService;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+/**
+ * DAO operations without any DB, i.e. the baseline cost of the DAO layer itself
+ * (validation, security checks, entity copies) that every Cassandra call comes on top of
+ *
+ * @author Jacek Furmankiewicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InMemoryDaoBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private AnnotationConfigApplicationContext context;
+    private IRestaurantDao dao;
+    private TenantToken token;
+    private Restaurant restaurant;
+
+    @Setup
+    public void setup() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles(IDatabaseInitializer.PROFILE_IN_MEMORY);
+        context.register(AppConfig.class, LocalValidatorFactoryBean.class, PasswordHashingService.class,
+                AuthenticationCache.class, FailedLoginTracker.class, TokenService.class,
+                InMemoryTenantDao.class, InMemoryTenantUserDao.class, InMemoryRestaurantDao.class,
+                InMemoryDatabaseInitializer.class);
+        context.refresh();
+
+        Tenant tenant = context.getBean(ITenantDao.class).findById(Tenant.SYSTEM_TENANT).get();
+        TenantUser admin = context.getBean(ITenantUserDao.class).findById(Tenant.SYSTEM_TENANT, ITenantUserDao.ADMIN).get();
+        token = new TenantToken(admin, tenant, Collections.emptyList());
+
+        dao = context.getBean(IRestaurantDao.class);
+        for (int i = 0; i < size; i++) {
+            Restaurant r = new Restaurant();
+            r.setTenantId(Tenant.SYSTEM_TENANT);
+            r.setId(String.format("restaurant%05d", i));
+            r.setName("Restaurant number " + i);
+            r.setCountryCode("US");
+            r.setStateCode("NY");
+            dao.save(token, r);
+        }
+        restaurant = dao.findExistingById(token, "restaurant00000");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Restaurant findExistingById() {
+        return dao.findExistingById(token, "restaurant00000");
+    }
+
+    @Benchmark
+    public List<Restaurant> findAll() {
+        return dao.findAll(token);
+    }
+
+    @Benchmark
+    public Page<Restaurant> findPage() {
+        return dao.findPage(token, 100, null);
+    }
+
+    // validation + security checks + write
+    @Benchmark
+    public Restaurant update() {
+        dao.update(token, restaurant);
+        return restaurant;
+    }
+}
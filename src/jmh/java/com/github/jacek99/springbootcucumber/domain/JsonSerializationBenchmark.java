@@ -0,0 +1,84 @@
+package com.github.jacek99.springbootcucumber.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.github.jacek99.springbootcucumber.security.SecurityConstants;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * JSON serialization of the list responses, with the same ObjectMapper setup Spring MVC uses
+ *
+ * @author Jacek Furmankiewicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectWriter restaurantWriter;
+    private ObjectWriter userWriter;
+
+    private List<Restaurant> restaurants;
+    private List<TenantUser> users;
+
+    @Setup
+    public void setup() {
+        TypeFactory types = TypeFactory.defaultInstance();
+        restaurantWriter = Jackson2ObjectMapperBuilder.json().build()
+                .writerFor(types.constructCollectionType(List.class, Restaurant.class));
+        userWriter = Jackson2ObjectMapperBuilder.json().build()
+                .writerFor(types.constructCollectionType(List.class, TenantUser.class));
+
+        restaurants = new ArrayList<>(size);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Restaurant restaurant = new Restaurant();
+            restaurant.setTenantId("benchmark");
+            restaurant.setId("restaurant" + i);
+            restaurant.setName("Restaurant number " + i);
+            restaurant.setCountryCode("US");
+            restaurant.setStateCode("NY");
+            restaurants.add(restaurant);
+
+            users.add(TenantUser.builder()
+                    .tenantId("benchmark")
+                    .userId("user" + i)
+                    .roles(ImmutableSet.of(SecurityConstants.ROLE_TENANT_USER, SecurityConstants.ROLE_TENANT_ADMIN))
+                    .active(true)
+                    .password("********")
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] restaurants() throws JsonProcessingException {
+        return restaurantWriter.writeValueAsBytes(restaurants);
+    }
+
+    @Benchmark
+    public byte[] tenantUsers() throws JsonProcessingException {
+        return userWriter.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.jacek99.springbootcucumber.metrics;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Cost of recording a hot path operation, from multiple threads at once.
+ * Run with -prof gc to confirm recording does not allocate
+ *
+ * @author Jacek Furmankiewicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class HotPathMetricsBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private HotPathMetrics metrics;
+
+    @Setup
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(AppConfig.class, HotPathMetrics.class);
+        metrics = context.getBean(HotPathMetrics.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void recordWithTenant() {
+        metrics.record(TimedOperation.DAO_FIND_BY_ID, "benchmark", System.nanoTime(), true);
+    }
+
+    @Benchmark
+    public void recordWithoutTenant() {
+        metrics.record(TimedOperation.PASSWORD_VERIFY, null, System.nanoTime(), true);
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Password hashing / verification throughput
+ *
+ * @author Jacek Furmankiewicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    // as stored by older versions of the service (64 byte hash, textual salt)
+    private static final String LEGACY_HASH = "e095988484d17265ee4ad45131f164b17677bf958b130c037152ca12a9d76ddc" +
+            "728368815818f71f486208e929e84df3d59d019f9e97f0860c1ea39011776206";
+    private static final String LEGACY_SALT = "5b3131332c202d34382c2036392c202d3130382c202d34372c202d32392c202d3131302c20" +
+            "3131342c203131302c202d34302c202d33302c2035372c2035342c2035312c202d32332c2039385d";
+    private static final int LEGACY_REPETITIONS = 1651;
+
+    private PasswordHashingService service;
+    private PasswordHashingService.HashInfo hashInfo;
+
+    @Setup
+    public void setup() {
+        service = new PasswordHashingService();
+        hashInfo = service.hashPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public PasswordHashingService.HashInfo hashPassword() {
+        return service.hashPassword(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean isHashValid() {
+        return service.isHashValid(PASSWORD, hashInfo.getPasswordHash(), hashInfo.getSalt(),
+                hashInfo.getRepetitions());
+    }
+
+    @Benchmark
+    public boolean isHashValidLegacy() {
+        return service.isHashValid("legacy-password", LEGACY_HASH, LEGACY_SALT, LEGACY_REPETITIONS);
+    }
+}
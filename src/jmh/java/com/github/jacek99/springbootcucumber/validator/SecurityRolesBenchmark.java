@@ -0,0 +1,46 @@
+package com.github.jacek99.springbootcucumber.validator;
+
+import com.github.jacek99.springbootcucumber.security.SecurityConstants;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Security roles validation, runs for every tenant user being saved
+ *
+ * @author Jacek Furmankiewicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityRolesBenchmark {
+
+    private final SecurityRolesImpl validator = new SecurityRolesImpl();
+
+    private final Set<String> validRoles = ImmutableSet.of(
+            SecurityConstants.ROLE_TENANT_ADMIN, SecurityConstants.ROLE_TENANT_USER);
+    private final Set<String> invalidRoles = ImmutableSet.of(
+            SecurityConstants.ROLE_TENANT_USER, "SUPER_USER");
+
+    @Benchmark
+    public boolean validRoles() {
+        return validator.isValid(validRoles, null);
+    }
+
+    @Benchmark
+    public boolean invalidRoles() {
+        return validator.isValid(invalidRoles, null);
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.jacek99.springbootcucumber.loadtest;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the tenants, users and restaurants the load test runs against.
+ * Re-runnable: entities that already exist (409) are reused
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Slf4j
+public class DataSeeder {
+
+    public static final String TENANT_PREFIX = "lt";
+    public static final String USER_PREFIX = "user";
+    public static final String RESTAURANT_PREFIX = "r";
+    private static final String PASSWORD = "loadtest-password";
+
+    private final LoadTestConfig config;
+    private final LoadTestClient client;
+    private final String systemAuthorization;
+
+    public DataSeeder(LoadTestConfig config, LoadTestClient client) {
+        this.config = config;
+        this.client = client;
+        systemAuthorization = LoadTestClient.basicAuthorization(config.getAdminUser(), config.getAdminPassword());
+    }
+
+    /**
+     * Seeds all the tenants in parallel
+     */
+    public List<SeededTenant> seed(ExecutorService executor) {
+        log.info("Seeding {} tenants, {} users and {} restaurants each...",
+                config.getTenants(), config.getUsersPerTenant(), config.getRestaurantsPerTenant());
+
+        List<CompletableFuture<SeededTenant>> tenants = new ArrayList<>();
+        for (int t = 0; t < config.getTenants(); t++) {
+            String tenantId = TENANT_PREFIX + t;
+            tenants.add(CompletableFuture.supplyAsync(() -> seedTenant(tenantId), executor));
+        }
+        return tenants.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private SeededTenant seedTenant(String tenantId) {
+        try {
+            create(systemAuthorization, "/myapp/system/tenants", ImmutableMap.of(
+                    "tenantId", tenantId,
+                    "name", "Load test " + tenantId,
+                    "url", "http://" + tenantId + ".example.com"));
+
+            // all users are tenant admins, so that they can call all the tenant APIs
+            List<String> authorizations = new ArrayList<>();
+            for (int u = 0; u < config.getUsersPerTenant(); u++) {
+                String userId = USER_PREFIX + u;
+                create(systemAuthorization, "/myapp/admin/users", ImmutableMap.of(
+                        "tenantId", tenantId,
+                        "userId", userId,
+                        "password", PASSWORD,
+                        "roles", ImmutableList.of("TENANT_ADMIN", "TENANT_USER"),
+                        "active", true));
+
+                String login = userId + "@" + tenantId;
+                authorizations.add(config.isBearerAuth() ?
+                        client.bearerAuthorization(login, PASSWORD) :
+                        LoadTestClient.basicAuthorization(login, PASSWORD));
+            }
+
+            List<String> restaurantIds = new ArrayList<>();
+            for (int r = 0; r < config.getRestaurantsPerTenant(); r++) {
+                String id = String.format("%s%05d", RESTAURANT_PREFIX, r);
+                create(authorizations.get(0), "/myapp/api/restaurants", restaurant(tenantId, id, "Restaurant " + id));
+                restaurantIds.add(id);
+            }
+
+            return new SeededTenant(tenantId, authorizations, restaurantIds);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ImmutableMap<String, Object> restaurant(String tenantId, String id, String name) {
+        return ImmutableMap.of(
+                "tenantId", tenantId,
+                "id", id,
+                "name", name,
+                "countryCode", "US",
+                "stateCode", "NY");
+    }
+
+    private void create(String authorization, String path, Object entity) throws IOException {
+        int status = client.post(authorization, path, entity);
+        if (status != 201 && status != 409) {
+            throw new IOException("Seeding POST " + path + " failed with HTTP " + status + ": " + entity);
+        }
+    }
+
+    /**
+     * Everything created for a single tenant
+     */
+    @Value
+    public static class SeededTenant {
+        private String tenantId;
+        // ready to use Authorization header values, one per user
+        private List<String> authorizations;
+        private List<String> restaurantIds;
+    }
+}
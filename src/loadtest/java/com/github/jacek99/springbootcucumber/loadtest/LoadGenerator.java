@@ -0,0 +1,191 @@
+package com.github.jacek99.springbootcucumber.loadtest;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Open-loop load generator: requests are started on a fixed schedule (the configured rate),
+ * regardless of how long the previous ones took.
+ *
+ * Latency is measured from the time a request was supposed to start, not from when a free
+ * thread actually got to it. If the server stalls, the requests queued up behind the stall
+ * get charged for the time they waited, i.e. the results are corrected for coordinated omission.
+ * The pure service time (from actual start) is tracked as well, the difference between the two
+ * shows how much queueing there was
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Slf4j
+public class LoadGenerator {
+
+    // latencies are recorded in microseconds, up to 1 hour
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final LoadTestConfig config;
+    private final LoadTestClient client;
+    private final List<DataSeeder.SeededTenant> tenants;
+    private final String systemAuthorization;
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    @Getter
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    // IDs of the restaurants created during the test, unique across runs
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong created = new AtomicLong();
+
+    public LoadGenerator(LoadTestConfig config, LoadTestClient client, List<DataSeeder.SeededTenant> tenants) {
+        this.config = config;
+        this.client = client;
+        this.tenants = tenants;
+        systemAuthorization = LoadTestClient.basicAuthorization(config.getAdminUser(), config.getAdminPassword());
+
+        operations = config.getMix().keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += config.getMix().get(operations[i]);
+            cumulativeWeights[i] = total;
+            stats.put(operations[i], new Stats());
+        }
+        totalWeight = total;
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Operation mix has no weights: " + config.getMix());
+        }
+    }
+
+    /**
+     * Runs the warmup + measured phases, blocks until all the requests got dispatched
+     * (but not necessarily completed)
+     */
+    public void run(ExecutorService executor) {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) config.getRate();
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+
+        log.info("Warming up for {} sec...", config.getWarmupSeconds());
+        boolean measuring = false;
+
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            if (!measuring && intended >= measureStart) {
+                log.info("Measuring for {} sec...", config.getDurationSeconds());
+                measuring = true;
+            }
+
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation operation = nextOperation();
+            boolean measured = measuring;
+            executor.execute(() -> execute(operation, intended, measured));
+        }
+    }
+
+    private Operation nextOperation() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void execute(Operation operation, long intendedStart, boolean measured) {
+        long actualStart = System.nanoTime();
+        int status;
+        try {
+            status = call(operation);
+        } catch (IOException | RuntimeException e) {
+            log.debug("{} failed", operation, e);
+            status = -1;
+        }
+        long now = System.nanoTime();
+
+        if (measured) {
+            Stats operationStats = stats.get(operation);
+            if (status >= 200 && status < 300) {
+                operationStats.responseTime.recordValue(toMicros(now - intendedStart));
+                operationStats.serviceTime.recordValue(toMicros(now - actualStart));
+            } else {
+                log.debug("{} failed with HTTP {}", operation, status);
+                operationStats.errors.increment();
+            }
+        }
+    }
+
+    private long toMicros(long nanos) {
+        return Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private int call(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        DataSeeder.SeededTenant tenant = tenants.get(random.nextInt(tenants.size()));
+        String authorization = tenant.getAuthorizations().get(random.nextInt(tenant.getAuthorizations().size()));
+
+        switch (operation) {
+            case RESTAURANTS_LIST:
+                return client.get(authorization, "/myapp/api/restaurants?limit=" + config.getPageSize());
+            case RESTAURANTS_CREATE:
+                String newId = runId + "-" + created.incrementAndGet();
+                return client.post(authorization, "/myapp/api/restaurants",
+                        DataSeeder.restaurant(tenant.getTenantId(), newId, "Created " + newId));
+            case RESTAURANTS_UPDATE:
+                String id = tenant.getRestaurantIds().get(random.nextInt(tenant.getRestaurantIds().size()));
+                return client.patch(authorization, "/myapp/api/restaurants/" + id,
+                        DataSeeder.restaurant(tenant.getTenantId(), id, "Updated " + id + " " + random.nextInt()));
+            case USERS_LIST:
+                return client.get(authorization, "/myapp/admin/users");
+            case TENANTS_LIST:
+                return client.get(systemAuthorization, "/myapp/system/tenants");
+            default:
+                throw new IllegalArgumentException("Unsupported operation " + operation);
+        }
+    }
+
+    /**
+     * Measured results of a single operation
+     */
+    public static class Stats {
+        // from the intended start, i.e. corrected for coordinated omission
+        private final Recorder responseTime = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        // from the actual start
+        private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        @Getter
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * Everything recorded since the previous call
+         */
+        public Histogram getResponseTime() {
+            return responseTime.getIntervalHistogram();
+        }
+
+        public Histogram getServiceTime() {
+            return serviceTime.getIntervalHistogram();
+        }
+    }
+}
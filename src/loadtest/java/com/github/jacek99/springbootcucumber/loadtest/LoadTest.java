@@ -0,0 +1,123 @@
+package com.github.jacek99.springbootcucumber.loadtest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Load test entry point: seeds the data, drives the REST APIs with the configured operation mix / rate
+ * and reports throughput and latency percentiles (plus the full HdrHistogram distributions)
+ *
+ * Run against an already running app, e.g.
+ *
+ * java -jar build/libs/spring-boot-cucumber-example-<version>.jar --spring.profiles.active=inmemory
+ * gradle loadtest -Ploadtest.rate=500 -Ploadtest.durationSeconds=120
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Slf4j
+public class LoadTest {
+
+    // output unit is milliseconds, values are recorded in microseconds
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    public static void main(String... args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        log.info("Load test: {}", config);
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.getConcurrency(), r -> {
+            Thread t = new Thread(r, "loadtest");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (LoadTestClient client = new LoadTestClient(config.getUrl(), config.getConcurrency())) {
+            List<DataSeeder.SeededTenant> tenants = new DataSeeder(config, client).seed(executor);
+
+            LoadGenerator generator = new LoadGenerator(config, client, tenants);
+            generator.run(executor);
+
+            // let the requests still in flight finish
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Requests still running after 1 minute, reporting without them");
+            }
+
+            report(config, generator.getStats());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void report(LoadTestConfig config, Map<Operation, LoadGenerator.Stats> stats) throws IOException {
+        File reportDir = new File(config.getReportDir());
+        if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+            throw new IOException("Unable to create " + reportDir);
+        }
+
+        Histogram totalResponse = null;
+        Histogram totalService = null;
+        long totalErrors = 0;
+
+        System.out.println();
+        System.out.println(String.format("%-20s %10s %8s %10s | %9s %9s %9s %9s | %9s %9s",
+                "operation", "requests", "errors", "req/s",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p50", "svc p99"));
+
+        for (Map.Entry<Operation, LoadGenerator.Stats> entry : stats.entrySet()) {
+            Histogram response = entry.getValue().getResponseTime();
+            Histogram service = entry.getValue().getServiceTime();
+            long errors = entry.getValue().getErrors().sum();
+
+            printRow(entry.getKey().getName(), response, service, errors, config.getDurationSeconds());
+            writeDistribution(reportDir, entry.getKey().getName(), response);
+
+            if (totalResponse == null) {
+                totalResponse = response.copy();
+                totalService = service.copy();
+            } else {
+                totalResponse.add(response);
+                totalService.add(service);
+            }
+            totalErrors += errors;
+        }
+
+        if (totalResponse != null) {
+            printRow("total", totalResponse, totalService, totalErrors, config.getDurationSeconds());
+            writeDistribution(reportDir, "total", totalResponse);
+        }
+
+        System.out.println();
+        System.out.println("Latency is measured from the intended start of each request (coordinated omission corrected),");
+        System.out.println("svc = service time from the actual start. Distributions written to " + reportDir.getAbsolutePath());
+    }
+
+    private static void printRow(String name, Histogram response, Histogram service, long errors, int durationSeconds) {
+        System.out.println(String.format("%-20s %10d %8d %10.1f | %9.2f %9.2f %9.2f %9.2f | %9.2f %9.2f",
+                name,
+                response.getTotalCount(), errors,
+                (response.getTotalCount() + errors) / (double) durationSeconds,
+                millis(response, 50.0), millis(response, 99.0), millis(response, 99.9),
+                response.getMaxValue() / MICROS_PER_MILLI,
+                millis(service, 50.0), millis(service, 99.0)));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    // HdrHistogram percentile distribution format, can be plotted with the HdrHistogram plotter
+    private static void writeDistribution(File reportDir, String name, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(new FileOutputStream(new File(reportDir, name + ".hgrm")), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.jacek99.springbootcucumber.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Base64;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Thin blocking HTTP client, with a connection pool sized for the load test concurrency.
+ * Response bodies are always fully read, so that the measured time includes the whole transfer
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class LoadTestClient implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String url;
+    private final CloseableHttpClient client;
+
+    public LoadTestClient(String url, int maxConnections) {
+        this.url = url;
+
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(maxConnections);
+        connections.setDefaultMaxPerRoute(maxConnections);
+
+        client = HttpClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(5000)
+                        .setSocketTimeout(30000)
+                        .build())
+                .disableAutomaticRetries()
+                // every request authenticates on its own, a session cookie from one user
+                // must never leak into the requests of another one
+                .disableCookieManagement()
+                .build();
+    }
+
+    public static String basicAuthorization(String user, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((user + ":" + password).getBytes(Charsets.UTF_8));
+    }
+
+    /**
+     * Exchanges the credentials for a bearer token
+     */
+    public String bearerAuthorization(String user, String password) throws IOException {
+        HttpPost post = new HttpPost(url + "/myapp/auth/token");
+        post.setHeader(HttpHeaders.AUTHORIZATION, basicAuthorization(user, password));
+        try (CloseableHttpResponse response = client.execute(post)) {
+            String body = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+            if (response.getStatusLine().getStatusCode() != 200) {
+                throw new IOException("Unable to get token for " + user + ": " + response.getStatusLine() + " " + body);
+            }
+            JsonNode token = MAPPER.readTree(body);
+            return token.get("tokenType").asText() + " " + token.get("accessToken").asText();
+        }
+    }
+
+    public int get(String authorization, String path) throws IOException {
+        return execute(authorization, new HttpGet(url + path));
+    }
+
+    public int post(String authorization, String path, Object body) throws IOException {
+        HttpPost post = new HttpPost(url + path);
+        post.setEntity(json(body));
+        return execute(authorization, post);
+    }
+
+    public int patch(String authorization, String path, Object body) throws IOException {
+        HttpPatch patch = new HttpPatch(url + path);
+        patch.setEntity(json(body));
+        return execute(authorization, patch);
+    }
+
+    private ByteArrayEntity json(Object body) throws IOException {
+        return new ByteArrayEntity(MAPPER.writeValueAsBytes(body), ContentType.APPLICATION_JSON);
+    }
+
+    /**
+     * @return HTTP status code
+     */
+    private int execute(String authorization, HttpRequestBase request) throws IOException {
+        request.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        try (CloseableHttpResponse response = client.execute(request)) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+}
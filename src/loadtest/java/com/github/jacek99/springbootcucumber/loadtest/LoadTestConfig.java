@@ -0,0 +1,93 @@
+package com.github.jacek99.springbootcucumber.loadtest;
+
+import com.google.common.base.Splitter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Value;
+
+/**
+ * Load test settings, read from "loadtest.*" system properties
+ * (passed through from Gradle, e.g. gradle loadtest -Ploadtest.rate=500)
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class LoadTestConfig {
+
+    // default mix, weights are relative
+    private static final String DEFAULT_MIX =
+            "restaurants.list=50,restaurants.update=20,restaurants.create=10,users.list=15,tenants.list=5";
+
+    // application under test
+    private String url;
+    private String adminUser;
+    private String adminPassword;
+    // "bearer" (log in once per user) or "basic" (credentials on every request)
+    private String auth;
+
+    // data seeding
+    private int tenants;
+    private int usersPerTenant;
+    private int restaurantsPerTenant;
+
+    // load shape
+    private int rate;
+    private int concurrency;
+    private int warmupSeconds;
+    private int durationSeconds;
+    private int pageSize;
+    private Map<Operation, Integer> mix;
+
+    // where the latency distributions get written
+    private String reportDir;
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                property("url", "http://127.0.0.1:8080"),
+                property("adminUser", "admin@system"),
+                property("adminPassword", "adminadmin"),
+                property("auth", "bearer"),
+                intProperty("tenants", 10),
+                intProperty("usersPerTenant", 5),
+                intProperty("restaurantsPerTenant", 100),
+                intProperty("rate", 200),
+                intProperty("concurrency", 32),
+                intProperty("warmupSeconds", 10),
+                intProperty("durationSeconds", 60),
+                intProperty("pageSize", 50),
+                parseMix(property("mix", DEFAULT_MIX)),
+                property("reportDir", "build/reports/loadtest"));
+    }
+
+    public boolean isBearerAuth() {
+        return "bearer".equalsIgnoreCase(auth);
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(property(name, String.valueOf(defaultValue)));
+    }
+
+    // operation=weight,operation=weight,...
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        Splitter.on(',').trimResults().omitEmptyStrings().withKeyValueSeparator('=').split(mix)
+                .forEach((name, weight) -> weights.put(Operation.fromName(name), Integer.parseInt(weight)));
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+                .append("url=").append(url).append(", auth=").append(auth)
+                .append(", tenants=").append(tenants).append(", usersPerTenant=").append(usersPerTenant)
+                .append(", restaurantsPerTenant=").append(restaurantsPerTenant)
+                .append(", rate=").append(rate).append("/s, concurrency=").append(concurrency)
+                .append(", warmup=").append(warmupSeconds).append("s, duration=").append(durationSeconds).append('s')
+                .append(", mix=").append(mix)
+                .toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.jacek99.springbootcucumber.loadtest;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * REST calls the load test can generate
+ *
+ * @author Jacek Furmankiewicz
+ */
+public enum Operation {
+
+    RESTAURANTS_LIST("restaurants.list"),
+    RESTAURANTS_CREATE("restaurants.create"),
+    RESTAURANTS_UPDATE("restaurants.update"),
+    USERS_LIST("users.list"),
+    TENANTS_LIST("tenants.list");
+
+    @Getter
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    public static Operation fromName(String name) {
+        return Arrays.stream(values())
+                .filter(o -> o.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + name +
+                        ", valid ones: " + Arrays.toString(values())));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,6 +1,15 @@
 package com.github.jacek99.springbootcucumber;
 
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ProtocolOptions;
+import com.github.jacek99.springbootcucumber.cassandra.OperationType;
+import com.github.jacek99.springbootcucumber.dao.WriteMode;
+import java.util.HashMap;
+import java.util.Map;
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.Getter;
 import org.hibernate.validator.constraints.NotEmpty;
@@ -22,6 +31,30 @@ public class AppConfig {
     @Valid
     private CassandraConfig cassandra = new CassandraConfig();
 
+    @Getter
+    @Valid
+    private AuthConfig auth = new AuthConfig();
+
+    @Getter
+    @Valid
+    private TenantCacheConfig tenantCache = new TenantCacheConfig();
+
+    @Getter
+    @Valid
+    private TenantDeleteConfig tenantDeletes = new TenantDeleteConfig();
+
+    @Getter
+    @Valid
+    private MetricsConfig metrics = new MetricsConfig();
+
+    @Getter
+    @Valid
+    private ImportConfig imports = new ImportConfig();
+
+    @Getter
+    @Valid
+    private ExportConfig exports = new ExportConfig();
+
     @Data
     public static class CassandraConfig {
         @NotEmpty
@@ -34,5 +67,303 @@ public class AppConfig {
         private int replicationFactor = 1;
         @NotEmpty
         private String replicationStrategy;
+        // how DAOs detect conflicts / missing entities on writes
+        @NotNull
+        private WriteMode writeMode = WriteMode.READ_BEFORE_WRITE;
+        // per table overrides of the write mode
+        private Map<String, WriteMode> writeModes = new HashMap<>();
+
+        @NotNull
+        private ConsistencyLevel consistencyLevel = ConsistencyLevel.LOCAL_QUORUM;
+        // for the conditional (lightweight transaction) writes
+        @NotNull
+        private ConsistencyLevel serialConsistencyLevel = ConsistencyLevel.LOCAL_SERIAL;
+        // per operation type overrides of the consistency level
+        private Map<OperationType, ConsistencyLevel> consistencyLevels = new HashMap<>();
+        // per table overrides of the above (lookup tables by their own names)
+        private Map<String, Map<OperationType, ConsistencyLevel>> tableConsistencyLevels = new HashMap<>();
+        // reads failing for lack of replicas get retried once at LOCAL_ONE / ONE, writes never are
+        private boolean downgradingRetry = false;
+        // rows per page when reading whole partitions / tables
+        @Range(min = 1, max = 100000)
+        private int fetchSize = 5000;
+        // NONE, SNAPPY or LZ4 (LZ4 is the cheaper one on CPU, SNAPPY needs snappy-java on the classpath)
+        @NotNull
+        private ProtocolOptions.Compression compression = ProtocolOptions.Compression.NONE;
+
+        // data center the app runs in, empty = the DC of the contact point
+        private String localDatacenter;
+        // send requests straight to a replica of the partition, saves a network hop
+        private boolean tokenAware = true;
+
+        @Valid
+        private CassandraPoolingConfig pooling = new CassandraPoolingConfig();
+        @Valid
+        private CassandraSocketConfig socket = new CassandraSocketConfig();
+        @Valid
+        private SpeculativeExecutionConfig speculativeExecution = new SpeculativeExecutionConfig();
+        @Valid
+        private TokenRangeScanConfig scan = new TokenRangeScanConfig();
+        @Valid
+        private BatchWriteConfig batch = new BatchWriteConfig();
+        @Valid
+        private QueryLogConfig queryLog = new QueryLogConfig();
+        @Valid
+        private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+    }
+
+    /**
+     * Connection pool per Cassandra node, defaults are the driver defaults.
+     * Local = nodes in the local DC, remote = all others
+     */
+    @Data
+    public static class CassandraPoolingConfig {
+        @Range(min = 1, max = 64)
+        private int coreConnectionsPerHost = 1;
+        @Range(min = 1, max = 64)
+        private int maxConnectionsPerHost = 1;
+        @Range(min = 1, max = 32768)
+        private int maxRequestsPerConnection = 1024;
+        // in-flight requests on a connection that trigger opening another one (up to the max)
+        @Range(min = 1, max = 32768)
+        private int newConnectionThreshold = 800;
+        @Range(min = 0, max = 64)
+        private int remoteCoreConnectionsPerHost = 1;
+        @Range(min = 0, max = 64)
+        private int remoteMaxConnectionsPerHost = 1;
+        @Range(min = 1, max = 32768)
+        private int remoteMaxRequestsPerConnection = 256;
+        // how long a request waits for a free connection when all are busy, before failing
+        @Range(min = 0, max = 60000)
+        private int poolTimeoutMillis = 5000;
+        // requests waiting for a free connection beyond this fail right away
+        @Range(min = 0, max = 100000)
+        private int maxQueueSize = 256;
+        @Range(min = 0, max = 3600)
+        private int heartbeatIntervalSeconds = 30;
+        @Range(min = 1, max = 3600)
+        private int idleTimeoutSeconds = 120;
+    }
+
+    @Data
+    public static class CassandraSocketConfig {
+        @Range(min = 100, max = 60000)
+        private int connectTimeoutMillis = 5000;
+        // should be higher than the server side timeouts (read_request_timeout_in_ms etc)
+        @Range(min = 100, max = 120000)
+        private int readTimeoutMillis = 12000;
+        private boolean tcpNoDelay = true;
+        private boolean keepAlive = true;
+    }
+
+    /**
+     * Sends the same request to another replica if the first one is slow to answer,
+     * first response wins. Only ever applied to reads, writes are never marked idempotent
+     */
+    @Data
+    public static class SpeculativeExecutionConfig {
+        private boolean enabled = false;
+        // fixed delay before the next execution is started
+        @Range(min = 1, max = 60000)
+        private int delayMillis = 100;
+        // if > 0, the delay is the per node latency percentile instead of the fixed one, e.g. 99.0
+        @DecimalMin("0.0")
+        @DecimalMax("99.99")
+        private double percentile = 0;
+        // including the initial one
+        @Range(min = 2, max = 10)
+        private int maxExecutions = 2;
+    }
+
+    /**
+     * Statement latencies per table and operation, slow statement logging and sampled driver tracing
+     */
+    @Data
+    public static class QueryLogConfig {
+        // per table / operation latencies and the slowest statements
+        private boolean enabled = true;
+        // statements slower than this get logged, 0 = none
+        @Range(min = 0, max = 600000)
+        private int slowThresholdMillis = 500;
+        // caps the slow statement logging during a latency spike, the rest is only counted
+        @Range(min = 1, max = 1000)
+        private int maxSlowLogsPerSecond = 10;
+        // slowest statements kept for the admin endpoint
+        @Range(min = 0, max = 1000)
+        private int topSize = 20;
+        // fraction of the statements executed with driver tracing on, e.g. 0.001
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double traceSampleRate = 0;
+    }
+
+    /**
+     * Fails statements fast while Cassandra is unavailable, reads get served from the last known good values
+     */
+    @Data
+    public static class CircuitBreakerConfig {
+        private boolean enabled = true;
+        // consecutive failures meaning Cassandra is unavailable (timeouts, no hosts, ...) that open it
+        @Range(min = 1, max = 10000)
+        private int failureThreshold = 20;
+        // how often the probe runs while open, the first one to succeed closes it
+        @Range(min = 100, max = 600000)
+        private int probeIntervalMillis = 2000;
+        @Range(min = 100, max = 60000)
+        private int probeTimeoutMillis = 1000;
+        @NotEmpty
+        private String probeQuery = "SELECT release_version FROM system.local";
+        // last known good entities kept per DAO (a list counts as its size), 0 = no stale reads
+        @Range(min = 0, max = 10000000)
+        private int staleReadsMaxEntities = 10000;
+        @Range(min = 1, max = 604800)
+        private int staleReadsExpirySeconds = 3600;
+    }
+
+    /**
+     * Full table scans (e.g. findAll for the system tenant) read the token ring
+     * as separate ranges, a few of them in parallel
+     */
+    @Data
+    public static class TokenRangeScanConfig {
+        // min number of ranges the ring gets split into, smaller ranges = shorter individual reads
+        @Range(min = 1, max = 10000)
+        private int splits = 64;
+        // ranges being read at the same time
+        @Range(min = 1, max = 256)
+        private int concurrency = 8;
+        // threads sorting and merging the ranges read, 0 = number of CPUs
+        @Range(min = 0, max = 256)
+        private int sortThreads = 0;
+    }
+
+    /**
+     * Batch writes (saveAll etc) group the rows by partition into unlogged batches,
+     * a few of them get written in parallel
+     */
+    @Data
+    public static class BatchWriteConfig {
+        // statements per batch, keep the batches under the server batch_size_warn_threshold_in_kb
+        @Range(min = 1, max = 1000)
+        private int maxStatements = 50;
+        // batches (or reads before the write) being executed at the same time
+        @Range(min = 1, max = 1024)
+        private int maxInFlight = 16;
+    }
+
+    @Data
+    public static class AuthConfig {
+        // max number of verified credentials kept in memory, 0 disables the cache
+        @Range(min = 0, max = 1000000)
+        private int cacheMaxSize = 10000;
+        // how long a verified credential is trusted before the password hash is checked again
+        @Range(min = 1, max = 3600)
+        private int cacheExpirySeconds = 300;
+        // delay before responding to the first failed login, doubles with every further failure
+        @Range(min = 0, max = 60000)
+        private int failedLoginBaseDelayMillis = 1000;
+        @Range(min = 0, max = 300000)
+        private int failedLoginMaxDelayMillis = 30000;
+        // how long failed logins are remembered for a user / IP
+        @Range(min = 1, max = 86400)
+        private int failedLoginWindowSeconds = 900;
+        // secret used to sign bearer tokens, should be the same on all nodes
+        // if empty a random one is generated (tokens will not survive a restart)
+        private String tokenSecret;
+        @Range(min = 60, max = 86400)
+        private int tokenExpirySeconds = 3600;
+        // how long a node may take to see a user's tokens revoked on another node
+        @Range(min = 1, max = 3600)
+        private int tokenRevocationRefreshSeconds = 5;
+        // password hashes get verified on a dedicated pool, unless inline is requested
+        private boolean verificationInline = false;
+        // 0 = number of CPU cores
+        @Range(min = 0, max = 256)
+        private int verificationThreads = 0;
+        // logins waiting for verification beyond this are rejected with 503
+        @Range(min = 1, max = 100000)
+        private int verificationQueueSize = 100;
+        @Range(min = 1, max = 3600)
+        private int verificationRetryAfterSeconds = 1;
+    }
+
+    @Data
+    public static class TenantCacheConfig {
+        @Range(min = 1, max = 1000000)
+        private int maxSize = 10000;
+        // cached tenants get reloaded in the background after this time
+        @Range(min = 1, max = 3600)
+        private int refreshSeconds = 60;
+        // hard limit on how long a tenant can be served from memory without being reloaded
+        @Range(min = 1, max = 86400)
+        private int expirySeconds = 600;
+        // how long an unknown tenant ID is remembered, to protect the DB from unknown tenant floods
+        @Range(min = 0, max = 3600)
+        private int negativeExpirySeconds = 5;
+    }
+
+    /**
+     * The background delete of a deleted tenant's data, a table that fails gets retried
+     * with exponential backoff on its own
+     */
+    @Data
+    public static class TenantDeleteConfig {
+        // per table, including the first one
+        @Range(min = 1, max = 100)
+        private int maxAttempts = 8;
+        // delay before the first retry, doubled for every next one
+        @Range(min = 1, max = 3600000)
+        private long retryBaseDelayMillis = 1000;
+        @Range(min = 1, max = 3600000)
+        private long retryMaxDelayMillis = 60000;
+        // tables that failed on every attempt, listed in the admin statistics (only the latest ones)
+        @Range(min = 0, max = 10000)
+        private int maxFailuresReported = 100;
+    }
+
+    @Data
+    public static class MetricsConfig {
+        // hot path timings / counters
+        private boolean enabled = true;
+        // tenants beyond this get their counters aggregated together
+        @Range(min = 0, max = 100000)
+        private int maxTenants = 1000;
+    }
+
+    /**
+     * Bulk import jobs, run in the background one file at a time per thread
+     */
+    @Data
+    public static class ImportConfig {
+        // where the uploads get spooled to until imported, empty = the system temp directory
+        private String directory;
+        // jobs being imported at the same time
+        @Range(min = 1, max = 64)
+        private int threads = 2;
+        // jobs waiting for a free thread beyond this are rejected with 503
+        @Range(min = 1, max = 1000)
+        private int queueSize = 10;
+        // entities per batch write
+        @Range(min = 1, max = 1000)
+        private int batchSize = 500;
+        // batch writes in flight per job, the file is not read any further until one of them completes
+        @Range(min = 1, max = 64)
+        private int maxInFlight = 4;
+        // failed rows reported in the job status, any beyond that are only counted
+        @Range(min = 0, max = 10000)
+        private int maxErrorRows = 100;
+        // how long a finished job's status can still be checked
+        @Range(min = 1, max = 10080)
+        private int retentionMinutes = 60;
+    }
+
+    @Data
+    public static class ExportConfig {
+        // exports being written at the same time, any beyond that are rejected with 503
+        @Range(min = 1, max = 64)
+        private int maxConcurrent = 4;
+        // gzip level, the fastest one usually keeps up with the network where the default one does not
+        @Range(min = 1, max = 9)
+        private int compressionLevel = 1;
     }
 }
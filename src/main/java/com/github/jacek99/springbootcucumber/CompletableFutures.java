@@ -0,0 +1,111 @@
+package com.github.jacek99.springbootcucumber;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Common helpers for working with CompletableFuture
+ * (and bridging the Guava futures used by the Cassandra driver)
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class CompletableFutures {
+
+    /**
+     * Converts a Guava future to a CompletableFuture. The CompletableFuture gets completed
+     * on the thread that completes the original future (i.e. usually a driver I/O thread),
+     * so any dependent stages should be non-blocking and cheap
+     */
+    public static <T> CompletableFuture<T> fromListenable(ListenableFuture<T> listenable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Futures.addCallback(listenable, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Java 8 equivalent of CompletableFuture.failedFuture()
+     */
+    public static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    /**
+     * Starts an asynchronous operation, anything it throws right away (e.g. binding a statement)
+     * fails the returned future instead of propagating to the caller
+     */
+    public static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> operation) {
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    /**
+     * Returns the actual error that failed a future, without the wrappers added by dependent stages
+     */
+    public static Throwable unwrap(Throwable t) {
+        Throwable error = t;
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Starts the tasks 0..count-1 with at most maxInFlight of them running at any time, the next one
+     * gets started as soon as any running one completes. Completes once all of them have, whether they
+     * failed or not, so every task needs to deal with its own errors
+     */
+    public static CompletableFuture<Void> forEachBounded(int count, int maxInFlight,
+                                                         IntFunction<CompletableFuture<?>> task) {
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(count, maxInFlight)];
+        for (int i = 0; i < workers.length; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            runNext(count, next, task, done);
+            workers[i] = done;
+        }
+        return CompletableFuture.allOf(workers);
+    }
+
+    // loops while the tasks complete right away, so a long run of them never nests the calls
+    private static void runNext(int count, AtomicInteger next, IntFunction<CompletableFuture<?>> task,
+                                CompletableFuture<Void> done) {
+        for (int index = next.getAndIncrement(); index < count; index = next.getAndIncrement()) {
+            CompletableFuture<?> running;
+            try {
+                running = task.apply(index);
+            } catch (RuntimeException e) {
+                // the task's own error to handle, just move on to the next one
+                continue;
+            }
+            if (!running.isDone()) {
+                running.whenComplete((result, e) -> runNext(count, next, task, done));
+                return;
+            }
+        }
+        done.complete(null);
+    }
+}
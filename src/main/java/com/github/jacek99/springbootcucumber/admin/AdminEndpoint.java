@@ -1,13 +1,23 @@
 package com.github.jacek99.springbootcucumber.admin;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.Endpoint;
 import org.springframework.stereotype.Component;
 
 /**
- * Base Actuator endpoint for admin tasks
+ * Base Actuator endpoint for admin tasks.
+ * Shows the statistics of all the AdminStatistics components
  */
 @Component
-public class AdminEndpoint implements Endpoint<String> {
+public class AdminEndpoint implements Endpoint<Map<String, Object>> {
+
+    @Autowired(required = false)
+    private List<AdminStatistics> statistics = Collections.emptyList();
+
     @Override
     public String getId() {
         return "admin";
@@ -24,7 +34,11 @@ public class AdminEndpoint implements Endpoint<String> {
     }
 
     @Override
-    public String invoke() {
-        return "";
+    public Map<String, Object> invoke() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (AdminStatistics stats : statistics) {
+            result.put(stats.getName(), stats.getStatistics());
+        }
+        return result;
     }
 }
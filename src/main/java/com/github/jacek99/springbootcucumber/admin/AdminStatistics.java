@@ -0,0 +1,22 @@
+package com.github.jacek99.springbootcucumber.admin;
+
+import java.util.Map;
+
+/**
+ * Any component that wants to expose its runtime statistics
+ * via the actuator admin endpoint
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface AdminStatistics {
+
+    /**
+     * Unique name under which the statistics will be shown
+     */
+    String getName();
+
+    /**
+     * Current statistics, name / value pairs
+     */
+    Map<String, Object> getStatistics();
+}
@@ -1,6 +1,7 @@
 package com.github.jacek99.springbootcucumber.admin;
 
-import com.github.jacek99.springbootcucumber.cassandra.CassandraSchemaInstaller;
+import com.github.jacek99.springbootcucumber.cassandra.QueryLatencyTracker;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.Endpoint;
 import org.springframework.boot.actuate.endpoint.InfoEndpoint;
@@ -14,14 +15,17 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 /**
  * An endpoint that can be used for initializing the DB to an empty state
- * in-between BDD scenarios
+ * in-between BDD scenarios, plus the admin actions on the Cassandra query log
  * @author Jacek Furmankiewicz
  */
 @Component
 public class ItinTestingEndpoint extends EndpointMvcAdapter {
 
     @Autowired
-    private CassandraSchemaInstaller installer;
+    private IDatabaseInitializer installer;
+    // none with the in-memory DB
+    @Autowired(required = false)
+    private QueryLatencyTracker queryLatencyTracker;
 
     /**
      * Create a new {@link EndpointMvcAdapter}.
@@ -39,4 +43,28 @@ public class ItinTestingEndpoint extends EndpointMvcAdapter {
         installer.initForTesting();
         return "DB reset";
     }
+
+    /**
+     * Changes the fraction of the statements executed with tracing on, until the next restart
+     */
+    @RequestMapping(value = "/queries/tracing", method = RequestMethod.POST, consumes = MediaType.ALL_VALUE)
+    @ResponseBody
+    public String setTraceSampleRate(@RequestParam("sampleRate") double sampleRate) {
+        getQueryLatencyTracker().setTraceSampleRate(sampleRate);
+        return "Tracing " + sampleRate + " of statements";
+    }
+
+    @RequestMapping(value = "/queries/reset", method = RequestMethod.POST, consumes = MediaType.ALL_VALUE)
+    @ResponseBody
+    public String resetQueries() {
+        getQueryLatencyTracker().reset();
+        return "Query log reset";
+    }
+
+    private QueryLatencyTracker getQueryLatencyTracker() {
+        if (queryLatencyTracker == null) {
+            throw new IllegalStateException("No Cassandra query log with the in-memory DB");
+        }
+        return queryLatencyTracker;
+    }
 }
@@ -0,0 +1,36 @@
+package com.github.jacek99.springbootcucumber.admin;
+
+import com.github.jacek99.springbootcucumber.metrics.HotPathMetrics;
+import java.io.IOException;
+import java.io.Writer;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.mvc.AbstractMvcEndpoint;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Exposes the hot path metrics on the management port in the Prometheus text format
+ * @author Jacek Furmankiewicz
+ */
+@Component
+public class PrometheusEndpoint extends AbstractMvcEndpoint {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Autowired
+    private HotPathMetrics metrics;
+
+    public PrometheusEndpoint() {
+        super("/prometheus", true);
+    }
+
+    @RequestMapping(method = RequestMethod.GET)
+    public void scrape(HttpServletResponse response) throws IOException {
+        response.setContentType(CONTENT_TYPE);
+        Writer out = response.getWriter();
+        metrics.writePrometheus(out);
+        out.flush();
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.jacek99.springbootcucumber.bulk;
+
+import java.util.List;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.MediaType;
+
+/**
+ * File formats supported by the bulk APIs, one entity per line / record.
+ * CSV files have a header line with the entity property names
+ *
+ * @author Jacek Furmankiewicz
+ */
+public enum BulkFormat {
+
+    NDJSON(BulkFormat.NDJSON_VALUE),
+    CSV(BulkFormat.CSV_VALUE);
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    @Getter
+    private final MediaType mediaType;
+
+    BulkFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the media type is not one of the supported formats
+     */
+    public static BulkFormat of(MediaType mediaType) {
+        for (BulkFormat format : values()) {
+            if (format.mediaType.includes(mediaType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported format: " + mediaType);
+    }
+
+    /**
+     * The format most preferred by an Accept header, NDJSON if it does not prefer either
+     */
+    public static BulkFormat negotiate(String accept) {
+        if (StringUtils.isNotEmpty(accept)) {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(accepted);
+            for (MediaType mediaType : accepted) {
+                for (BulkFormat format : values()) {
+                    if (mediaType.includes(format.mediaType)) {
+                        return format;
+                    }
+                }
+            }
+        }
+        return NDJSON;
+    }
+}
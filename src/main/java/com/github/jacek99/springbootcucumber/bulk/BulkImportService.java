@@ -0,0 +1,290 @@
+package com.github.jacek99.springbootcucumber.bulk;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import com.github.jacek99.springbootcucumber.ThreadLocals;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.github.jacek99.springbootcucumber.dao.BatchResult;
+import com.github.jacek99.springbootcucumber.dao.IGenericAsyncDao;
+import com.github.jacek99.springbootcucumber.domain.ITenantEntity;
+import com.github.jacek99.springbootcucumber.exception.NotFoundException;
+import com.github.jacek99.springbootcucumber.exception.ServiceUnavailableException;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs bulk imports as background jobs. The upload gets spooled to a temp file first,
+ * so the request completes as soon as the file is received and the import itself never holds
+ * more than a few batches of entities in memory, regardless of the file size.
+ *
+ * The file is parsed one row at a time and written in batches through the DAO, with only a few batch
+ * writes in flight per job: the file is not read any further until one of them completes,
+ * so a slow DB slows down the import instead of it piling up entities in memory.
+ *
+ * Jobs are kept in memory on the node that received the upload, for a while after they finish
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class BulkImportService implements AdminStatistics {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private AppConfig config;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final ConcurrentMap<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        AppConfig.ImportConfig imports = config.getImports();
+
+        // same as the JSON API, unknown columns are ignored
+        csvMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        directory = Paths.get(StringUtils.isEmpty(imports.getDirectory()) ?
+                System.getProperty("java.io.tmpdir") : imports.getDirectory());
+        Files.createDirectories(directory);
+
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(imports.getThreads(), imports.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(imports.getQueueSize()),
+                r -> {
+                    Thread t = new Thread(r, "bulk-import-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        // running jobs get interrupted and delete their own files
+        executor.shutdownNow();
+    }
+
+    /**
+     * Spools the upload and queues the job. Entities without a tenant ID get the caller's tenant
+     *
+     * @throws ServiceUnavailableException if too many jobs are queued already
+     */
+    public <E extends Comparable<E>> ImportJob submit(TenantToken tenantToken, IGenericAsyncDao<E,String> dao,
+                                                      Class<E> entityType, BulkFormat format,
+                                                      InputStream upload) throws IOException {
+        purgeFinished();
+        // do not even receive the upload if it would be rejected anyway
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw tooManyJobs();
+        }
+
+        Path file = Files.createTempFile(directory, "import-", "." + format.name().toLowerCase());
+        try {
+            long bytes = Files.copy(upload, file, StandardCopyOption.REPLACE_EXISTING);
+            ImportJob job = new ImportJob(tenantToken.getTenantId(), format, bytes, config.getImports().getMaxErrorRows());
+            jobs.put(job.getJobId(), job);
+            try {
+                executor.execute(() -> run(job, tenantToken, dao, entityType, file));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getJobId());
+                throw tooManyJobs();
+            }
+            log.info("{}: Queued import job {} of {} bytes of {}", tenantToken.getTenantId(), job.getJobId(),
+                    bytes, format);
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private ServiceUnavailableException tooManyJobs() {
+        return new ServiceUnavailableException("Too many import jobs queued already, try again later");
+    }
+
+    /**
+     * Finds a job visible to the caller, i.e. started within the same tenant
+     * (the system tenant sees all of them)
+     *
+     * @throws NotFoundException if not found
+     */
+    public ImportJob findJob(TenantToken tenantToken, String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null || !(tenantToken.isSystemTenant() || job.getTenantId().equals(tenantToken.getTenantId()))) {
+            throw new NotFoundException(ImportJob.class, jobId);
+        }
+        return job;
+    }
+
+    // finished jobs are kept just long enough for their final status to be checked
+    private void purgeFinished() {
+        long expired = System.currentTimeMillis() -
+                TimeUnit.MINUTES.toMillis(config.getImports().getRetentionMinutes());
+        jobs.values().removeIf(job -> job.getState().isFinished() && job.getFinished() < expired);
+    }
+
+    private <E extends Comparable<E>> void run(ImportJob job, TenantToken tenantToken, IGenericAsyncDao<E,String> dao,
+                                               Class<E> entityType, Path file) {
+        try {
+            if (!job.start()) {
+                // cancelled while queued
+                return;
+            }
+
+            long start = System.nanoTime();
+            importRows(job, tenantToken, dao, entityType, file);
+            job.finish(job.isCancelRequested() ? ImportJob.State.CANCELLED : ImportJob.State.COMPLETED, null);
+
+            ImportJobStatus status = job.getStatus();
+            log.info("{}: Import job {} {} after {} ms, {} rows written, {} failed", job.getTenantId(), job.getJobId(),
+                    status.getState(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    status.getRowsWritten(), status.getRowsFailed());
+        } catch (JsonParseException e) {
+            // there is no telling where the next row starts in a malformed file, so no point going on
+            job.finish(ImportJob.State.FAILED, ThreadLocals.STRINGBUILDER.get()
+                    .append("Invalid ").append(job.getFormat())
+                    .append(" at line ").append(e.getLocation() == null ? -1 : e.getLocation().getLineNr())
+                    .append(": ").append(e.getOriginalMessage())
+                    .toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(ImportJob.State.CANCELLED, "Interrupted by shutdown");
+        } catch (IOException | RuntimeException e) {
+            log.error("{}: Import job {} failed", job.getTenantId(), job.getJobId(), e);
+            job.finish(ImportJob.State.FAILED, e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete import file {}", file, e);
+            }
+        }
+    }
+
+    private <E extends Comparable<E>> void importRows(ImportJob job, TenantToken tenantToken,
+                                                      IGenericAsyncDao<E,String> dao, Class<E> entityType,
+                                                      Path file) throws IOException, InterruptedException {
+        AppConfig.ImportConfig imports = config.getImports();
+        Semaphore inFlight = new Semaphore(imports.getMaxInFlight());
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_SIZE);
+             MappingIterator<E> rows = getReader(job.getFormat(), entityType).readValues(in)) {
+
+            List<E> batch = new ArrayList<>(imports.getBatchSize());
+            long[] rowNumbers = new long[imports.getBatchSize()];
+            while (!job.isCancelRequested() && rows.hasNextValue()) {
+                long row = job.rowRead();
+                try {
+                    E entity = rows.nextValue();
+                    if (entity instanceof ITenantEntity && StringUtils.isEmpty(((ITenantEntity) entity).getTenantId())) {
+                        ((ITenantEntity) entity).setTenantId(tenantToken.getTenantId());
+                    }
+                    rowNumbers[batch.size()] = row;
+                    batch.add(entity);
+                } catch (JsonMappingException e) {
+                    // well-formed, just not a valid entity (e.g. wrong value type), the parser can go on
+                    job.rowFailed(row, null, HttpStatus.BAD_REQUEST.value(), e.getOriginalMessage());
+                }
+
+                if (batch.size() == imports.getBatchSize()) {
+                    write(job, tenantToken, dao, batch, rowNumbers, inFlight);
+                    batch = new ArrayList<>(imports.getBatchSize());
+                    rowNumbers = new long[imports.getBatchSize()];
+                }
+            }
+            if (!batch.isEmpty() && !job.isCancelRequested()) {
+                write(job, tenantToken, dao, batch, rowNumbers, inFlight);
+            }
+        } finally {
+            // wait for the writes still in flight, so that the final counts are complete
+            inFlight.acquireUninterruptibly(imports.getMaxInFlight());
+        }
+    }
+
+    private ObjectReader getReader(BulkFormat format, Class<?> entityType) {
+        if (format == BulkFormat.CSV) {
+            // columns as named in the header line, empty values are nulls
+            return csvMapper.readerFor(entityType).with(CsvSchema.emptySchema().withHeader().withNullValue(""));
+        } else {
+            return objectMapper.readerFor(entityType);
+        }
+    }
+
+    /**
+     * Blocks until there is room for another batch write in flight, i.e. the backpressure on the file reading
+     */
+    private <E extends Comparable<E>> void write(ImportJob job, TenantToken tenantToken, IGenericAsyncDao<E,String> dao,
+                                                 List<E> batch, long[] rowNumbers,
+                                                 Semaphore inFlight) throws InterruptedException {
+        inFlight.acquire();
+        // anything thrown right away still needs to release the permit and fail the rows
+        CompletableFutures.start(() -> dao.saveOrUpdateAllAsync(tenantToken, batch)).whenComplete((results, e) -> {
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    BatchResult<String> result = e == null ? results.get(i) :
+                            BatchResult.failed(null, CompletableFutures.unwrap(e));
+                    if (result.isSucceeded()) {
+                        job.rowWritten();
+                    } else {
+                        job.rowFailed(rowNumbers[i], result);
+                    }
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "imports";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("jobs", jobs.size());
+        result.put("running", executor.getActiveCount());
+        result.put("queued", executor.getQueue().size());
+        result.put("completed", executor.getCompletedTaskCount());
+        return result;
+    }
+}
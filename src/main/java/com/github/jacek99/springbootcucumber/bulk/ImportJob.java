@@ -0,0 +1,124 @@
+package com.github.jacek99.springbootcucumber.bulk;
+
+import com.github.jacek99.springbootcucumber.dao.BatchResult;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+/**
+ * A single bulk import, from the spooled upload to the final counts.
+ * The progress gets updated from the job thread and the driver I/O threads (as the writes complete)
+ * and read by the status requests at any time
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class ImportJob {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == CANCELLED || this == FAILED;
+        }
+    }
+
+    @Getter
+    private final String jobId = UUID.randomUUID().toString();
+    // the tenant that started it, only visible within that tenant (and to the system tenant)
+    @Getter
+    private final String tenantId;
+    @Getter
+    private final BulkFormat format;
+    @Getter
+    private final long bytes;
+    private final int maxFailedRows;
+
+    private final long submitted = System.currentTimeMillis();
+    private volatile long started;
+    @Getter
+    private volatile long finished;
+    @Getter
+    private volatile State state = State.QUEUED;
+    private volatile String error;
+    @Getter
+    private volatile boolean cancelRequested;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final List<ImportJobStatus.FailedRow> failedRows = new ArrayList<>();
+
+    public ImportJob(String tenantId, BulkFormat format, long bytes, int maxFailedRows) {
+        this.tenantId = tenantId;
+        this.format = format;
+        this.bytes = bytes;
+        this.maxFailedRows = maxFailedRows;
+    }
+
+    /**
+     * @return false if the job got cancelled while still queued, i.e. should not run at all
+     */
+    synchronized boolean start() {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        state = State.RUNNING;
+        started = System.currentTimeMillis();
+        return true;
+    }
+
+    synchronized void finish(State finalState, String error) {
+        this.error = error;
+        this.finished = System.currentTimeMillis();
+        this.state = finalState;
+    }
+
+    /**
+     * A queued job gets cancelled right away, a running one stops reading the file
+     * and finishes once the writes already in flight complete
+     */
+    public synchronized void cancel() {
+        if (state == State.QUEUED) {
+            finish(State.CANCELLED, null);
+        } else if (state == State.RUNNING) {
+            cancelRequested = true;
+        }
+    }
+
+    /**
+     * @return the row number, 1 based
+     */
+    long rowRead() {
+        return rowsRead.incrementAndGet();
+    }
+
+    void rowWritten() {
+        rowsWritten.incrementAndGet();
+    }
+
+    void rowFailed(long row, BatchResult<String> result) {
+        rowFailed(row, result.getId(), result.getStatus(), result.getError());
+    }
+
+    void rowFailed(long row, String id, int status, String error) {
+        rowsFailed.incrementAndGet();
+        synchronized (failedRows) {
+            if (failedRows.size() < maxFailedRows) {
+                failedRows.add(new ImportJobStatus.FailedRow(row, id, status, error));
+            }
+        }
+    }
+
+    public ImportJobStatus getStatus() {
+        List<ImportJobStatus.FailedRow> failed;
+        synchronized (failedRows) {
+            failed = ImmutableList.copyOf(failedRows);
+        }
+        return new ImportJobStatus(jobId, tenantId, format, state, bytes,
+                rowsRead.get(), rowsWritten.get(), rowsFailed.get(), failed, error,
+                submitted, started == 0 ? null : started, finished == 0 ? null : finished);
+    }
+}
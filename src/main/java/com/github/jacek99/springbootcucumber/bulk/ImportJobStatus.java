@@ -0,0 +1,44 @@
+package com.github.jacek99.springbootcucumber.bulk;
+
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Point in time view of an import job, as returned by the status endpoint.
+ * Times are epoch millis, null until reached
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class ImportJobStatus {
+
+    private String jobId;
+    private String tenantId;
+    private BulkFormat format;
+    private ImportJob.State state;
+    // size of the uploaded file
+    private long bytes;
+    private long rowsRead;
+    private long rowsWritten;
+    private long rowsFailed;
+    // only the first few failed rows, see imports.maxErrorRows
+    private List<FailedRow> failedRows;
+    // why the whole job failed, null if it did not
+    private String error;
+    private long submitted;
+    private Long started;
+    private Long finished;
+
+    /**
+     * A row that could not be imported
+     */
+    @Value
+    public static class FailedRow {
+        // 1 based, not counting the CSV header
+        private long row;
+        // null if the row could not even be parsed
+        private String id;
+        private int status;
+        private String error;
+    }
+}
@@ -8,6 +8,9 @@ public class CassandraConstants {
     public static final String TABLE_TENANT = "tenant";
     public static final String TABLE_TENANT_USER = "tenant_user";
     public static final String TABLE_RESTAURANT = "restaurant";
+    public static final String TABLE_RESTAURANT_BY_COUNTRY = "restaurant_by_country";
+    public static final String TABLE_RESTAURANT_BY_STATE = "restaurant_by_state";
+    public static final String TABLE_RESTAURANT_BY_NAME = "restaurant_by_name";
 
     public static final String COLUMN_TENANT_ID = "tenant_id";
     public static final String COLUMN_USER_ID = "user_id";
@@ -19,6 +22,7 @@ public class CassandraConstants {
     public static final String COLUMN_PASSWORD_SALT = "password_salt";
     public static final String COLUMN_PASSWORD_REP = "password_rep";
     public static final String COLUMN_ACTIVE = "active";
+    public static final String COLUMN_TOKENS_REVOKED_AT = "tokens_revoked_at";
     public static final String COLUMN_COUNTRY_CODE = "country_code";
     public static final String COLUMN_STATE_CODE = "state_code";
     public static final String COLUMN_CURRENCY_CODE = "currency_code";
@@ -1,17 +1,30 @@
 package com.github.jacek99.springbootcucumber.cassandra;
 
+import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
 import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.schemabuilder.Create;
 import com.datastax.driver.core.schemabuilder.SchemaBuilder;
 import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
 import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.RestaurantDao;
 import com.github.jacek99.springbootcucumber.dao.TenantDao;
 import com.github.jacek99.springbootcucumber.dao.TenantUserDao;
 import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
+import com.github.jacek99.springbootcucumber.security.FailedLoginTracker;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import javax.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_ACTIVE;
@@ -24,6 +37,7 @@ import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_ROLES;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_STATE_CODE;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_TENANT_ID;
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_TOKENS_REVOKED_AT;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_URL;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_USER_ID;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.TABLE_RESTAURANT;
@@ -36,8 +50,9 @@ import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants
  * @author Jacek Furmankiewicz
  */
 @Component
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
 @Slf4j
-public class CassandraSchemaInstaller {
+public class CassandraSchemaInstaller implements IDatabaseInitializer {
 
     @Autowired
     private CassandraService cassandra;
@@ -48,6 +63,14 @@ public class CassandraSchemaInstaller {
     private TenantDao tenantDao;
     @Autowired
     private TenantUserDao tenantUserDao;
+    @Autowired
+    private RestaurantDao restaurantDao;
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    @Autowired
+    private FailedLoginTracker failedLoginTracker;
+    @Autowired
+    private TokenService tokenService;
 
     @PostConstruct
     public void init() {
@@ -64,6 +87,13 @@ public class CassandraSchemaInstaller {
         createTenantTable(keyspace);
         createTenantUserTable(keyspace);
         createRestaurantTable(keyspace);
+        createLookupTables(keyspace, TABLE_RESTAURANT, restaurantDao.getLookupTables());
+
+        // prepare all the DAO statements upfront
+        cassandra.getTableStatements(TABLE_TENANT);
+        cassandra.getTableStatements(TABLE_TENANT_USER);
+        cassandra.getTableStatements(TABLE_RESTAURANT);
+        restaurantDao.getLookupTables().keySet().forEach(cassandra::getTableStatements);
 
         // base data
         tenantDao.createSystemTenant();
@@ -107,11 +137,21 @@ public class CassandraSchemaInstaller {
                     .addColumn(COLUMN_PASSWORD_SALT, DataType.ascii())
                     .addColumn(COLUMN_PASSWORD_REP, DataType.cint())
                     .addColumn(COLUMN_ACTIVE, DataType.cboolean())
+                    .addColumn(COLUMN_TOKENS_REVOKED_AT, DataType.bigint())
                     .buildInternal();
 
             log.info("Executing CQL:\n{}", cql);
             cassandra.getSession().execute(cql);
 
+        } else if (meta.getColumn(COLUMN_TOKENS_REVOKED_AT) == null) {
+            // added after the table, no value means no token has been revoked
+            String cql = SchemaBuilder.alterTable(TABLE_TENANT_USER)
+                    .addColumn(COLUMN_TOKENS_REVOKED_AT).type(DataType.bigint())
+                    .getQueryString();
+
+            log.info("Executing CQL:\n{}", cql);
+            cassandra.getSession().execute(cql);
+
         } else {
             log.info("Table {}.{} already found, skipping creation", keyspace, TABLE_TENANT_USER);
         }
@@ -140,6 +180,45 @@ public class CassandraSchemaInstaller {
         }
     }
 
+    /**
+     * Creates the lookup tables declared by a DAO, each one a copy of the DAO's table
+     * with the lookup key columns added to the partition key
+     */
+    private void createLookupTables(String keyspace, String tableName, Map<String, List<String>> lookupTables) {
+        KeyspaceMetadata keyspaceMeta = cassandra.getCluster().getMetadata().getKeyspace(keyspace);
+        TableMetadata table = keyspaceMeta.getTable(tableName);
+
+        for (Map.Entry<String, List<String>> lookup : lookupTables.entrySet()) {
+            String lookupTableName = lookup.getKey();
+            List<String> keyColumns = lookup.getValue();
+
+            if (keyspaceMeta.getTable(lookupTableName) == null) {
+                log.info("Table {}.{} not found, creating....", keyspace, lookupTableName);
+
+                Create create = SchemaBuilder.createTable(lookupTableName);
+                table.getPartitionKey().forEach(c -> create.addPartitionKey(c.getName(), c.getType()));
+                for (String keyColumn : keyColumns) {
+                    ColumnMetadata column = table.getColumn(keyColumn);
+                    Preconditions.checkArgument(column != null && !table.getPrimaryKey().contains(column),
+                            "Lookup table %s key column %s is not a regular column of %s",
+                            lookupTableName, keyColumn, tableName);
+                    create.addPartitionKey(keyColumn, column.getType());
+                }
+                table.getClusteringColumns().forEach(c -> create.addClusteringColumn(c.getName(), c.getType()));
+                table.getColumns().stream()
+                        .filter(c -> !table.getPrimaryKey().contains(c) && !keyColumns.contains(c.getName()))
+                        .forEach(c -> create.addColumn(c.getName(), c.getType()));
+
+                String cql = create.buildInternal();
+                log.info("Executing CQL:\n{}", cql);
+                cassandra.getSession().execute(cql);
+
+            } else {
+                log.info("Table {}.{} already found, skipping creation", keyspace, lookupTableName);
+            }
+        }
+    }
+
     /**
      * Truncates all the tables and resets database back to empty state
      * For testing support only
@@ -150,15 +229,24 @@ public class CassandraSchemaInstaller {
      *
      * otherwise wil get rejected
      */
+    @Override
     public void initForTesting() {
 
         String testMode = System.getenv("TEST_MODE");
         if ("true".equals(testMode)) {
             log.debug("Truncating DB to reset to empty state for testing");
 
-            cassandra.getSession().execute("TRUNCATE " + TABLE_RESTAURANT);
-            cassandra.getSession().execute("TRUNCATE " + TABLE_TENANT_USER);
-            cassandra.getSession().execute("TRUNCATE " + TABLE_TENANT);
+            cassandra.execute(QueryBuilder.truncate(TABLE_RESTAURANT));
+            restaurantDao.getLookupTables().keySet()
+                    .forEach(lookupTableName -> cassandra.execute(QueryBuilder.truncate(lookupTableName)));
+            cassandra.execute(QueryBuilder.truncate(TABLE_TENANT_USER));
+            cassandra.execute(QueryBuilder.truncate(TABLE_TENANT));
+
+            // truncation bypasses the DAOs, so nothing got invalidated
+            tenantDao.invalidateCache();
+            authenticationCache.invalidateAll();
+            failedLoginTracker.reset();
+            tokenService.reset();
 
             // add any base data that is mandatory
             initDatabase();
@@ -1,37 +1,70 @@
 package com.github.jacek99.springbootcucumber.cassandra;
 
 import com.datastax.driver.core.Cluster;
-import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
 import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.PerHostPercentileTracker;
+import com.datastax.driver.core.PoolingOptions;
 import com.datastax.driver.core.QueryOptions;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.SchemaChangeListenerBase;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.SocketOptions;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
 import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.NoSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.PercentileSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
 import com.datastax.driver.core.schemabuilder.CreateKeyspace;
 import com.datastax.driver.core.schemabuilder.SchemaBuilder;
 import com.datastax.driver.mapping.MappingManager;
 import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.exception.ServiceUnavailableException;
 import com.google.common.collect.ImmutableMap;
 import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.env.Environment;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 /**
  * Provides Cassandra connectivity
  *
+ * All the statements go through the circuit breaker, so they fail fast while Cassandra is unavailable
+ *
  * @author Jacek Furmankiewicz
  */
 @Component
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
 @Slf4j
-public class CassandraService {
+public class CassandraService implements AdminStatistics {
 
     @Autowired
     private AppConfig config;
+    @Autowired
+    private QueryLatencyTracker queryLog;
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+    @Autowired
+    private ConsistencyPolicy consistencyPolicy;
 
     @Getter
     private Cluster cluster;
@@ -40,21 +73,223 @@ public class CassandraService {
     @Getter
     private MappingManager mappingManager;
 
+    // prepared statements registry, per table
+    private final ConcurrentMap<String, TableStatements> tableStatements = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void init() {
+        AppConfig.CassandraConfig cassandra = config.getCassandra();
+
         // connect to DB
-        log.info("Connecting to Cassandra {}:{}", config.getCassandra().getHost(), config.getCassandra().getPort());
+        log.info("Connecting to Cassandra {}:{}, consistency {}, compression {}, token aware {}",
+                cassandra.getHost(), cassandra.getPort(), cassandra.getConsistencyLevel(),
+                cassandra.getCompression(), cassandra.isTokenAware());
 
-        QueryOptions queryOptions = new QueryOptions().setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        QueryOptions queryOptions = new QueryOptions()
+                .setConsistencyLevel(cassandra.getConsistencyLevel())
+                .setSerialConsistencyLevel(cassandra.getSerialConsistencyLevel())
+                .setFetchSize(cassandra.getFetchSize())
+                // only the statements explicitly marked as idempotent (reads) get executed speculatively
+                .setDefaultIdempotence(false);
+
+        AppConfig.SpeculativeExecutionConfig speculative = cassandra.getSpeculativeExecution();
+        PerHostPercentileTracker latencyTracker = speculative.isEnabled() && speculative.getPercentile() > 0 ?
+                PerHostPercentileTracker.builder(cassandra.getSocket().getReadTimeoutMillis()).build() : null;
 
         cluster = Cluster.builder()
-                .addContactPointsWithPorts(new InetSocketAddress(config.getCassandra().getHost(),
-                        config.getCassandra().getPort()))
+                .addContactPointsWithPorts(new InetSocketAddress(cassandra.getHost(), cassandra.getPort()))
                 .withQueryOptions(queryOptions)
+                .withPoolingOptions(createPoolingOptions(cassandra.getPooling()))
+                .withSocketOptions(createSocketOptions(cassandra.getSocket()))
+                .withCompression(cassandra.getCompression())
+                .withLoadBalancingPolicy(createLoadBalancingPolicy(cassandra))
+                .withSpeculativeExecutionPolicy(createSpeculativeExecutionPolicy(speculative, latencyTracker))
                 .build();
+        if (latencyTracker != null) {
+            cluster.register(latencyTracker);
+        }
+        if (queryLog.isEnabled()) {
+            cluster.register(queryLog);
+        }
 
         session  = connectToKeyspace();
         mappingManager = new MappingManager(session);
+
+        // straight to the session, bypassing the circuit breaker
+        AppConfig.CircuitBreakerConfig circuitBreakerConfig = cassandra.getCircuitBreaker();
+        circuitBreaker.setProbe(() -> session.execute(new SimpleStatement(circuitBreakerConfig.getProbeQuery())
+                .setReadTimeoutMillis(circuitBreakerConfig.getProbeTimeoutMillis())
+                .setIdempotent(true)));
+
+        // any schema change invalidates the prepared statements of the affected table
+        cluster.register(new SchemaChangeListenerBase() {
+            @Override
+            public void onTableAdded(TableMetadata table) {
+                evictTableStatements(table);
+            }
+
+            @Override
+            public void onTableRemoved(TableMetadata table) {
+                evictTableStatements(table);
+            }
+
+            @Override
+            public void onTableChanged(TableMetadata current, TableMetadata previous) {
+                evictTableStatements(current);
+            }
+        });
+    }
+
+    private PoolingOptions createPoolingOptions(AppConfig.CassandraPoolingConfig pooling) {
+        return new PoolingOptions()
+                .setConnectionsPerHost(HostDistance.LOCAL,
+                        pooling.getCoreConnectionsPerHost(), pooling.getMaxConnectionsPerHost())
+                .setConnectionsPerHost(HostDistance.REMOTE,
+                        pooling.getRemoteCoreConnectionsPerHost(), pooling.getRemoteMaxConnectionsPerHost())
+                .setMaxRequestsPerConnection(HostDistance.LOCAL, pooling.getMaxRequestsPerConnection())
+                .setMaxRequestsPerConnection(HostDistance.REMOTE, pooling.getRemoteMaxRequestsPerConnection())
+                .setNewConnectionThreshold(HostDistance.LOCAL, pooling.getNewConnectionThreshold())
+                .setPoolTimeoutMillis(pooling.getPoolTimeoutMillis())
+                .setMaxQueueSize(pooling.getMaxQueueSize())
+                .setHeartbeatIntervalSeconds(pooling.getHeartbeatIntervalSeconds())
+                .setIdleTimeoutSeconds(pooling.getIdleTimeoutSeconds());
+    }
+
+    private SocketOptions createSocketOptions(AppConfig.CassandraSocketConfig socket) {
+        return new SocketOptions()
+                .setConnectTimeoutMillis(socket.getConnectTimeoutMillis())
+                .setReadTimeoutMillis(socket.getReadTimeoutMillis())
+                .setTcpNoDelay(socket.isTcpNoDelay())
+                .setKeepAlive(socket.isKeepAlive());
+    }
+
+    private LoadBalancingPolicy createLoadBalancingPolicy(AppConfig.CassandraConfig cassandra) {
+        DCAwareRoundRobinPolicy.Builder dcAware = DCAwareRoundRobinPolicy.builder();
+        if (StringUtils.isNotEmpty(cassandra.getLocalDatacenter())) {
+            dcAware.withLocalDc(cassandra.getLocalDatacenter());
+        }
+        return cassandra.isTokenAware() ? new TokenAwarePolicy(dcAware.build()) : dcAware.build();
+    }
+
+    private SpeculativeExecutionPolicy createSpeculativeExecutionPolicy(AppConfig.SpeculativeExecutionConfig speculative,
+                                                                        PerHostPercentileTracker latencyTracker) {
+        if (!speculative.isEnabled()) {
+            return NoSpeculativeExecutionPolicy.INSTANCE;
+        } else if (latencyTracker != null) {
+            log.info("Speculative execution of reads after the p{} latency of the node, up to {} executions",
+                    speculative.getPercentile(), speculative.getMaxExecutions());
+            return new PercentileSpeculativeExecutionPolicy(latencyTracker, speculative.getPercentile(),
+                    speculative.getMaxExecutions());
+        } else {
+            log.info("Speculative execution of reads after {} ms, up to {} executions",
+                    speculative.getDelayMillis(), speculative.getMaxExecutions());
+            return new ConstantSpeculativeExecutionPolicy(speculative.getDelayMillis(), speculative.getMaxExecutions());
+        }
+    }
+
+    /**
+     * Returns the prepared statements for a table in the current keyspace,
+     * preparing them on first use (which goes to Cassandra, so it counts towards the circuit breaker)
+     *
+     * @throws ServiceUnavailableException if they need to be prepared and the circuit breaker is open
+     */
+    public TableStatements getTableStatements(String tableName) {
+        TableStatements statements = tableStatements.get(tableName);
+        if (statements != null) {
+            return statements;
+        }
+
+        circuitBreaker.checkClosed();
+        try {
+            return tableStatements.computeIfAbsent(tableName, name -> {
+                TableMetadata meta = cluster.getMetadata().getKeyspace(config.getCassandra().getKeyspace())
+                        .getTable(name);
+                if (meta == null) {
+                    throw new IllegalStateException("Table " + name + " does not exist");
+                }
+                return TableStatements.prepare(session, meta, consistencyPolicy);
+            });
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            throw e;
+        }
+    }
+
+    private void evictTableStatements(TableMetadata table) {
+        if (table.getKeyspace().getName().equals(config.getCassandra().getKeyspace()) &&
+                tableStatements.remove(table.getName()) != null) {
+            log.info("Schema of table {} changed, statements will be prepared again", table.getName());
+        }
+    }
+
+    /**
+     * Single point through which all DAO queries get executed
+     *
+     * @throws ServiceUnavailableException if the circuit breaker is open
+     */
+    public ResultSet execute(Statement statement) {
+        circuitBreaker.checkClosed();
+        boolean traced = queryLog.sampleTracing(statement);
+        ResultSet results;
+        try {
+            results = session.execute(statement);
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(e);
+            throw e;
+        }
+        circuitBreaker.onSuccess();
+        if (traced) {
+            queryLog.traced(statement, results.getExecutionInfo());
+        }
+        return results;
+    }
+
+    /**
+     * Non-blocking execution, the future completes on a driver I/O thread.
+     * Fails right away with ServiceUnavailableException if the circuit breaker is open
+     */
+    public CompletableFuture<ResultSet> executeAsync(Statement statement) {
+        try {
+            circuitBreaker.checkClosed();
+        } catch (ServiceUnavailableException e) {
+            return CompletableFutures.failed(e);
+        }
+        boolean traced = queryLog.sampleTracing(statement);
+        CompletableFuture<ResultSet> results = CompletableFutures.fromListenable(session.executeAsync(statement))
+                .whenComplete((rs, e) -> {
+                    if (e == null) {
+                        circuitBreaker.onSuccess();
+                    } else {
+                        circuitBreaker.onFailure(CompletableFutures.unwrap(e));
+                    }
+                });
+        return traced ? results.thenApply(rs -> {
+            queryLog.traced(statement, rs.getExecutionInfo());
+            return rs;
+        }) : results;
+    }
+
+    @Override
+    public String getName() {
+        return "cassandra";
+    }
+
+    /**
+     * Connection pool state of every node, to see if the pooling config keeps up with the load
+     */
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Session.State state = session.getState();
+        for (Host host : state.getConnectedHosts()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("datacenter", host.getDatacenter());
+            values.put("openConnections", state.getOpenConnections(host));
+            values.put("trashedConnections", state.getTrashedConnections(host));
+            values.put("inFlightQueries", state.getInFlightQueries(host));
+            result.put(host.getSocketAddress().toString(), values);
+        }
+        return result;
     }
 
     @PreDestroy
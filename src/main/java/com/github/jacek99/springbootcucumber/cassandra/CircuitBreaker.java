@@ -0,0 +1,187 @@
+package com.github.jacek99.springbootcucumber.cassandra;
+
+import com.datastax.driver.core.exceptions.BootstrappingException;
+import com.datastax.driver.core.exceptions.BusyPoolException;
+import com.datastax.driver.core.exceptions.ConnectionException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.exception.ServiceUnavailableException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fails Cassandra statements fast while the cluster is unavailable, instead of every one of them
+ * tying up a request thread until the driver times out.
+ *
+ * Opens after a number of consecutive failures that mean Cassandra itself is unavailable (no hosts,
+ * timeouts, not enough replicas, overloaded), errors specific to a statement never count.
+ * While open, a probe statement runs in the background every so often and the first one to succeed closes it
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
+@Slf4j
+public class CircuitBreaker implements AdminStatistics {
+
+    public enum State {CLOSED, OPEN}
+
+    @Autowired
+    private AppConfig config;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cassandra-probe");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private boolean enabled;
+    private int failureThreshold;
+    private Runnable probe;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private ScheduledFuture<?> probing;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong probesFailed = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AppConfig.CircuitBreakerConfig circuitBreaker = config.getCassandra().getCircuitBreaker();
+        enabled = circuitBreaker.isEnabled();
+        failureThreshold = circuitBreaker.getFailureThreshold();
+        log.info("Circuit breaker {}, opens after {} consecutive failures, probes every {} ms",
+                enabled ? "enabled" : "disabled", failureThreshold, circuitBreaker.getProbeIntervalMillis());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @param probe executes the probe statement, throws if it fails
+     */
+    public void setProbe(@NonNull Runnable probe) {
+        this.probe = probe;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * To be called before every statement
+     *
+     * @throws ServiceUnavailableException if open
+     */
+    public void checkClosed() {
+        if (state == State.OPEN) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Cassandra is unavailable, try again later");
+        }
+    }
+
+    public void onSuccess() {
+        // read first, every statement writing the same counter would contend on it for nothing
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    public void onFailure(Throwable error) {
+        if (enabled && isUnavailable(error) && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(error);
+        }
+    }
+
+    private synchronized void open(Throwable cause) {
+        if (state == State.OPEN) {
+            return;
+        }
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        opened.incrementAndGet();
+        log.error("Circuit breaker open after {} consecutive failures, last one: {}", failureThreshold, cause.toString());
+
+        int interval = config.getCassandra().getCircuitBreaker().getProbeIntervalMillis();
+        probing = scheduler.scheduleWithFixedDelay(this::probe, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void probe() {
+        try {
+            probe.run();
+        } catch (RuntimeException e) {
+            probesFailed.incrementAndGet();
+            log.warn("Cassandra probe failed: {}", e.toString());
+            return;
+        }
+        close();
+    }
+
+    private synchronized void close() {
+        consecutiveFailures.set(0);
+        state = State.CLOSED;
+        probing.cancel(false);
+        log.info("Circuit breaker closed after {} ms", System.currentTimeMillis() - openedAt);
+    }
+
+    /**
+     * True if the error means Cassandra is unavailable (including the circuit breaker being open),
+     * rather than there being something wrong with the statement
+     */
+    public static boolean isUnavailable(Throwable error) {
+        return error instanceof ServiceUnavailableException ||
+                error instanceof NoHostAvailableException ||
+                // including the client side timeouts
+                error instanceof ConnectionException ||
+                error instanceof BusyPoolException ||
+                error instanceof UnavailableException ||
+                error instanceof ReadTimeoutException ||
+                error instanceof WriteTimeoutException ||
+                error instanceof OverloadedException ||
+                error instanceof BootstrappingException;
+    }
+
+    @Override
+    public String getName() {
+        return "circuitBreaker";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        State current = state;
+        result.put("enabled", enabled);
+        result.put("state", current);
+        result.put("openMillis", current == State.OPEN ? System.currentTimeMillis() - openedAt : 0);
+        result.put("consecutiveFailures", consecutiveFailures.get());
+        result.put("opened", opened.get());
+        result.put("rejected", rejected.sum());
+        result.put("probesFailed", probesFailed.get());
+        return result;
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.jacek99.springbootcucumber.cassandra;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.policies.DefaultRetryPolicy;
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.google.common.base.Preconditions;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * The consistency level of every operation type of every table: the per table override if there is one,
+ * then the per operation type one, then the default consistency level.
+ *
+ * Optionally, reads failing for lack of replicas get retried once at a lower level (LOCAL_ONE / ONE).
+ * Only the plain reads ever are, never the writes nor the reads done as part of a write
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
+@Slf4j
+public class ConsistencyPolicy implements AdminStatistics {
+
+    @Autowired
+    private AppConfig config;
+
+    private RetryPolicy readRetryPolicy;
+    private final LongAdder downgradedReads = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        AppConfig.CassandraConfig cassandra = config.getCassandra();
+        cassandra.getConsistencyLevels().forEach(this::validate);
+        cassandra.getTableConsistencyLevels().values().forEach(levels -> levels.forEach(this::validate));
+
+        readRetryPolicy = cassandra.isDowngradingRetry() ? new DowngradingReadRetryPolicy() : DefaultRetryPolicy.INSTANCE;
+        log.info("Consistency levels per operation type {}, per table {}, downgrading retry of reads {}",
+                cassandra.getConsistencyLevels(), cassandra.getTableConsistencyLevels(),
+                cassandra.isDowngradingRetry() ? "enabled" : "disabled");
+    }
+
+    private void validate(OperationType operation, ConsistencyLevel level) {
+        Preconditions.checkState(!level.isSerial(), "%s cannot be used for %s, only for the paxos phase of " +
+                "the conditional writes (serialConsistencyLevel)", level, operation);
+        Preconditions.checkState(level != ConsistencyLevel.ANY ||
+                        operation == OperationType.WRITE || operation == OperationType.CONDITIONAL_WRITE,
+                "%s cannot be used for %s, writes only", level, operation);
+    }
+
+    public ConsistencyLevel getConsistencyLevel(String tableName, OperationType operation) {
+        AppConfig.CassandraConfig cassandra = config.getCassandra();
+        Map<OperationType, ConsistencyLevel> table = cassandra.getTableConsistencyLevels().get(tableName);
+        ConsistencyLevel level = table == null ? null : table.get(operation);
+        if (level == null) {
+            level = cassandra.getConsistencyLevels().get(operation);
+        }
+        return level == null ? cassandra.getConsistencyLevel() : level;
+    }
+
+    /**
+     * The consistency level of every operation type of a table
+     */
+    public Map<OperationType, ConsistencyLevel> getConsistencyLevels(String tableName) {
+        Map<OperationType, ConsistencyLevel> levels = new EnumMap<>(OperationType.class);
+        for (OperationType operation : OperationType.values()) {
+            levels.put(operation, getConsistencyLevel(tableName, operation));
+        }
+        return levels;
+    }
+
+    /**
+     * For the plain reads only, the rest uses the cluster wide (default) retry policy
+     */
+    public RetryPolicy getReadRetryPolicy() {
+        return readRetryPolicy;
+    }
+
+    @Override
+    public String getName() {
+        return "consistency";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        AppConfig.CassandraConfig cassandra = config.getCassandra();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("default", cassandra.getConsistencyLevel());
+        result.put("operations", cassandra.getConsistencyLevels());
+        result.put("tables", cassandra.getTableConsistencyLevels());
+        result.put("downgradingRetry", cassandra.isDowngradingRetry());
+        result.put("downgradedReads", downgradedReads.sum());
+        return result;
+    }
+
+    /**
+     * Retries a read once at LOCAL_ONE (ONE if the level was not DC local) if it failed for lack
+     * of replicas, as long as at least one of them is alive / responded. Anything else as the default policy
+     */
+    private class DowngradingReadRetryPolicy implements RetryPolicy {
+
+        @Override
+        public RetryDecision onReadTimeout(Statement statement, ConsistencyLevel cl, int requiredResponses,
+                                           int receivedResponses, boolean dataRetrieved, int nbRetry) {
+            if (nbRetry == 0 && receivedResponses > 0 && receivedResponses < requiredResponses && canDowngrade(cl)) {
+                return downgrade(cl);
+            }
+            return DefaultRetryPolicy.INSTANCE.onReadTimeout(statement, cl, requiredResponses, receivedResponses,
+                    dataRetrieved, nbRetry);
+        }
+
+        @Override
+        public RetryDecision onWriteTimeout(Statement statement, ConsistencyLevel cl, WriteType writeType,
+                                            int requiredAcks, int receivedAcks, int nbRetry) {
+            return DefaultRetryPolicy.INSTANCE.onWriteTimeout(statement, cl, writeType, requiredAcks, receivedAcks,
+                    nbRetry);
+        }
+
+        @Override
+        public RetryDecision onUnavailable(Statement statement, ConsistencyLevel cl, int requiredReplica,
+                                           int aliveReplica, int nbRetry) {
+            if (nbRetry == 0 && aliveReplica > 0 && canDowngrade(cl)) {
+                return downgrade(cl);
+            }
+            return DefaultRetryPolicy.INSTANCE.onUnavailable(statement, cl, requiredReplica, aliveReplica, nbRetry);
+        }
+
+        @Override
+        public RetryDecision onRequestError(Statement statement, ConsistencyLevel cl, DriverException e, int nbRetry) {
+            return DefaultRetryPolicy.INSTANCE.onRequestError(statement, cl, e, nbRetry);
+        }
+
+        private boolean canDowngrade(ConsistencyLevel cl) {
+            return cl != ConsistencyLevel.ONE && cl != ConsistencyLevel.LOCAL_ONE && !cl.isSerial();
+        }
+
+        private RetryDecision downgrade(ConsistencyLevel cl) {
+            downgradedReads.increment();
+            ConsistencyLevel downgraded = cl.isDCLocal() ? ConsistencyLevel.LOCAL_ONE : ConsistencyLevel.ONE;
+            log.debug("Retrying a read at {} instead of {}", downgraded, cl);
+            return RetryDecision.retry(downgraded);
+        }
+
+        @Override
+        public void init(Cluster cluster) {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.jacek99.springbootcucumber.cassandra;
+
+/**
+ * What a statement does, as far as the consistency level it gets executed with is concerned
+ *
+ * @author Jacek Furmankiewicz
+ */
+public enum OperationType {
+    // a single row by its full primary key, e.g. findById() and the auth lookups
+    POINT_READ,
+    // whole partitions / tables, e.g. findAll(), paging, lookup table reads
+    SCAN,
+    // plain writes and deletes, including the lookup table batches and the reads done as part of a write
+    WRITE,
+    // lightweight transactions, the level of their commit phase (paxos always uses the serial consistency level)
+    CONDITIONAL_WRITE
+}
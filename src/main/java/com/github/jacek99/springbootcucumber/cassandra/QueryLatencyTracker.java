@@ -0,0 +1,366 @@
+package com.github.jacek99.springbootcucumber.cassandra;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.LatencyTracker;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Statement;
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.ThreadLocals;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.metrics.LatencyStats;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.RateLimiter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency of every statement the driver executes, per table and operation, so that a latency spike
+ * can be pinned down to the table (and so the DAO call) behind it. Every execution counts separately,
+ * i.e. retries and speculative executions too.
+ *
+ * Also keeps the slowest statements seen so far, logs the ones above the configured threshold
+ * and turns driver tracing on for a sampled fraction of the statements (only the trace IDs are kept,
+ * the traces themselves are in the system_traces keyspace).
+ *
+ * Statements are only ever shown as CQL: bound values are never part of it and any literals inlined
+ * into a non-prepared statement get replaced with ?, since either may hold tenant data
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
+@Slf4j
+public class QueryLatencyTracker implements LatencyTracker, AdminStatistics {
+
+    private static final String UNKNOWN = "unknown";
+    private static final String MULTIPLE = "multiple";
+
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(?:FROM|INTO|UPDATE|TRUNCATE|TABLE)\\s+(?:IF\\s+(?:NOT\\s+)?EXISTS\\s+)?(?:\"?\\w+\"?\\.)?\"?(\\w+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONDITION = Pattern.compile("\\sIF\\s", Pattern.CASE_INSENSITIVE);
+    // string, blob, UUID and number literals
+    private static final Pattern LITERALS = Pattern.compile("'(?:[^']|'')*'|\\b0x[0-9a-fA-F]*\\b" +
+            "|\\b[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}\\b" +
+            "|(?<![\\w.])-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?\\b");
+    private static final Set<String> CONDITIONAL_OPERATIONS = ImmutableSet.of("insert", "update", "delete");
+
+    private static final Comparator<SlowStatement> BY_LATENCY = Comparator.comparingLong(s -> s.latencyNanos);
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double MICROS_PER_MILLI = 1_000.0;
+
+    @Autowired
+    private AppConfig config;
+
+    private boolean enabled;
+    private long slowThresholdNanos;
+    private int topSize;
+    private RateLimiter slowLogLimiter;
+    private volatile double traceSampleRate;
+
+    // per prepared statement query, computed once (prepared statements are few and long lived)
+    private final ConcurrentMap<String, StatementType> preparedTypes = new ConcurrentHashMap<>();
+    // table -> operation -> latencies
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyStats>> tables = new ConcurrentHashMap<>();
+
+    private final LongAdder slowCount = new LongAdder();
+    private final LongAdder slowLogsSuppressed = new LongAdder();
+
+    // min-heap, so the fastest of the slowest is the one to go once it is full
+    private final PriorityQueue<SlowStatement> slowest =
+            new PriorityQueue<>(BY_LATENCY);
+    // latency a statement needs to beat to get into the full list, checked without locking
+    private volatile long slowestFloorNanos;
+
+    private final Deque<Trace> traces = new ArrayDeque<>();
+
+    @PostConstruct
+    public void init() {
+        AppConfig.QueryLogConfig queryLog = config.getCassandra().getQueryLog();
+        enabled = queryLog.isEnabled();
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(queryLog.getSlowThresholdMillis());
+        topSize = queryLog.getTopSize();
+        slowLogLimiter = RateLimiter.create(queryLog.getMaxSlowLogsPerSecond());
+        traceSampleRate = queryLog.getTraceSampleRate();
+        log.info("Query latency tracking {}, slow statement threshold {} ms, tracing {} of statements",
+                enabled ? "enabled" : "disabled", queryLog.getSlowThresholdMillis(), traceSampleRate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void update(Host host, Statement statement, Exception exception, long newLatencyNanos) {
+        StatementType type = getType(statement);
+        type.stats.record(newLatencyNanos, exception == null);
+
+        if (slowThresholdNanos > 0 && newLatencyNanos >= slowThresholdNanos) {
+            slowCount.increment();
+            if (slowLogLimiter.tryAcquire()) {
+                log.warn("Slow statement on {} took {} ms: {} {}{}, {}", host.getSocketAddress(),
+                        newLatencyNanos / NANOS_PER_MILLI, type.operation, type.table,
+                        exception == null ? "" : " failed with " + exception.getClass().getSimpleName(), type.cql);
+            } else {
+                slowLogsSuppressed.increment();
+            }
+        }
+
+        if (topSize > 0 && newLatencyNanos > slowestFloorNanos) {
+            addSlowest(new SlowStatement(System.currentTimeMillis(), newLatencyNanos, type.table, type.operation,
+                    type.cql, host.getSocketAddress().toString(),
+                    exception == null ? null : exception.getClass().getSimpleName()));
+        }
+    }
+
+    private synchronized void addSlowest(SlowStatement statement) {
+        slowest.add(statement);
+        if (slowest.size() > topSize) {
+            slowest.poll();
+        }
+        if (slowest.size() == topSize) {
+            slowestFloorNanos = slowest.peek().latencyNanos;
+        }
+    }
+
+    /**
+     * Turns tracing on for the statement if it got sampled
+     *
+     * @return true if it is to be traced, i.e. traced() is to be called with its results
+     */
+    public boolean sampleTracing(Statement statement) {
+        double rate = traceSampleRate;
+        if (rate > 0 && !statement.isTracing() && ThreadLocalRandom.current().nextDouble() < rate) {
+            statement.enableTracing();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the trace ID of a sampled statement, the most recent ones only
+     */
+    public void traced(Statement statement, ExecutionInfo executionInfo) {
+        StatementType type = getType(statement);
+        Trace trace = new Trace(System.currentTimeMillis(), executionInfo.getQueryTrace().getTraceId().toString(),
+                type.table, type.operation, type.cql, executionInfo.getQueriedHost().getSocketAddress().toString());
+        synchronized (traces) {
+            traces.addFirst(trace);
+            while (traces.size() > Math.max(topSize, 1)) {
+                traces.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Fraction of the statements to be executed with tracing on, until the next restart
+     */
+    public void setTraceSampleRate(double traceSampleRate) {
+        Preconditions.checkArgument(traceSampleRate >= 0 && traceSampleRate <= 1,
+                "Trace sample rate must be between 0 and 1");
+        log.info("Tracing {} of statements", traceSampleRate);
+        this.traceSampleRate = traceSampleRate;
+    }
+
+    /**
+     * Discards everything recorded so far
+     */
+    public void reset() {
+        tables.values().forEach(operations -> operations.values().forEach(LatencyStats::reset));
+        slowCount.reset();
+        slowLogsSuppressed.reset();
+        synchronized (this) {
+            slowest.clear();
+            slowestFloorNanos = 0;
+        }
+        synchronized (traces) {
+            traces.clear();
+        }
+    }
+
+    private StatementType getType(Statement statement) {
+        if (statement instanceof BoundStatement) {
+            String query = ((BoundStatement) statement).preparedStatement().getQueryString();
+            StatementType type = preparedTypes.get(query);
+            return type != null ? type : preparedTypes.computeIfAbsent(query, this::parse);
+        } else if (statement instanceof BatchStatement) {
+            BatchStatement batch = (BatchStatement) statement;
+            StatementType first = null;
+            String table = UNKNOWN;
+            for (Statement child : batch.getStatements()) {
+                StatementType type = getType(child);
+                if (first == null) {
+                    first = type;
+                    table = type.table;
+                } else if (!table.equals(type.table)) {
+                    table = MULTIPLE;
+                }
+            }
+            return new StatementType(table, "batch", ThreadLocals.STRINGBUILDER.get()
+                    .append("BATCH of ").append(batch.size())
+                    .append(first == null ? "" : ": ").append(first == null ? "" : first.cql)
+                    .toString(), getStats(table, "batch"));
+        } else if (statement instanceof RegularStatement) {
+            // not cached, since every one may have different values inlined
+            return parse(((RegularStatement) statement).getQueryString());
+        } else {
+            return new StatementType(UNKNOWN, UNKNOWN, statement.getClass().getSimpleName(),
+                    getStats(UNKNOWN, UNKNOWN));
+        }
+    }
+
+    private StatementType parse(String query) {
+        String cql = LITERALS.matcher(query.trim()).replaceAll("?");
+
+        String operation = StringUtils.substringBefore(cql, " ").toLowerCase();
+        if (CONDITIONAL_OPERATIONS.contains(operation) && CONDITION.matcher(cql).find()) {
+            // lightweight transactions are a lot slower, no point mixing them up with the regular writes
+            operation += "_if";
+        }
+        Matcher table = TABLE.matcher(cql);
+        String tableName = table.find() ? table.group(1) : UNKNOWN;
+
+        return new StatementType(tableName, operation, cql, getStats(tableName, operation));
+    }
+
+    private LatencyStats getStats(String table, String operation) {
+        return tables.computeIfAbsent(table, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operation, o -> new LatencyStats());
+    }
+
+    @Override
+    public void onRegister(Cluster cluster) {}
+
+    @Override
+    public void onUnregister(Cluster cluster) {}
+
+    @Override
+    public String getName() {
+        return "queries";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("slowThresholdMillis", slowThresholdNanos / NANOS_PER_MILLI);
+        result.put("slowStatements", slowCount.sum());
+        result.put("slowLogsSuppressed", slowLogsSuppressed.sum());
+        result.put("traceSampleRate", traceSampleRate);
+        result.put("tables", getTableStatistics());
+        result.put("slowest", getSlowest());
+        synchronized (traces) {
+            result.put("traces", new ArrayList<>(traces));
+        }
+        return result;
+    }
+
+    private Map<String, Object> getTableStatistics() {
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, LatencyStats>> table : tables.entrySet()) {
+            Map<String, Object> operations = new TreeMap<>();
+            for (Map.Entry<String, LatencyStats> operation : table.getValue().entrySet()) {
+                LatencyStats stats = operation.getValue();
+                long count = stats.getCount();
+                if (count == 0) {
+                    continue;
+                }
+
+                Histogram latency = stats.getLatency();
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("count", count);
+                values.put("errors", stats.getErrors());
+                values.put("averageMillis", stats.getTotalNanos() / NANOS_PER_MILLI / count);
+                values.put("p50Millis", latency.getValueAtPercentile(50.0) / MICROS_PER_MILLI);
+                values.put("p99Millis", latency.getValueAtPercentile(99.0) / MICROS_PER_MILLI);
+                values.put("p999Millis", latency.getValueAtPercentile(99.9) / MICROS_PER_MILLI);
+                values.put("maxMillis", latency.getMaxValue() / MICROS_PER_MILLI);
+                operations.put(operation.getKey(), values);
+            }
+            if (!operations.isEmpty()) {
+                result.put(table.getKey(), operations);
+            }
+        }
+        return result;
+    }
+
+    // slowest first
+    private synchronized List<SlowStatement> getSlowest() {
+        List<SlowStatement> result = new ArrayList<>(slowest);
+        result.sort(BY_LATENCY.reversed());
+        return result;
+    }
+
+    /**
+     * What a statement is shown as, along with the latencies of its table and operation
+     */
+    @AllArgsConstructor
+    private static class StatementType {
+        private final String table;
+        private final String operation;
+        private final String cql;
+        private final LatencyStats stats;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class SlowStatement {
+        private final long timestamp;
+        @Getter(AccessLevel.NONE)
+        private final long latencyNanos;
+        private final String table;
+        private final String operation;
+        private final String cql;
+        private final String host;
+        // exception class name, if it failed
+        private final String error;
+
+        public double getLatencyMillis() {
+            return latencyNanos / NANOS_PER_MILLI;
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class Trace {
+        private final long timestamp;
+        // session_id in system_traces.sessions / events
+        private final String traceId;
+        private final String table;
+        private final String operation;
+        private final String cql;
+        private final String coordinator;
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.jacek99.springbootcucumber.cassandra;
+
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.querybuilder.Delete;
+import com.datastax.driver.core.querybuilder.Insert;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.datastax.driver.core.querybuilder.Update;
+import com.google.common.collect.ImmutableList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.gt;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.lte;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.token;
+
+/**
+ * The standard set of prepared statements for a single table,
+ * generated from the table metadata.
+ *
+ * Bind variables are always in primary key order (partition key columns first, then clustering columns),
+ * except for the insert / update statements which have all the columns in table metadata order
+ * (they are meant to be bound by column name) and the token range select, bound with the
+ * (exclusive) start and (inclusive) end token.
+ *
+ * The conditional (lightweight transaction) statements return the [applied] column,
+ * so ResultSet.wasApplied() tells if the write actually happened
+ *
+ * Only the selects and the partition delete are marked as idempotent, i.e. safe to be executed
+ * speculatively / retried (the partition delete is meant to be executed with a fixed timestamp).
+ * Lightweight transactions must never be (a second execution would see the first one's result)
+ *
+ * Every statement has the consistency level of its operation type for the table, as per the ConsistencyPolicy,
+ * the selects also its read retry policy. Anything bound from them inherits both
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+@Slf4j
+public class TableStatements {
+
+    private String tableName;
+    private List<String> partitionKey;
+    private List<String> primaryKey;
+    private Map<OperationType, ConsistencyLevel> consistencyLevels;
+
+    private PreparedStatement selectAll;
+    private PreparedStatement selectByPartition;
+    private PreparedStatement selectByKey;
+    private PreparedStatement selectByTokenRange;
+    private PreparedStatement insert;
+    private PreparedStatement delete;
+    private PreparedStatement deletePartition;
+
+    private PreparedStatement insertIfNotExists;
+    private PreparedStatement updateIfExists;
+    private PreparedStatement deleteIfExists;
+
+    /**
+     * Prepares all the statements for a table
+     */
+    static TableStatements prepare(Session session, TableMetadata table, ConsistencyPolicy consistencyPolicy) {
+        String name = table.getName();
+        List<String> partitionKey = toNames(table.getPartitionKey());
+        List<String> primaryKey = toNames(table.getPrimaryKey());
+
+        Select selectAll = QueryBuilder.select().all().from(name);
+
+        Select selectByPartition = QueryBuilder.select().all().from(name);
+        partitionKey.forEach(c -> selectByPartition.where(eq(c, bindMarker())));
+
+        Select selectByKey = QueryBuilder.select().all().from(name);
+        primaryKey.forEach(c -> selectByKey.where(eq(c, bindMarker())));
+
+        String partitionToken = token(partitionKey.toArray(new String[partitionKey.size()]));
+        Select selectByTokenRange = QueryBuilder.select().all().from(name);
+        selectByTokenRange.where(gt(partitionToken, bindMarker())).and(lte(partitionToken, bindMarker()));
+
+        Insert insert = QueryBuilder.insertInto(name);
+        table.getColumns().forEach(c -> insert.value(c.getName(), bindMarker()));
+
+        Delete delete = QueryBuilder.delete().from(name);
+        primaryKey.forEach(c -> delete.where(eq(c, bindMarker())));
+
+        Delete deletePartition = QueryBuilder.delete().from(name);
+        partitionKey.forEach(c -> deletePartition.where(eq(c, bindMarker())));
+
+        Insert insertIfNotExists = QueryBuilder.insertInto(name).ifNotExists();
+        table.getColumns().forEach(c -> insertIfNotExists.value(c.getName(), bindMarker()));
+
+        Update updateIfExists = QueryBuilder.update(name);
+        table.getColumns().stream()
+                .filter(c -> !primaryKey.contains(c.getName()))
+                .forEach(c -> updateIfExists.with(set(c.getName(), bindMarker())));
+        primaryKey.forEach(c -> updateIfExists.where(eq(c, bindMarker())));
+
+        Delete deleteIfExists = QueryBuilder.delete().from(name).ifExists();
+        primaryKey.forEach(c -> deleteIfExists.where(eq(c, bindMarker())));
+
+        Map<OperationType, ConsistencyLevel> levels = consistencyPolicy.getConsistencyLevels(name);
+        RetryPolicy readRetryPolicy = consistencyPolicy.getReadRetryPolicy();
+
+        log.info("Preparing statements for table {}, consistency levels {}", name, levels);
+        return new TableStatements(name, partitionKey, primaryKey, Collections.unmodifiableMap(levels),
+                prepareRead(session, selectAll, levels.get(OperationType.SCAN), readRetryPolicy),
+                prepareRead(session, selectByPartition, levels.get(OperationType.SCAN), readRetryPolicy),
+                prepareRead(session, selectByKey, levels.get(OperationType.POINT_READ), readRetryPolicy),
+                prepareRead(session, selectByTokenRange, levels.get(OperationType.SCAN), readRetryPolicy),
+                prepare(session, insert, levels.get(OperationType.WRITE)),
+                prepare(session, delete, levels.get(OperationType.WRITE)),
+                prepare(session, deletePartition, levels.get(OperationType.WRITE)).setIdempotent(true),
+                prepare(session, insertIfNotExists, levels.get(OperationType.CONDITIONAL_WRITE)),
+                prepare(session, updateIfExists.where().ifExists(), levels.get(OperationType.CONDITIONAL_WRITE)),
+                prepare(session, deleteIfExists, levels.get(OperationType.CONDITIONAL_WRITE)));
+    }
+
+    private static PreparedStatement prepare(Session session, RegularStatement statement, ConsistencyLevel level) {
+        log.debug("Preparing CQL: {}", statement);
+        return session.prepare(statement).setIdempotent(false).setConsistencyLevel(level);
+    }
+
+    private static PreparedStatement prepareRead(Session session, RegularStatement statement, ConsistencyLevel level,
+                                                 RetryPolicy retryPolicy) {
+        return prepare(session, statement, level).setIdempotent(true).setRetryPolicy(retryPolicy);
+    }
+
+    public ConsistencyLevel getConsistencyLevel(OperationType operation) {
+        return consistencyLevels.get(operation);
+    }
+
+    private static List<String> toNames(List<ColumnMetadata> columns) {
+        return ImmutableList.copyOf(columns.stream()
+                .map(ColumnMetadata::getName)
+                .collect(Collectors.toList()));
+    }
+}
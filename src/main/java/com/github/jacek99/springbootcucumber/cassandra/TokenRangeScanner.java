@@ -0,0 +1,243 @@
+package com.github.jacek99.springbootcucumber.cassandra;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.TokenRange;
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads a whole table by splitting the token ring into ranges, which get read in parallel
+ * (at most the configured number at a time). Every range gets read in full and sorted on its own as soon
+ * as it is done, once all are done they get k-way merged into the final order. The whole table still ends up
+ * in memory, iterate() streams through it a page at a time instead (but unsorted)
+ *
+ * The sorting and merging run on a small pool of their own, never on the driver I/O threads
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
+@Slf4j
+public class TokenRangeScanner {
+
+    @Autowired
+    private CassandraService cassandra;
+    @Autowired
+    private AppConfig config;
+
+    private ExecutorService sortExecutor;
+
+    @PostConstruct
+    public void init() {
+        int threads = config.getCassandra().getScan().getSortThreads() > 0 ?
+                config.getCassandra().getScan().getSortThreads() : Runtime.getRuntime().availableProcessors();
+        log.info("Token range scans sorted on {} threads", threads);
+
+        AtomicInteger counter = new AtomicInteger();
+        sortExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "token-range-sort-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        sortExecutor.shutdownNow();
+    }
+
+    /**
+     * Blocking equivalent of scanAsync()
+     */
+    public <T> List<T> scan(TableStatements table, BiConsumer<ResultSet, List<T>> reader,
+                            Comparator<? super T> order) {
+        return join(scanAsync(table, reader, order));
+    }
+
+    /**
+     * Reads the table one token range after another, in no particular order. While a range is being consumed
+     * the first page of the next one already gets fetched, so only a page or two are ever held in memory
+     * no matter how big the table is
+     */
+    public Iterator<ResultSet> iterate(TableStatements table) {
+        List<BoundStatement> ranges = bindRanges(table);
+
+        return new AbstractIterator<ResultSet>() {
+            private int index;
+            private CompletableFuture<ResultSet> next = cassandra.executeAsync(ranges.get(0));
+
+            @Override
+            protected ResultSet computeNext() {
+                if (index == ranges.size()) {
+                    return endOfData();
+                }
+                CompletableFuture<ResultSet> current = next;
+                index++;
+                next = index < ranges.size() ? cassandra.executeAsync(ranges.get(index)) : null;
+                return join(current);
+            }
+        };
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable error = CompletableFutures.unwrap(e);
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads all the rows of a table, in the requested order
+     *
+     * @param reader adds the rows already fetched in the result set to the list, must never fetch more
+     */
+    public <T> CompletableFuture<List<T>> scanAsync(TableStatements table, BiConsumer<ResultSet, List<T>> reader,
+                                                    Comparator<? super T> order) {
+        List<BoundStatement> ranges;
+        try {
+            ranges = bindRanges(table);
+        } catch (RuntimeException e) {
+            return CompletableFutures.failed(e);
+        }
+
+        AtomicReferenceArray<List<T>> results = new AtomicReferenceArray<>(ranges.size());
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+
+        // every worker reads one range after another, until there are none left
+        int concurrency = Math.min(config.getCassandra().getScan().getConcurrency(), ranges.size());
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = readRanges(ranges, results, next, failed, reader, order)
+                    .whenComplete((v, e) -> {
+                        if (e != null) {
+                            // no point reading any other ranges
+                            failed.set(true);
+                        }
+                    });
+        }
+
+        return CompletableFuture.allOf(workers).thenApplyAsync(v -> {
+            List<List<T>> sorted = new ArrayList<>(results.length());
+            for (int i = 0; i < results.length(); i++) {
+                sorted.add(results.get(i));
+            }
+            return merge(sorted, order);
+        }, sortExecutor);
+    }
+
+    private <T> CompletableFuture<Void> readRanges(List<BoundStatement> ranges, AtomicReferenceArray<List<T>> results,
+                                                   AtomicInteger next, AtomicBoolean failed,
+                                                   BiConsumer<ResultSet, List<T>> reader, Comparator<? super T> order) {
+        int index = next.getAndIncrement();
+        if (index >= ranges.size() || failed.get()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return cassandra.executeAsync(ranges.get(index))
+                .thenCompose(rows -> readAll(rows, new ArrayList<>(), reader))
+                .thenApplyAsync(rows -> {
+                    rows.sort(order);
+                    results.set(index, rows);
+                    return rows;
+                }, sortExecutor)
+                .thenCompose(rows -> readRanges(ranges, results, next, failed, reader, order));
+    }
+
+    // fetches the remaining pages one at a time, without ever blocking on the driver
+    private <T> CompletableFuture<List<T>> readAll(ResultSet results, List<T> rows,
+                                                   BiConsumer<ResultSet, List<T>> reader) {
+        reader.accept(results, rows);
+        if (results.isFullyFetched()) {
+            return CompletableFuture.completedFuture(rows);
+        } else {
+            return CompletableFutures.fromListenable(results.fetchMoreResults())
+                    .thenCompose(more -> readAll(more, rows, reader));
+        }
+    }
+
+    /**
+     * One select per token range, the ring split into at least the configured number of ranges
+     */
+    private List<BoundStatement> bindRanges(TableStatements table) {
+        List<TokenRange> ring = new ArrayList<>();
+        for (TokenRange range : cassandra.getCluster().getMetadata().getTokenRanges()) {
+            // a select can only cover a range that does not wrap around the end of the ring
+            ring.addAll(range.unwrap());
+        }
+        if (ring.isEmpty()) {
+            // no token metadata, just read it all at once
+            return Collections.singletonList(table.getSelectAll().bind());
+        }
+
+        int splits = config.getCassandra().getScan().getSplits();
+        int splitsPerRange = (splits + ring.size() - 1) / ring.size();
+
+        List<BoundStatement> ranges = new ArrayList<>(ring.size() * splitsPerRange);
+        for (TokenRange range : ring) {
+            for (TokenRange split : splitsPerRange > 1 ? range.splitEvenly(splitsPerRange) :
+                    Collections.singletonList(range)) {
+                ranges.add(table.getSelectByTokenRange().bind()
+                        .setToken(0, split.getStart())
+                        .setToken(1, split.getEnd()));
+            }
+        }
+        log.debug("Scanning table {} in {} token ranges", table.getTableName(), ranges.size());
+        return ranges;
+    }
+
+    /**
+     * K-way merge of sorted lists into a single sorted one
+     */
+    public static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order) {
+        int total = 0;
+        PriorityQueue<PeekingIterator<T>> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(a.peek(), b.peek()));
+        for (List<T> list : sorted) {
+            if (!list.isEmpty()) {
+                total += list.size();
+                heads.add(Iterators.peekingIterator(list.iterator()));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            PeekingIterator<T> head = heads.poll();
+            merged.add(head.next());
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.jacek99.springbootcucumber.controller;
+
+import com.github.jacek99.springbootcucumber.security.AccessToken;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Login REST resource, exchanges Basic auth credentials for a bearer token
+ * that can be used for all subsequent requests
+ * @author Jacek Furmankiewicz
+ */
+@RestController
+@RequestMapping(value = "/myapp/auth", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class AuthController {
+
+    @Autowired
+    private TokenService tokenService;
+
+    @RequestMapping(value = "/token", method = RequestMethod.POST, consumes = MediaType.ALL_VALUE)
+    public AccessToken issueToken(@AuthenticationPrincipal TenantToken tenantToken,
+                                  @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        // tokens cannot be renewed with another token, only with the actual credentials
+        if (!StringUtils.startsWithIgnoreCase(authorization, "Basic ")) {
+            throw new AccessDeniedException("Tokens can only be issued for Basic authentication");
+        }
+        return tokenService.issue(tenantToken);
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.jacek99.springbootcucumber.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.github.jacek99.springbootcucumber.bulk.BulkFormat;
+import com.github.jacek99.springbootcucumber.exception.ServiceUnavailableException;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes all the entities of a tenant out as a gzip compressed NDJSON / CSV file, one entity at a time
+ * as they get paged in from the DB, so memory use does not depend on the tenant size.
+ *
+ * The file gets written on the request thread instead of as a StreamingResponseBody, since a big export
+ * easily outlasts the async request timeout (and the network backpressure then throttles the DB reads).
+ * If it fails midway the gzip stream is left unterminated, so a truncated file can never pass for a complete one
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class BulkExports implements AdminStatistics {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private AppConfig config;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final CsvMapper csvMapper = new CsvMapper();
+    private Semaphore running;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        running = new Semaphore(config.getExports().getMaxConcurrent());
+    }
+
+    /**
+     * @param entities only read once there is room for another export
+     * @param name of the exported entities, for the file name
+     * @throws ServiceUnavailableException if too many exports are running already
+     */
+    public <E> void export(TenantToken tenantToken, Supplier<Iterator<E>> entities, Class<E> entityType,
+                           BulkFormat format, String name, HttpServletResponse response) throws IOException {
+        if (!running.tryAcquire()) {
+            throw new ServiceUnavailableException("Too many exports running already, try again later");
+        }
+        try {
+            long start = System.nanoTime();
+            // any DB error on the first page still gets a regular error response
+            Iterator<E> source = entities.get();
+
+            response.setContentType(format.getMediaType().toString());
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" +
+                    tenantToken.getTenantId() + "-" + name + "." + format.name().toLowerCase() + "\"");
+
+            long count = write(source, entityType, format, response.getOutputStream());
+            completed.incrementAndGet();
+            log.info("{}: Exported {} {} as {} in {} ms", tenantToken.getTenantId(), count, name, format,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        } finally {
+            running.release();
+        }
+    }
+
+    private <E> long write(Iterator<E> entities, Class<E> entityType, BulkFormat format,
+                           OutputStream out) throws IOException {
+        ExportStream gzip = new ExportStream(out, config.getExports().getCompressionLevel());
+        try {
+            long count = 0;
+            try (SequenceWriter writer = getWriter(format, entityType).writeValues(gzip)) {
+                while (entities.hasNext()) {
+                    writer.write(entities.next());
+                    count++;
+                    rows.incrementAndGet();
+                }
+            }
+            if (format == BulkFormat.NDJSON && count > 0) {
+                // the separator only goes between the values, but every line must be terminated
+                gzip.write('\n');
+            }
+            gzip.finish();
+            return count;
+        } catch (IOException | RuntimeException e) {
+            gzip.abort();
+            throw e;
+        }
+    }
+
+    private ObjectWriter getWriter(BulkFormat format, Class<?> entityType) {
+        ObjectWriter writer = format == BulkFormat.CSV ?
+                csvMapper.writerFor(entityType).with(csvMapper.schemaFor(entityType).withHeader()) :
+                objectMapper.writerFor(entityType).withRootValueSeparator("\n");
+        // flushing after every entity would send a network packet per entity,
+        // closing the writer must not finish the gzip stream
+        return writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public String getName() {
+        return "exports";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", config.getExports().getMaxConcurrent() - running.availablePermits());
+        result.put("completed", completed.get());
+        result.put("failed", failed.get());
+        result.put("rows", rows.get());
+        return result;
+    }
+
+    /**
+     * Gzip stream with a configurable level, that can be abandoned without writing the trailer
+     */
+    private static class ExportStream extends GZIPOutputStream {
+
+        ExportStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+
+        void abort() {
+            def.end();
+        }
+    }
+}
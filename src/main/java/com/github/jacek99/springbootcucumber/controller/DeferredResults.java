@@ -0,0 +1,31 @@
+package com.github.jacek99.springbootcucumber.controller;
+
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Bridges the async DAO API to Spring MVC async request processing,
+ * so that the request thread is released while waiting on Cassandra
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class DeferredResults {
+
+    /**
+     * Completes the deferred result when the future completes.
+     * Any failure is passed on unwrapped, so that the regular exception handlers
+     * map it to the same HTTP status as in the synchronous case
+     */
+    public static <T> DeferredResult<T> of(CompletableFuture<T> future) {
+        DeferredResult<T> result = new DeferredResult<>();
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.setResult(value);
+            } else {
+                result.setErrorResult(CompletableFutures.unwrap(error));
+            }
+        });
+        return result;
+    }
+}
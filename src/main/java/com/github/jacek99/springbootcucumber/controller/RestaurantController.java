@@ -1,22 +1,32 @@
 package com.github.jacek99.springbootcucumber.controller;
 
-import com.github.jacek99.springbootcucumber.dao.RestaurantDao;
-import com.github.jacek99.springbootcucumber.dao.RestaurantDao;
+import com.github.jacek99.springbootcucumber.bulk.BulkFormat;
+import com.github.jacek99.springbootcucumber.dao.BatchResult;
+import com.github.jacek99.springbootcucumber.dao.IRestaurantDao;
+import com.github.jacek99.springbootcucumber.dao.Page;
 import com.github.jacek99.springbootcucumber.domain.Restaurant;
+import com.github.jacek99.springbootcucumber.exception.ConstraintViolationException;
 import com.github.jacek99.springbootcucumber.security.TenantToken;
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST resource for creating restaurants within a tenant
@@ -28,39 +38,122 @@ public class RestaurantController {
 
 
     @Autowired
-    private RestaurantDao dao;
+    private IRestaurantDao dao;
+    @Autowired
+    private StreamingResults streamingResults;
+    @Autowired
+    private BulkExports bulkExports;
 
     @RequestMapping(method = RequestMethod.GET)
-    public List<Restaurant> getAll(@AuthenticationPrincipal TenantToken tenantToken) {
-        return dao.findAll(tenantToken);
+    public DeferredResult<List<Restaurant>> getAll(@AuthenticationPrincipal TenantToken tenantToken) {
+        return DeferredResults.of(dao.findAllAsync(tenantToken));
+    }
+
+    /**
+     * Same as getAll(), but written out as the entities are read, in the DB order.
+     * Cannot be paged or filtered
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> stream(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam(value = "limit", required = false) String limit,
+                              @RequestParam(value = "countryCode", required = false) String countryCode,
+                              @RequestParam(value = "name", required = false) String name) {
+        if (limit != null || countryCode != null || name != null) {
+            throw new ConstraintViolationException("stream", "cannot be combined with limit, countryCode or name");
+        }
+        return streamingResults.of(dao.iterate(tenantToken));
+    }
+
+    /**
+     * All of them as a gzip compressed NDJSON or CSV file, as preferred by the Accept header
+     */
+    @RequestMapping(value = "/export", method = RequestMethod.GET,
+            produces = {BulkFormat.NDJSON_VALUE, BulkFormat.CSV_VALUE})
+    public void export(@AuthenticationPrincipal TenantToken tenantToken,
+                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                       HttpServletResponse response) throws IOException {
+        bulkExports.export(tenantToken, () -> dao.iterate(tenantToken), Restaurant.class,
+                BulkFormat.negotiate(accept), "restaurants", response);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, params = {"limit", "!countryCode", "!name", "stream!=true"})
+    public DeferredResult<Page<Restaurant>> getPage(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam("limit") int limit,
+                              @RequestParam(value = "cursor", required = false) String cursor) {
+        return DeferredResults.of(dao.findPageAsync(tenantToken, limit, cursor));
+    }
+
+    /**
+     * Filtered lookups read a single lookup table partition, so they are not paged
+     */
+    @RequestMapping(method = RequestMethod.GET, params = {"countryCode", "stream!=true"})
+    public DeferredResult<List<Restaurant>> getByCountry(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam("countryCode") String countryCode,
+                              @RequestParam(value = "stateCode", required = false) String stateCode,
+                              @RequestParam(value = "name", required = false) String name) {
+        Preconditions.checkArgument(name == null, "Filter either by countryCode or by name");
+
+        return DeferredResults.of(stateCode == null ?
+                dao.findByCountryAsync(tenantToken, countryCode) :
+                dao.findByStateAsync(tenantToken, countryCode, stateCode));
+    }
+
+    @RequestMapping(method = RequestMethod.GET, params = {"name", "!countryCode", "stream!=true"})
+    public DeferredResult<List<Restaurant>> getByName(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam("name") String name) {
+        return DeferredResults.of(dao.findByNameAsync(tenantToken, name));
     }
 
     @RequestMapping(method = RequestMethod.POST)
-    @ResponseStatus(HttpStatus.CREATED)
-    public Restaurant save(@AuthenticationPrincipal TenantToken tenantToken, @RequestBody @Valid Restaurant entity) {
-        dao.save(tenantToken, entity);
-        return entity;
+    public DeferredResult<ResponseEntity<Restaurant>> save(@AuthenticationPrincipal TenantToken tenantToken,
+                                                           @RequestBody @Valid Restaurant entity) {
+        return DeferredResults.of(dao.saveAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.status(HttpStatus.CREATED).body(entity)));
     }
 
     @RequestMapping(value = "/{id}", method = RequestMethod.PATCH)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void update(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("id") String id,
+    public DeferredResult<ResponseEntity<Void>> update(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("id") String id,
                        @RequestBody @Valid Restaurant entity) {
         // path sanity check
         Preconditions.checkArgument(id.equals(entity.getId()),"id is not consistent with path");
 
-        dao.update(tenantToken, entity);
+        return DeferredResults.of(dao.updateAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.noContent().build()));
     }
 
     @RequestMapping(method = RequestMethod.PUT)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void saveOrUpdate(@AuthenticationPrincipal TenantToken tenantToken, @RequestBody @Valid Restaurant entity) {
-        dao.saveOrUpate(tenantToken, entity);
+    public DeferredResult<ResponseEntity<Void>> saveOrUpdate(@AuthenticationPrincipal TenantToken tenantToken,
+                                                             @RequestBody @Valid Restaurant entity) {
+        return DeferredResults.of(dao.saveOrUpdateAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.noContent().build()));
     }
 
     @RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("id") String id) {
-        dao.delete(tenantToken,id);
+    public DeferredResult<ResponseEntity<Void>> delete(@AuthenticationPrincipal TenantToken tenantToken,
+                                                       @PathVariable("id") String id) {
+        return DeferredResults.of(dao.deleteAsync(tenantToken, id)
+                .thenApply(v -> ResponseEntity.noContent().build()));
+    }
+
+    /**
+     * Batch endpoints, respond with the result of every entry (in the same order) and never fail as a whole
+     * because of a single entry. Every entity gets validated on its own by the DAO, hence no @Valid
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST)
+    public DeferredResult<List<BatchResult<String>>> saveAll(@AuthenticationPrincipal TenantToken tenantToken,
+                                                             @RequestBody List<Restaurant> entities) {
+        return DeferredResults.of(dao.saveAllAsync(tenantToken, entities));
+    }
+
+    @RequestMapping(value = "/batch", method = RequestMethod.PUT)
+    public DeferredResult<List<BatchResult<String>>> saveOrUpdateAll(@AuthenticationPrincipal TenantToken tenantToken,
+                                                                     @RequestBody List<Restaurant> entities) {
+        return DeferredResults.of(dao.saveOrUpdateAllAsync(tenantToken, entities));
+    }
+
+    @RequestMapping(value = "/batch", method = RequestMethod.DELETE)
+    public DeferredResult<List<BatchResult<String>>> deleteAll(@AuthenticationPrincipal TenantToken tenantToken,
+                                                               @RequestBody List<String> ids) {
+        return DeferredResults.of(dao.deleteAllAsync(tenantToken, ids));
     }
 }
@@ -0,0 +1,69 @@
+package com.github.jacek99.springbootcucumber.controller;
+
+import com.github.jacek99.springbootcucumber.bulk.BulkFormat;
+import com.github.jacek99.springbootcucumber.bulk.BulkImportService;
+import com.github.jacek99.springbootcucumber.bulk.ImportJob;
+import com.github.jacek99.springbootcucumber.bulk.ImportJobStatus;
+import com.github.jacek99.springbootcucumber.dao.IRestaurantDao;
+import com.github.jacek99.springbootcucumber.domain.Restaurant;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * REST resource for bulk importing restaurants from NDJSON / CSV files, as background jobs
+ * @author Jacek Furmankiewicz
+ */
+@RestController
+@RequestMapping(value = "/myapp/api/restaurants/imports", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+public class RestaurantImportController {
+
+    @Autowired
+    private IRestaurantDao dao;
+    @Autowired
+    private BulkImportService importService;
+
+    /**
+     * Responds with 202 and the job status as soon as the file has been uploaded, the import runs
+     * in the background. Every row is saved or updated, rows without a tenantId go into the caller's tenant
+     */
+    @RequestMapping(method = RequestMethod.POST, consumes = {BulkFormat.NDJSON_VALUE, BulkFormat.CSV_VALUE})
+    public ResponseEntity<ImportJobStatus> start(@AuthenticationPrincipal TenantToken tenantToken,
+                                                 @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                 InputStream body, UriComponentsBuilder b) throws IOException {
+        BulkFormat format = BulkFormat.of(MediaType.parseMediaType(contentType));
+        ImportJob job = importService.submit(tenantToken, dao, Restaurant.class, format, body);
+
+        return ResponseEntity.accepted()
+                .location(b.path("/myapp/api/restaurants/imports/{jobId}").buildAndExpand(job.getJobId()).toUri())
+                .body(job.getStatus());
+    }
+
+    @RequestMapping(value = "/{jobId}", method = RequestMethod.GET)
+    public ImportJobStatus getStatus(@AuthenticationPrincipal TenantToken tenantToken,
+                                     @PathVariable("jobId") String jobId) {
+        return importService.findJob(tenantToken, jobId).getStatus();
+    }
+
+    /**
+     * Cancels the job, the rows already written stay written
+     */
+    @RequestMapping(value = "/{jobId}", method = RequestMethod.DELETE)
+    public ResponseEntity<ImportJobStatus> cancel(@AuthenticationPrincipal TenantToken tenantToken,
+                                                  @PathVariable("jobId") String jobId) {
+        ImportJob job = importService.findJob(tenantToken, jobId);
+        job.cancel();
+        return ResponseEntity.accepted().body(job.getStatus());
+    }
+}
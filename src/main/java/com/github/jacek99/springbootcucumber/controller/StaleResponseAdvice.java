@@ -0,0 +1,47 @@
+package com.github.jacek99.springbootcucumber.controller;
+
+import com.github.jacek99.springbootcucumber.dao.StaleReads;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Flags the responses served from the last known good reads while Cassandra is unavailable,
+ * with the standard HTTP staleness warning and the age of the data (in seconds)
+ *
+ * @author Jacek Furmankiewicz
+ */
+@ControllerAdvice
+public class StaleResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    // none with the in-memory DB
+    @Autowired(required = false)
+    private StaleReads staleReads;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return staleReads != null;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        Long readAt = body == null ? null : staleReads.getReadAt(body);
+        if (readAt != null) {
+            response.getHeaders().add(HttpHeaders.WARNING, STALE_WARNING);
+            response.getHeaders().set(HttpHeaders.AGE, String.valueOf(
+                    TimeUnit.MILLISECONDS.toSeconds(Math.max(0, System.currentTimeMillis() - readAt))));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.jacek99.springbootcucumber.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Writes a lazily read sequence of entities out as a JSON array, one entity at a time as it gets read,
+ * so the response never has to be built up in memory (neither as a List nor as a buffered JSON document).
+ *
+ * The writing happens on the MVC async executor, the request thread gets released right away.
+ * Once the first entity is out the status can no longer change, so a failure while reading
+ * leaves the JSON unterminated (like an aborted bulk export) instead of ending the array early
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+public class StreamingResults {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public <T> ResponseEntity<StreamingResponseBody> of(Iterator<T> items) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(out -> write(items, out));
+    }
+
+    private <T> void write(Iterator<T> items, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            // the servlet container closes the response stream
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // if reading fails half way the array must stay unterminated, so the client
+            // sees a broken response instead of a valid but truncated one
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+
+            json.writeStartArray();
+            boolean first = true;
+            while (items.hasNext()) {
+                json.writeObject(items.next());
+                if (first) {
+                    // get the first byte out without waiting for the output buffer to fill up
+                    json.flush();
+                    first = false;
+                }
+            }
+            json.writeEndArray();
+        }
+    }
+}
@@ -1,23 +1,35 @@
 package com.github.jacek99.springbootcucumber.controller.admin;
 
-import com.github.jacek99.springbootcucumber.dao.TenantUserDao;
+import com.github.jacek99.springbootcucumber.bulk.BulkFormat;
+import com.github.jacek99.springbootcucumber.controller.BulkExports;
+import com.github.jacek99.springbootcucumber.controller.DeferredResults;
+import com.github.jacek99.springbootcucumber.controller.StreamingResults;
+import com.github.jacek99.springbootcucumber.dao.BatchResult;
+import com.github.jacek99.springbootcucumber.dao.ITenantUserDao;
+import com.github.jacek99.springbootcucumber.dao.Page;
 import com.github.jacek99.springbootcucumber.domain.Tenant;
 import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.exception.ConstraintViolationException;
 import com.github.jacek99.springbootcucumber.security.TenantToken;
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -31,46 +43,104 @@ import org.springframework.web.util.UriComponentsBuilder;
 public class TenantUserController {
 
     @Autowired
-    private TenantUserDao dao;
+    private ITenantUserDao dao;
+    @Autowired
+    private StreamingResults streamingResults;
+    @Autowired
+    private BulkExports bulkExports;
 
     @RequestMapping(method = RequestMethod.GET)
-    public List<TenantUser> getAll(@AuthenticationPrincipal TenantToken tenantToken) {
-        return dao.findAll(tenantToken);
+    public DeferredResult<List<TenantUser>> getAll(@AuthenticationPrincipal TenantToken tenantToken) {
+        return DeferredResults.of(dao.findAllAsync(tenantToken));
+    }
+
+    /**
+     * Same as getAll(), but written out as the entities are read, in the DB order.
+     * Cannot be paged
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> stream(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam(value = "limit", required = false) String limit) {
+        if (limit != null) {
+            throw new ConstraintViolationException("stream", "cannot be combined with limit");
+        }
+        return streamingResults.of(dao.iterate(tenantToken));
+    }
+
+    /**
+     * All of them as a gzip compressed NDJSON or CSV file, as preferred by the Accept header
+     */
+    @RequestMapping(value = "/export", method = RequestMethod.GET,
+            produces = {BulkFormat.NDJSON_VALUE, BulkFormat.CSV_VALUE})
+    public void export(@AuthenticationPrincipal TenantToken tenantToken,
+                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                       HttpServletResponse response) throws IOException {
+        bulkExports.export(tenantToken, () -> dao.iterate(tenantToken), TenantUser.class,
+                BulkFormat.negotiate(accept), "users", response);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, params = {"limit", "stream!=true"})
+    public DeferredResult<Page<TenantUser>> getPage(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam("limit") int limit,
+                              @RequestParam(value = "cursor", required = false) String cursor) {
+        return DeferredResults.of(dao.findPageAsync(tenantToken, limit, cursor));
     }
 
     @RequestMapping(method = RequestMethod.POST)
-    @ResponseStatus(HttpStatus.CREATED)
-    public ResponseEntity<TenantUser> save(@AuthenticationPrincipal TenantToken tenantToken,
+    public DeferredResult<ResponseEntity<TenantUser>> save(@AuthenticationPrincipal TenantToken tenantToken,
                                            @RequestBody @Valid TenantUser entity,
                                             UriComponentsBuilder b) {
-        dao.save(tenantToken, entity);
-
         // return 201 and HTTP location header pointing to URI of new resource
         UriComponents uriComponents =
                 b.path("/myapp/admin/users/{id}").buildAndExpand(entity.getUserId());
-        return ResponseEntity.created(uriComponents.toUri()).body(entity);
+        return DeferredResults.of(dao.saveAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.created(uriComponents.toUri()).body(entity)));
     }
 
     @RequestMapping(value = "/{tenantId}", method = RequestMethod.PATCH)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void update(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("tenantId") String tenantTokenID,
+    public DeferredResult<ResponseEntity<Void>> update(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("tenantId") String tenantTokenID,
                        @RequestBody @Valid TenantUser entity) {
         // path sanity check
         Preconditions.checkArgument(tenantTokenID.equals(entity.getUserId()),"tenantId is not consistent with path");
 
-        dao.update(tenantToken, entity);
+        return DeferredResults.of(dao.updateAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.noContent().build()));
     }
 
     @RequestMapping(method = RequestMethod.PUT)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void saveOrUpdate(@AuthenticationPrincipal TenantToken tenantToken, @RequestBody @Valid TenantUser entity) {
-        dao.saveOrUpate(tenantToken, entity);
+    public DeferredResult<ResponseEntity<Void>> saveOrUpdate(@AuthenticationPrincipal TenantToken tenantToken,
+                                                             @RequestBody @Valid TenantUser entity) {
+        return DeferredResults.of(dao.saveOrUpdateAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.noContent().build()));
     }
 
     @RequestMapping(value = "/{tenantId}", method = RequestMethod.DELETE)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("tenantId") String tenantId) {
-        dao.delete(tenantToken,tenantId);
+    public DeferredResult<ResponseEntity<Void>> delete(@AuthenticationPrincipal TenantToken tenantToken,
+                                                       @PathVariable("tenantId") String tenantId) {
+        return DeferredResults.of(dao.deleteAsync(tenantToken, tenantId)
+                .thenApply(v -> ResponseEntity.noContent().build()));
+    }
+
+    /**
+     * Batch endpoints, respond with the result of every entry (in the same order) and never fail as a whole
+     * because of a single entry. Every entity gets validated on its own by the DAO, hence no @Valid
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST)
+    public DeferredResult<List<BatchResult<String>>> saveAll(@AuthenticationPrincipal TenantToken tenantToken,
+                                                             @RequestBody List<TenantUser> entities) {
+        return DeferredResults.of(dao.saveAllAsync(tenantToken, entities));
+    }
+
+    @RequestMapping(value = "/batch", method = RequestMethod.PUT)
+    public DeferredResult<List<BatchResult<String>>> saveOrUpdateAll(@AuthenticationPrincipal TenantToken tenantToken,
+                                                                     @RequestBody List<TenantUser> entities) {
+        return DeferredResults.of(dao.saveOrUpdateAllAsync(tenantToken, entities));
+    }
+
+    @RequestMapping(value = "/batch", method = RequestMethod.DELETE)
+    public DeferredResult<List<BatchResult<String>>> deleteAll(@AuthenticationPrincipal TenantToken tenantToken,
+                                                               @RequestBody List<String> ids) {
+        return DeferredResults.of(dao.deleteAllAsync(tenantToken, ids));
     }
 
 }
@@ -1,13 +1,16 @@
 package com.github.jacek99.springbootcucumber.controller.system;
 
-import com.github.jacek99.springbootcucumber.dao.TenantDao;
+import com.github.jacek99.springbootcucumber.controller.DeferredResults;
+import com.github.jacek99.springbootcucumber.controller.StreamingResults;
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
+import com.github.jacek99.springbootcucumber.dao.Page;
 import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.exception.ConstraintViolationException;
 import com.github.jacek99.springbootcucumber.security.TenantToken;
 import com.google.common.base.Preconditions;
 import java.util.List;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -15,8 +18,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -30,50 +35,73 @@ import org.springframework.web.util.UriComponentsBuilder;
 public class TenantController {
 
     @Autowired
-    private TenantDao dao;
+    private ITenantDao dao;
+    @Autowired
+    private StreamingResults streamingResults;
 
     @RequestMapping(method = RequestMethod.GET)
-    public List<Tenant> getAll(@AuthenticationPrincipal TenantToken tenantToken) {
-        return dao.findAll(tenantToken);
+    public DeferredResult<List<Tenant>> getAll(@AuthenticationPrincipal TenantToken tenantToken) {
+        return DeferredResults.of(dao.findAllAsync(tenantToken));
+    }
+
+    /**
+     * Same as getAll(), but written out as the entities are read, in the DB order.
+     * Cannot be paged
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> stream(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam(value = "limit", required = false) String limit) {
+        if (limit != null) {
+            throw new ConstraintViolationException("stream", "cannot be combined with limit");
+        }
+        return streamingResults.of(dao.iterate(tenantToken));
+    }
+
+    @RequestMapping(method = RequestMethod.GET, params = {"limit", "stream!=true"})
+    public DeferredResult<Page<Tenant>> getPage(@AuthenticationPrincipal TenantToken tenantToken,
+                              @RequestParam("limit") int limit,
+                              @RequestParam(value = "cursor", required = false) String cursor) {
+        return DeferredResults.of(dao.findPageAsync(tenantToken, limit, cursor));
     }
 
     @RequestMapping(value = "/{tenantId}", method = RequestMethod.GET)
-    public Tenant getSingle(@AuthenticationPrincipal TenantToken tenantToken,
+    public DeferredResult<Tenant> getSingle(@AuthenticationPrincipal TenantToken tenantToken,
                                   @PathVariable("tenantId") String tenantId) {
-        return dao.findExistingById(tenantToken, tenantId);
+        return DeferredResults.of(dao.findExistingByIdAsync(tenantToken, tenantId));
     }
 
     @RequestMapping(method = RequestMethod.POST)
-    public ResponseEntity<Tenant> save(@AuthenticationPrincipal TenantToken tenantToken, @RequestBody @Valid Tenant entity,
+    public DeferredResult<ResponseEntity<Tenant>> save(@AuthenticationPrincipal TenantToken tenantToken, @RequestBody @Valid Tenant entity,
                        UriComponentsBuilder b) {
-        dao.save(tenantToken, entity);
-
         // return 201 and HTTP location header pointing to URI of new resource
         UriComponents uriComponents =
                 b.path("/myapp/system/tenants/{id}").buildAndExpand(entity.getTenantId());
-        return ResponseEntity.created(uriComponents.toUri()).body(entity);
+        return DeferredResults.of(dao.saveAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.created(uriComponents.toUri()).body(entity)));
     }
 
     @RequestMapping(value = "/{tenantId}", method = RequestMethod.PATCH)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void update(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("tenantId") String tenantId,
+    public DeferredResult<ResponseEntity<Void>> update(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("tenantId") String tenantId,
                        @RequestBody @Valid Tenant entity) {
         // path sanity check
         Preconditions.checkArgument(tenantId.equals(entity.getTenantId()),"tenantId is not consistent with path");
 
-        dao.update(tenantToken, entity);
+        return DeferredResults.of(dao.updateAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.noContent().build()));
     }
 
     @RequestMapping(method = RequestMethod.PUT)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void saveOrUpdate(@AuthenticationPrincipal TenantToken tenantToken, @RequestBody @Valid Tenant entity) {
-        dao.saveOrUpate(tenantToken, entity);
+    public DeferredResult<ResponseEntity<Void>> saveOrUpdate(@AuthenticationPrincipal TenantToken tenantToken,
+                                                             @RequestBody @Valid Tenant entity) {
+        return DeferredResults.of(dao.saveOrUpdateAsync(tenantToken, entity)
+                .thenApply(v -> ResponseEntity.noContent().build()));
     }
 
     @RequestMapping(value = "/{tenantId}", method = RequestMethod.DELETE)
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@AuthenticationPrincipal TenantToken tenantToken, @PathVariable("tenantId") String tenantId) {
-        dao.delete(tenantToken,tenantId);
+    public DeferredResult<ResponseEntity<Void>> delete(@AuthenticationPrincipal TenantToken tenantToken,
+                                                       @PathVariable("tenantId") String tenantId) {
+        return DeferredResults.of(dao.deleteAsync(tenantToken, tenantId)
+                .thenApply(v -> ResponseEntity.noContent().build()));
     }
 
 }
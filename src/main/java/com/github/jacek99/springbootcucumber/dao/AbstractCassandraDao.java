@@ -1,40 +1,71 @@
 package com.github.jacek99.springbootcucumber.dao;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.ResultSet;
-import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.policies.DefaultRetryPolicy;
 import com.datastax.driver.mapping.Mapper;
 import com.datastax.driver.mapping.Result;
 import com.datastax.driver.mapping.annotations.Table;
-import com.github.jacek99.springbootcucumber.ThreadLocals;
-import com.github.jacek99.springbootcucumber.cassandra.CassandraConstants;
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.CompletableFutures;
 import com.github.jacek99.springbootcucumber.cassandra.CassandraService;
-import com.github.jacek99.springbootcucumber.domain.ITenantEntity;
+import com.github.jacek99.springbootcucumber.cassandra.OperationType;
+import com.github.jacek99.springbootcucumber.cassandra.TableStatements;
+import com.github.jacek99.springbootcucumber.cassandra.TokenRangeScanner;
 import com.github.jacek99.springbootcucumber.domain.Tenant;
-import com.github.jacek99.springbootcucumber.domain.TenantUser;
-import com.github.jacek99.springbootcucumber.exception.ConflictException;
-import com.github.jacek99.springbootcucumber.exception.ConstraintViolationException;
-import com.github.jacek99.springbootcucumber.exception.NotFoundException;
+import com.github.jacek99.springbootcucumber.metrics.HotPathMetrics;
+import com.github.jacek99.springbootcucumber.metrics.TimedOperation;
 import com.github.jacek99.springbootcucumber.security.TenantToken;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import javax.validation.ConstraintViolation;
+import javax.annotation.PostConstruct;
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.NotImplementedException;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.http.HttpStatus;
 
 /**
- * Abstract ancestor for all entity DAOs
+ * Abstract ancestor for all Cassandra entity DAOs
  *
  * E = entity type
  * R = row type (usually the same as E, but can be different if the type exposed via DAO is different
@@ -44,32 +75,50 @@ import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
  * @author Jacek Furmankiewicz
  */
 @Slf4j
-public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> implements IGenericDao<E,ID> {
+public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> extends AbstractDao<E,ID> {
+
+    private static final String WHOLE_TABLE = "*";
 
     @Autowired
     @Getter(AccessLevel.PROTECTED)
     private CassandraService cassandra;
 
     @Autowired
-    private LocalValidatorFactoryBean validator;
+    private AppConfig config;
 
     @Autowired
-    private TenantDao tenantDao;
+    private HotPathMetrics metrics;
 
-    @Getter(AccessLevel.PUBLIC)
-    private final Class<E> entityType;
+    @Autowired
+    private TokenRangeScanner scanner;
+
+    @Autowired
+    private TenantPartitionRegistry tenantPartitions;
+
+    @Autowired
+    private StaleReads staleReads;
 
     @Getter(AccessLevel.PROTECTED)
     private final Class<R> rowType;
 
     private final String tableName;
 
+    private volatile RowColumns<R> rowColumns;
+
     /**
-     * Tells if this entity is specific to a single tenant (usually the case)
-     * or system-wide
+     * How conflicts / missing entities are detected on writes,
+     * defaults to the configured write mode for this DAO's table
      */
     @Getter(AccessLevel.PUBLIC)
-    private final boolean tenantEntity;
+    @Setter(AccessLevel.PUBLIC)
+    private WriteMode writeMode;
+
+    // lookup table name -> its extra partition key columns, see addLookupTable()
+    private final Map<String, List<String>> lookupTables = new LinkedHashMap<>();
+
+    // last known good reads, served while Cassandra is unavailable. By primary key / by findAll() scope
+    private StaleReads.ReadCache<List<Object>, E> staleById;
+    private StaleReads.ReadCache<String, List<E>> staleAll;
 
     /**
      * Constructor
@@ -84,29 +133,244 @@ public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> impleme
      * For more complex types, where the entity type and row type are different
      */
     protected AbstractCassandraDao(@NonNull Class<E> entityType, @NonNull Class<R> rowType) {
-        this.entityType = entityType;
+        super(entityType);
         this.rowType = rowType;
-        tenantEntity = ITenantEntity.class.isAssignableFrom(entityType);
 
         Table table = rowType.getAnnotation(Table.class);
         Preconditions.checkArgument(table != null,"Row entity needs to be annotated with @Table");
         tableName = table.name();
     }
 
+    /**
+     * Declares a lookup table, i.e. a denormalized copy of this DAO's table partitioned by the tenant
+     * and the given columns, so that findByLookup() reads a single small partition instead of the whole tenant.
+     * To be called from the constructor, tenant entities only.
+     *
+     * The lookup table has the same columns as the main table, with
+     * PRIMARY KEY ((tenant_id, keyColumns...), id) and is kept in sync by every save / update / delete.
+     * Rows with a null in any of the key columns are not in the lookup table at all.
+     *
+     * The main table and lookup table changes get written in a single logged batch, except
+     * in the CONDITIONAL write mode, where the lookup tables get written after the lightweight transaction
+     * got applied. In both cases two concurrent updates that change the lookup columns of the same entity
+     * can leave a stale lookup entry behind, so callers should not rely on them as the source of truth
+     */
+    protected void addLookupTable(@NonNull String lookupTableName, @NonNull String... keyColumns) {
+        Preconditions.checkState(isTenantEntity(), "Lookup tables are supported for tenant entities only");
+        Preconditions.checkArgument(keyColumns.length > 0, "Lookup table %s needs at least one key column",
+                lookupTableName);
+        lookupTables.put(lookupTableName, ImmutableList.copyOf(keyColumns));
+    }
+
+    /**
+     * The declared lookup tables, with their extra partition key columns
+     */
+    public Map<String, List<String>> getLookupTables() {
+        return Collections.unmodifiableMap(lookupTables);
+    }
+
+    @PostConstruct
+    public void initWriteMode() {
+        AppConfig.CassandraConfig cassandraConfig = config.getCassandra();
+        writeMode = cassandraConfig.getWriteModes().getOrDefault(tableName, cassandraConfig.getWriteMode());
+    }
+
+    @PostConstruct
+    public void initStaleReads() {
+        staleById = staleReads.newCache(tableName + ".byId");
+        staleAll = staleReads.newCache(tableName + ".all");
+    }
+
+    @PostConstruct
+    public void registerTenantPartitions() {
+        if (isTenantEntity()) {
+            tenantPartitions.register(tableName, this::deleteTenantPartitionsAsync);
+        }
+    }
+
     protected Mapper<R> getMapper() {
         return cassandra.getMappingManager().mapper(rowType);
     }
 
-    // helper method for logging, error messages, etc
-    protected String getEntityName() {
-        return entityType.getSimpleName();
+    /**
+     * Prepared statements for this DAO's table
+     */
+    protected TableStatements getStatements() {
+        return cassandra.getTableStatements(tableName);
+    }
+
+    /**
+     * The statements of this DAO's table and of all its lookup tables, to be resolved on the calling thread.
+     * Getting them may prepare them (e.g. after a schema change), which blocks, so the callbacks of
+     * the async operations (running on driver I/O threads) only ever use the ones resolved upfront
+     */
+    private DaoStatements resolveStatements() {
+        Map<String, TableStatements> lookups = new HashMap<>();
+        lookupTables.keySet().forEach(name -> lookups.put(name, cassandra.getTableStatements(name)));
+        return new DaoStatements(getStatements(), lookups);
+    }
+
+    @AllArgsConstructor
+    private static class DaoStatements {
+        private final TableStatements table;
+        private final Map<String, TableStatements> lookups;
+
+        private ConsistencyLevel getWriteConsistencyLevel() {
+            return table.getConsistencyLevel(OperationType.WRITE);
+        }
+    }
+
+    /**
+     * Reads a single row by its full primary key
+     */
+    protected R findRow(Object... primaryKey) {
+        ResultSet results = cassandra.execute(getStatements().getSelectByKey().bind(primaryKey));
+        return getMapper().map(results).one();
+    }
+
+    /**
+     * Reads a single row by its full primary key as part of a write, at the write consistency level
+     * so that it sees every acknowledged write, and never retried at a lower one
+     */
+    private R findRowForWrite(DaoStatements statements, Object... primaryKey) {
+        return getMapper().map(cassandra.execute(bindSelectForWrite(statements, statements.table.getSelectByKey(),
+                primaryKey))).one();
+    }
+
+    private CompletableFuture<R> findRowForWriteAsync(DaoStatements statements, Object... primaryKey) {
+        return cassandra.executeAsync(bindSelectForWrite(statements, statements.table.getSelectByKey(), primaryKey))
+                .thenApply(results -> getMapper().map(results).one());
     }
 
-    // finds the tenant the entity belongs to
-    // in case of system account, it may belong to a different tenant
-    protected String getEntityTenantId(TenantToken tenantToken, E entity) {
-        return isTenantEntity() ?
-                ((ITenantEntity)entity).getTenantId() : tenantToken.getTenantId();
+    private static Statement bindSelectForWrite(DaoStatements statements, PreparedStatement select, Object... values) {
+        return select.bind(values)
+                .setConsistencyLevel(statements.getWriteConsistencyLevel())
+                .setRetryPolicy(DefaultRetryPolicy.INSTANCE);
+    }
+
+    /**
+     * Writes the whole row, bypasses the lookup tables (for creating base data)
+     */
+    protected void insertRow(R row) {
+        cassandra.execute(bindRow(getStatements().getInsert(), row));
+    }
+
+    /**
+     * Binds all the variables of a prepared statement from a row's column values
+     */
+    protected BoundStatement bindRow(PreparedStatement statement, R row) {
+        return bindValues(statement, toValues(row));
+    }
+
+    // the row's serialized column values by name, null if no row
+    private Map<String, ByteBuffer> toValues(R row) {
+        return getRowColumns().serialize(row);
+    }
+
+    // resolved from the cluster metadata on first use, i.e. never blocks
+    private RowColumns<R> getRowColumns() {
+        RowColumns<R> columns = rowColumns;
+        if (columns == null) {
+            Configuration configuration = cassandra.getCluster().getConfiguration();
+            TableMetadata table = cassandra.getCluster().getMetadata()
+                    .getKeyspace(config.getCassandra().getKeyspace()).getTable(tableName);
+            Preconditions.checkState(table != null, "Table %s does not exist", tableName);
+            columns = new RowColumns<>(rowType, table, configuration.getCodecRegistry(),
+                    configuration.getProtocolOptions().getProtocolVersion());
+            rowColumns = columns;
+        }
+        return columns;
+    }
+
+    private static BoundStatement bindValues(PreparedStatement statement, Map<String, ByteBuffer> values) {
+        BoundStatement bound = statement.bind();
+        for (ColumnDefinitions.Definition variable : statement.getVariables()) {
+            bound.setBytesUnsafe(variable.getName(), values.get(variable.getName()));
+        }
+        return bound;
+    }
+
+    /**
+     * The statements that bring all the lookup tables in line with a write
+     *
+     * @param current column values being written, null if the row is being deleted
+     * @param previous column values being overwritten, null if the row did not exist
+     */
+    private List<Statement> bindLookups(DaoStatements daoStatements, Map<String, ByteBuffer> current,
+                                        Map<String, ByteBuffer> previous) {
+        if (lookupTables.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Statement> statements = new ArrayList<>();
+        for (Map.Entry<String, List<String>> lookup : lookupTables.entrySet()) {
+            TableStatements lookupStatements = daoStatements.lookups.get(lookup.getKey());
+            List<String> keyColumns = lookup.getValue();
+
+            boolean hadEntry = previous != null && hasLookupKey(previous, keyColumns);
+            boolean hasEntry = current != null && hasLookupKey(current, keyColumns);
+            if (hadEntry && (!hasEntry || !isSameLookupKey(previous, current, keyColumns))) {
+                statements.add(bindValues(lookupStatements.getDelete(), previous));
+            }
+            // written even if the key did not change, since it is a copy of all the columns
+            if (hasEntry) {
+                statements.add(bindValues(lookupStatements.getInsert(), current));
+            }
+        }
+        return statements;
+    }
+
+    private static boolean hasLookupKey(Map<String, ByteBuffer> values, List<String> keyColumns) {
+        for (String column : keyColumns) {
+            if (values.get(column) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSameLookupKey(Map<String, ByteBuffer> previous, Map<String, ByteBuffer> current,
+                                           List<String> keyColumns) {
+        for (String column : keyColumns) {
+            if (!Objects.equals(previous.get(column), current.get(column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The write together with the lookup table changes, as a single logged batch
+     * (so they either all get applied or none), or the write alone if there are none
+     */
+    private static Statement withLookups(DaoStatements statements, Statement write, List<Statement> lookups) {
+        if (lookups.isEmpty()) {
+            return write;
+        }
+        BatchStatement batch = toBatch(statements, lookups);
+        batch.add(write);
+        return batch;
+    }
+
+    // batches do not inherit the consistency level of their statements
+    private static BatchStatement toBatch(DaoStatements statements, List<Statement> lookups) {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+        batch.addAll(lookups);
+        batch.setConsistencyLevel(statements.getWriteConsistencyLevel());
+        return batch;
+    }
+
+    /**
+     * The row about to be overwritten by a save, only read if there are lookup tables to keep in sync
+     */
+    private R findPreviousRow(DaoStatements statements, TenantToken tenantToken, E entity) {
+        return lookupTables.isEmpty() ? null : findRowForWrite(statements,
+                getQueryColumns(getEntityTenantId(tenantToken, entity), getEntityId(entity)));
+    }
+
+    private CompletableFuture<R> findPreviousRowAsync(DaoStatements statements, TenantToken tenantToken, E entity) {
+        return lookupTables.isEmpty() ? CompletableFuture.completedFuture(null) : findRowForWriteAsync(statements,
+                getQueryColumns(getEntityTenantId(tenantToken, entity), getEntityId(entity)));
     }
 
     /**
@@ -123,19 +387,64 @@ public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> impleme
         }
     }
 
+    /**
+     * Records the call of a sync DAO operation, metrics get recorded explicitly with try / finally
+     * (and not by wrapping the call in a lambda), so that nothing gets allocated on the hot path
+     */
+    private void record(TimedOperation operation, TenantToken tenantToken, long start, boolean success) {
+        metrics.record(operation, tenantToken.getTenantId(), start, success);
+    }
+
+    /**
+     * Records the call of an async DAO operation once it completes
+     * @return the same future
+     */
+    private <T> CompletableFuture<T> recordAsync(TimedOperation operation, TenantToken tenantToken, long start,
+                                                 CompletableFuture<T> future) {
+        future.whenComplete((result, e) -> metrics.record(operation, tenantToken.getTenantId(), start, e == null));
+        return future;
+    }
+
     @Override
     public E findExistingById(@NonNull TenantToken tenantToken, ID id) {
-        E entity = toEntity(getMapper().get(getQueryColumns(tenantToken.getTenantId(),id)));
-        if (entity == null) {
-            throw new NotFoundException(entityType,String.valueOf(id));
-        } else {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object[] primaryKey = getQueryColumns(tenantToken.getTenantId(),id);
+            E entity;
+            try {
+                entity = toEntity(findRow(primaryKey));
+                staleById.put(Arrays.asList(primaryKey), entity);
+                success = true;
+            } catch (RuntimeException e) {
+                entity = staleById.getStale(Arrays.asList(primaryKey), e).orElseThrow(() -> e);
+            }
+            if (entity == null) {
+                throw notFound(id);
+            }
             return entity;
+        } finally {
+            record(TimedOperation.DAO_FIND_BY_ID, tenantToken, start, success);
         }
     }
 
     @Override
     public Optional<E> findById(@NonNull TenantToken tenantToken, ID id) {
-        return Optional.ofNullable(toEntity(getMapper().get(getQueryColumns(tenantToken.getTenantId(),id))));
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object[] primaryKey = getQueryColumns(tenantToken.getTenantId(),id);
+            try {
+                E entity = toEntity(findRow(primaryKey));
+                staleById.put(Arrays.asList(primaryKey), entity);
+                success = true;
+                return Optional.ofNullable(entity);
+            } catch (RuntimeException e) {
+                return Optional.of(staleById.getStale(Arrays.asList(primaryKey), e).orElseThrow(() -> e));
+            }
+        } finally {
+            record(TimedOperation.DAO_FIND_BY_ID, tenantToken, start, success);
+        }
     }
 
     /**
@@ -143,116 +452,366 @@ public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> impleme
      * same if it is a system tenant
      */
     protected Optional<E> findById(String entityTenantId, ID id) {
-        return Optional.ofNullable(toEntity(getMapper().get(getQueryColumns(entityTenantId,id))));
+        return Optional.ofNullable(toEntity(findRow(getQueryColumns(entityTenantId,id))));
+    }
+
+    // limit queries to tenant (unless system tenant)
+    private boolean isPartitionScoped(TenantToken tenantToken) {
+        return isTenantEntity() && !tenantToken.isSystemTenant();
     }
 
+    // the tenant, or the whole table
+    private String getFindAllScope(TenantToken tenantToken) {
+        return isPartitionScoped(tenantToken) ? tenantToken.getTenantId() : WHOLE_TABLE;
+    }
+
+    private BoundStatement bindFindAll(TenantToken tenantToken) {
+        return isPartitionScoped(tenantToken) ?
+                getStatements().getSelectByPartition().bind(tenantToken.getTenantId()) :
+                getStatements().getSelectAll().bind();
+    }
+
+    /**
+     * Within a tenant reads the single partition, otherwise (system tenant / system-wide entities)
+     * scans the whole table as token ranges in parallel
+     */
     @Override
     public List<E> findAll(@NonNull TenantToken tenantToken) {
-        // limit queries to tenant (unless system tenant)
-        Select select = QueryBuilder.select().from(tableName);
-        if (isTenantEntity() && !tenantToken.isSystemTenant()) {
-            select.where(QueryBuilder.eq(CassandraConstants.COLUMN_TENANT_ID,tenantToken.getTenant().getTenantId()));
-        }
-
-        ResultSet results = cassandra.getSession().execute(select);
-        Result<R> mapped = getMapper().map(results);
-        // ensure always sorted for consistency & testability
-        List<E> all = toEntities(mapped.all());
-        Collections.sort(all);
-        return all;
-    }
-
-    protected void validateSecurity(TenantToken tenantToken, ITenantEntity entity) {
-
-        if (StringUtils.isEmpty(entity.getTenantId())) {
-            // should never happen, should have gotten validated at the REST layer
-            throw new IllegalArgumentException(ThreadLocals.STRINGBUILDER.get()
-                    .append(getEntityType().getSimpleName())
-                    .append(" identified by ID ").append(getEntityId((E)entity))
-                    .append(" is missing tenantId")
-                    .toString());
-        } else if (!tenantToken.getTenant().getTenantId().equals(Tenant.SYSTEM_TENANT) &&
-            !tenantToken.getTenant().getTenantId().equals(entity.getTenantId())) {
-            // system tenant can create entities for any tenant,
-            // but otherwise tenants can only create entities for their own tenant
-            throw new SecurityException(ThreadLocals.STRINGBUILDER.get()
-                    .append("Tenant ").append(tenantToken.getTenant().getTenantId())
-                    .append(" user ").append(tenantToken.getUser().getUserId())
-                    .append(" attempted to create entity of type ").append(getEntityType().getSimpleName())
-                    .append(" for tenant ").append(entity.getTenantId())
-                    .toString());
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<E> all;
+            try {
+                if (isPartitionScoped(tenantToken)) {
+                    ResultSet results = cassandra.execute(bindFindAll(tenantToken));
+                    Result<R> mapped = getMapper().map(results);
+                    // ensure always sorted for consistency & testability
+                    all = toEntities(mapped.all());
+                    Collections.sort(all);
+                } else {
+                    all = scanner.scan(getStatements(), this::readAvailable, Comparator.naturalOrder());
+                }
+                staleAll.put(getFindAllScope(tenantToken), all);
+                success = true;
+            } catch (RuntimeException e) {
+                all = staleAll.getStale(getFindAllScope(tenantToken), e).orElseThrow(() -> e);
+            }
+            return all;
+        } finally {
+            record(TimedOperation.DAO_FIND_ALL, tenantToken, start, success);
+        }
+    }
+
+    /**
+     * Pages through the driver result set, while the current page is being consumed the next one
+     * already gets fetched in the background. The system tenant reads the table one token range after another
+     */
+    @Override
+    public Iterator<E> iterate(@NonNull TenantToken tenantToken) {
+        if (isPartitionScoped(tenantToken)) {
+            return iterate(cassandra.execute(bindFindAll(tenantToken)));
+        } else {
+            return Iterators.concat(Iterators.transform(scanner.iterate(getStatements()), this::iterate));
+        }
+    }
+
+    private Iterator<E> iterate(ResultSet results) {
+        Iterator<R> rows = getMapper().map(results).iterator();
+        int prefetchThreshold = Math.max(1, config.getCassandra().getFetchSize() / 4);
+
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (results.getAvailableWithoutFetching() == prefetchThreshold && !results.isFullyFetched()) {
+                    results.fetchMoreResults();
+                }
+                return toEntity(rows.next());
+            }
+        };
+    }
+
+    /**
+     * Pages through the partition using the driver paging state as the cursor.
+     * Within a tenant the order is the clustering order, the system tenant pages
+     * across the whole table in token order
+     */
+    @Override
+    public Page<E> findPage(@NonNull TenantToken tenantToken, int limit, String cursor) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Page<E> page = toPage(cassandra.execute(bindFindPage(tenantToken, limit, cursor)));
+            success = true;
+            return page;
+        } finally {
+            record(TimedOperation.DAO_FIND_PAGE, tenantToken, start, success);
+        }
+    }
+
+    private BoundStatement bindFindPage(TenantToken tenantToken, int limit, String cursor) {
+        Preconditions.checkArgument(limit > 0 && limit <= MAX_PAGE_SIZE, "limit must be between 1 and %s", MAX_PAGE_SIZE);
+
+        BoundStatement select = bindFindAll(tenantToken);
+        select.setFetchSize(limit);
+        if (StringUtils.isNotEmpty(cursor)) {
+            try {
+                // the paging state is tied to the statement and its bound values,
+                // so a cursor cannot be re-used against another tenant's partition
+                select.setPagingState(PagingState.fromString(cursor));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+        return select;
+    }
+
+    private Page<E> toPage(ResultSet results) {
+        List<E> items = new ArrayList<>(results.getAvailableWithoutFetching());
+        readAvailable(results, items);
+
+        PagingState next = results.getExecutionInfo().getPagingState();
+        return new Page<>(items, next == null ? null : next.toString());
+    }
+
+    // only take what is already fetched, never trigger fetching of the next page
+    private void readAvailable(ResultSet results, List<E> entities) {
+        int available = results.getAvailableWithoutFetching();
+        Iterator<R> rows = getMapper().map(results).iterator();
+        for (int i = 0; i < available; i++) {
+            entities.add(toEntity(rows.next()));
+        }
+    }
+
+    /**
+     * Finds all the entities within the caller's tenant that have the given values in the key columns
+     * of a lookup table, by reading just that one lookup table partition.
+     * Scoped to the caller's own tenant even for the system tenant, since every lookup partition is per tenant
+     *
+     * @param keyValues in the order the key columns were declared in addLookupTable()
+     */
+    protected List<E> findByLookup(@NonNull TenantToken tenantToken, String lookupTableName, Object... keyValues) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ResultSet results = cassandra.execute(bindFindByLookup(tenantToken, lookupTableName, keyValues));
+            List<E> all = toEntities(getMapper().map(results).all());
+            // ensure always sorted for consistency & testability
+            Collections.sort(all);
+            success = true;
+            return all;
+        } finally {
+            record(TimedOperation.DAO_FIND_BY_LOOKUP, tenantToken, start, success);
+        }
+    }
+
+    private BoundStatement bindFindByLookup(TenantToken tenantToken, String lookupTableName, Object... keyValues) {
+        List<String> keyColumns = lookupTables.get(lookupTableName);
+        Preconditions.checkArgument(keyColumns != null, "Unknown lookup table %s", lookupTableName);
+        Preconditions.checkArgument(keyColumns.size() == keyValues.length,
+                "Lookup table %s needs values for %s", lookupTableName, keyColumns);
+
+        Object[] partitionKey = new Object[keyValues.length + 1];
+        partitionKey[0] = tenantToken.getTenantId();
+        for (int i = 0; i < keyValues.length; i++) {
+            Preconditions.checkArgument(keyValues[i] != null, "%s is required", keyColumns.get(i));
+            partitionKey[i + 1] = keyValues[i];
         }
+        return cassandra.getTableStatements(lookupTableName).getSelectByPartition().bind(partitionKey);
     }
 
     protected void processSave(TenantToken tenantToken, E entity) {
-        // trigger pre-save extension point
-        preSave(tenantToken, entity);
+        DaoStatements statements = resolveStatements();
+        processSave(tenantToken, entity, statements, statements.table.getInsert(), null,
+                () -> findPreviousRow(statements, tenantToken, entity));
+    }
 
-        // ensure it belongs to the right tenant
-        if (isTenantEntity()) {
-            ITenantEntity tenantEntity = (ITenantEntity) entity;
+    /**
+     * @param write statement that writes the row, bound by column names
+     * @param notApplied error to throw if the write was conditional and did not get applied
+     * @param previous the row being overwritten (null if none), only called after the entity is valid
+     */
+    private void processSave(TenantToken tenantToken, E entity, DaoStatements statements,
+                             PreparedStatement write, Supplier<RuntimeException> notApplied, Supplier<R> previous) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            // trigger pre-save extension point
+            preSave(tenantToken, entity);
 
             // ensure tenant is valid, if not found will throw 404 error
-            tenantDao.findExistingById(tenantToken, tenantEntity.getTenantId());
+            validateTenantExists(tenantToken, entity);
+
+            validate(tenantToken, entity);
+
+            Map<String, ByteBuffer> values = toValues(toRow(entity));
+            List<Statement> lookups = bindLookups(statements, values, toValues(previous.get()));
 
-            // ensure user has rights to save data for this tenant
-            validateSecurity(tenantToken, (ITenantEntity) entity);
+            // perform actual save
+            log.debug("{}: Saving entity of type {} identified by Id {}",
+                    tenantToken.getTenantId(), getEntityName(), getEntityId(entity));
+            if (notApplied == null) {
+                cassandra.execute(withLookups(statements, bindValues(write, values), lookups));
+            } else {
+                // a lightweight transaction cannot be batched with writes to other partitions
+                ResultSet results = cassandra.execute(bindValues(write, values));
+                if (!results.wasApplied()) {
+                    throw notApplied.get();
+                }
+                if (!lookups.isEmpty()) {
+                    cassandra.execute(toBatch(statements, lookups));
+                }
+            }
+
+            // trigger extension point
+            onSaved(tenantToken, entity);
+            success = true;
+        } finally {
+            record(TimedOperation.DAO_PROCESS_SAVE, tenantToken, start, success);
         }
+    }
+
+    /**
+     * Async equivalent of processSave().
+     * Validation and row conversion (which may be CPU heavy, e.g. password hashing) run upfront
+     * on the calling thread, so that only cheap non-blocking work ever runs on the driver I/O threads
+     *
+     * @param precondition started only after the entity is valid, needs to complete before it gets written
+     */
+    protected CompletableFuture<Void> processSaveAsync(TenantToken tenantToken, E entity,
+                                                       Supplier<CompletableFuture<?>> precondition) {
+        return processSaveAsync(tenantToken, entity,
+                statements -> precondition.get().thenCompose(v -> findPreviousRowAsync(statements, tenantToken, entity)),
+                TableStatements::getInsert, null);
+    }
 
-        // ensure it gets validated, should have already happened at the REST layer
-        // but just in case
-        Set<ConstraintViolation<E>> errors = validator.validate(entity);
-        if (errors != null && !errors.isEmpty()) {
-            // sort them in alphabetical order, for consistency in testing
-            Set<ConstraintViolation<E>> sorted = new TreeSet<>(
-                    (o1,o2) -> o1.getPropertyPath().toString()
-                    .compareTo(o2.getPropertyPath().toString())
-            );
-            sorted.addAll(errors);
+    /**
+     * @param previous started only after the entity is valid, completes with the row being overwritten
+     *                 (null if none) and needs to complete before it gets written
+     * @param write the statement that writes the row
+     */
+    private CompletableFuture<Void> processSaveAsync(TenantToken tenantToken, E entity,
+                                                     Function<DaoStatements, CompletableFuture<R>> previous,
+                                                     Function<TableStatements, PreparedStatement> write,
+                                                     Supplier<RuntimeException> notApplied) {
+        long start = System.nanoTime();
+        DaoStatements statements;
+        Map<String, ByteBuffer> values;
+        BoundStatement bound;
+        CompletableFuture<?> tenantExists;
+        CompletableFuture<R> previousRow;
+        try {
+            preSave(tenantToken, entity);
+            validate(tenantToken, entity);
+            statements = resolveStatements();
+            values = toValues(toRow(entity));
+            bound = bindValues(write.apply(statements.table), values);
 
-            ConstraintViolation first = sorted.iterator().next();
-            throw new ConstraintViolationException(
-                    first.getPropertyPath().toString(),
-                    first.getMessage());
+            // ensure tenant is valid, if not found will fail with 404 error
+            tenantExists = validateTenantExistsAsync(tenantToken, entity);
+            previousRow = previous.apply(statements);
+        } catch (RuntimeException e) {
+            return recordAsync(TimedOperation.DAO_PROCESS_SAVE, tenantToken, start, CompletableFutures.failed(e));
         }
 
-        // perform actual save
-        log.debug("{}: Saving entity of type {} identified by Id {}",
-                tenantToken.getTenantId(), getEntityName(), getEntityId(entity));
-        getMapper().save(toRow(entity));
+        return recordAsync(TimedOperation.DAO_PROCESS_SAVE, tenantToken, start,
+                CompletableFuture.allOf(tenantExists, previousRow)
+                .thenCompose(v -> {
+                    List<Statement> lookups = bindLookups(statements, values, toValues(previousRow.join()));
+
+                    log.debug("{}: Saving entity of type {} identified by Id {}",
+                            tenantToken.getTenantId(), getEntityName(), getEntityId(entity));
+                    if (notApplied == null) {
+                        return cassandra.executeAsync(withLookups(statements, bound, lookups)).thenApply(results -> null);
+                    }
+
+                    // a lightweight transaction cannot be batched with writes to other partitions
+                    return cassandra.executeAsync(bound)
+                            .thenCompose(results -> {
+                                if (!results.wasApplied()) {
+                                    throw notApplied.get();
+                                }
+                                return lookups.isEmpty() ? CompletableFuture.completedFuture(null) :
+                                        cassandra.executeAsync(toBatch(statements, lookups));
+                            });
+                })
+                .thenRun(() -> onSaved(tenantToken, entity)));
+    }
 
-        // trigger extension point
+    // the last known good reads the write affects are out of date now, then the post extension point
+    private void onSaved(TenantToken tenantToken, E entity) {
+        evictStale(getEntityTenantId(tenantToken, entity), getEntityId(entity));
         postSave(tenantToken, entity);
     }
 
+    private void onDeleted(TenantToken tenantToken, ID id) {
+        evictStale(tenantToken.getTenantId(), id);
+        postDelete(tenantToken, id);
+    }
+
+    private void evictStale(String entityTenantId, ID id) {
+        staleById.invalidate(Arrays.asList(getQueryColumns(entityTenantId, id)));
+        staleAll.invalidate(entityTenantId);
+        staleAll.invalidate(WHOLE_TABLE);
+    }
+
+    // the tenant ID is the first primary key column of every tenant entity
+    private void evictStaleTenant(String tenantId) {
+        staleById.invalidateAll(key -> tenantId.equals(key.get(0)));
+        staleAll.invalidate(tenantId);
+        staleAll.invalidate(WHOLE_TABLE);
+    }
+
     @Override
     public void save(@NonNull TenantToken tenantToken, @NonNull E entity) {
-        ID id = getEntityId(entity);
-        String entityTenantId = getEntityTenantId(tenantToken, entity);
-
-        // make sure we check for duplicates in the actual tenant the entity belongs to
-        // if call made with system account, it could be a different tenant
-        if (findById(entityTenantId,id).isPresent()) {
-            throw new ConflictException(entityType,String.valueOf(id),
-                    ThreadLocals.STRINGBUILDER.get()
-                    .append(getEntityType().getSimpleName())
-                    .append(" identified by ID ")
-                    .append(id)
-                    .append(" already exists").toString());
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ID id = getEntityId(entity);
+            String entityTenantId = getEntityTenantId(tenantToken, entity);
+            DaoStatements statements = resolveStatements();
 
-        } else {
-            processSave(tenantToken, entity);
+            // make sure we check for duplicates in the actual tenant the entity belongs to
+            // if call made with system account, it could be a different tenant
+            if (writeMode == WriteMode.CONDITIONAL) {
+                processSave(tenantToken, entity, statements, statements.table.getInsertIfNotExists(),
+                        () -> conflict(id), () -> null);
+            } else if (findRowForWrite(statements, getQueryColumns(entityTenantId, id)) != null) {
+                throw conflict(id);
+            } else {
+                processSave(tenantToken, entity, statements, statements.table.getInsert(), null, () -> null);
+            }
+            success = true;
+        } finally {
+            record(TimedOperation.DAO_SAVE, tenantToken, start, success);
         }
     }
 
     @Override
     public void update(@NonNull TenantToken tenantToken, @NonNull E entity) {
-        ID id = getEntityId(entity);
-        // ensure entity already exists, since this an update
-        if (findById(tenantToken,id).isPresent()) {
-            processSave(tenantToken, entity);
-        } else {
-            throw new NotFoundException(entityType,String.valueOf(id));
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ID id = getEntityId(entity);
+            DaoStatements statements = resolveStatements();
+            // ensure entity already exists, since this an update
+            if (writeMode == WriteMode.CONDITIONAL) {
+                processSave(tenantToken, entity, statements, statements.table.getUpdateIfExists(), () -> notFound(id),
+                        () -> findPreviousRow(statements, tenantToken, entity));
+            } else {
+                R existing = findRowForWrite(statements, getQueryColumns(tenantToken.getTenantId(), id));
+                if (existing == null) {
+                    throw notFound(id);
+                }
+                processSave(tenantToken, entity, statements, statements.table.getInsert(), null, () -> existing);
+            }
+            success = true;
+        } finally {
+            record(TimedOperation.DAO_UPDATE, tenantToken, start, success);
         }
     }
 
@@ -263,29 +822,760 @@ public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> impleme
 
     @Override
     public void delete(@NonNull TenantToken tenantToken, @NonNull ID id) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object[] primaryKey = getQueryColumns(tenantToken.getTenantId(), id);
+            DaoStatements statements = resolveStatements();
+
+            // ensure entity already exists
+            if (writeMode == WriteMode.CONDITIONAL) {
+                // pre-delete extension point gets triggered before we know if the entity exists
+                preDelete(tenantToken, id);
+
+                // the lookup entries to remove are only known from the row itself
+                R existing = lookupTables.isEmpty() ? null : findRowForWrite(statements, primaryKey);
+
+                log.debug("{}: Deleting entity of type {} identified by Id {}",
+                        tenantToken.getTenantId(), getEntityName(), id);
+                ResultSet results = cassandra.execute(statements.table.getDeleteIfExists().bind(primaryKey));
+                if (!results.wasApplied()) {
+                    throw notFound(id);
+                }
+                List<Statement> lookups = bindLookups(statements, null, toValues(existing));
+                if (!lookups.isEmpty()) {
+                    cassandra.execute(toBatch(statements, lookups));
+                }
+
+                onDeleted(tenantToken, id);
+
+            } else {
+                R existing = findRowForWrite(statements, primaryKey);
+                if (existing == null) {
+                    throw notFound(id);
+                }
+
+                // trigger pre/post extension points
+                preDelete(tenantToken, id);
+
+                log.debug("{}: Deleting entity of type {} identified by Id {}",
+                        tenantToken.getTenantId(), getEntityName(), id);
+                cassandra.execute(withLookups(statements, statements.table.getDelete().bind(primaryKey),
+                        bindLookups(statements, null, toValues(existing))));
+
+                // trigger post-extension point
+                onDeleted(tenantToken, id);
+            }
+            success = true;
+        } finally {
+            record(TimedOperation.DAO_DELETE, tenantToken, start, success);
+        }
+    }
+
+    /**
+     * Deletes all of a tenant's rows with a single partition delete per partition instead of a tombstone per row:
+     * the tenant's partition of this table and every lookup table partition referenced from it.
+     * The lookup partitions are only known from the rows themselves, so the tenant's partition gets paged
+     * through first and only deleted once they are gone, i.e. a failed delete can always be re-run.
+     * The tenant's last known good reads go too, both before (nothing of it gets served stale any more)
+     * and after (anything read while the delete was running)
+     */
+    private CompletableFuture<Void> deleteTenantPartitionsAsync(String tenantId, long timestamp) {
+        evictStaleTenant(tenantId);
+        DaoStatements daoStatements = resolveStatements();
+        Statement deletePartition = daoStatements.table.getDeletePartition().bind(tenantId).setDefaultTimestamp(timestamp);
+
+        CompletableFuture<Void> lookups = lookupTables.isEmpty() ? CompletableFuture.completedFuture(null) :
+                cassandra.executeAsync(bindSelectForWrite(daoStatements, daoStatements.table.getSelectByPartition(), tenantId))
+                        .thenCompose(results -> deleteLookupPartitionsAsync(daoStatements, results, timestamp));
+
+        return lookups
+                .thenCompose(v -> cassandra.executeAsync(deletePartition))
+                .<Void>thenApply(results -> null)
+                .whenComplete((v, e) -> evictStaleTenant(tenantId));
+    }
+
+    // the distinct lookup partitions of the rows already fetched, then the same for the next page
+    private CompletableFuture<Void> deleteLookupPartitionsAsync(DaoStatements daoStatements, ResultSet results,
+                                                                long timestamp) {
+        Map<List<Object>, Statement> deletes = new LinkedHashMap<>();
+        for (int available = results.getAvailableWithoutFetching(); available > 0; available--) {
+            Row row = results.one();
+            for (String lookupTableName : lookupTables.keySet()) {
+                PreparedStatement deletePartition = daoStatements.lookups.get(lookupTableName).getDeletePartition();
+
+                List<Object> partition = new ArrayList<>();
+                partition.add(lookupTableName);
+                for (ColumnDefinitions.Definition variable : deletePartition.getVariables()) {
+                    partition.add(row.getBytesUnsafe(variable.getName()));
+                }
+                // rows with a null key column are not in the lookup table at all
+                if (!partition.contains(null)) {
+                    deletes.computeIfAbsent(partition, p -> bindPartition(deletePartition, p, timestamp));
+                }
+            }
+        }
+
+        List<Statement> statements = new ArrayList<>(deletes.values());
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        return CompletableFutures.forEachBounded(statements.size(), config.getCassandra().getBatch().getMaxInFlight(),
+                i -> cassandra.executeAsync(statements.get(i)).whenComplete((r, e) -> {
+                    if (e != null) {
+                        error.compareAndSet(null, e);
+                    }
+                }))
+                .thenCompose(v -> {
+                    if (error.get() != null) {
+                        return CompletableFutures.failed(error.get());
+                    } else if (results.isFullyFetched()) {
+                        return CompletableFuture.completedFuture(null);
+                    } else {
+                        return CompletableFutures.fromListenable(results.fetchMoreResults())
+                                .thenCompose(more -> deleteLookupPartitionsAsync(daoStatements, more, timestamp));
+                    }
+                });
+    }
+
+    // the partition key values follow the table name
+    private static Statement bindPartition(PreparedStatement deletePartition, List<Object> partition, long timestamp) {
+        BoundStatement bound = deletePartition.bind();
+        for (int i = 1; i < partition.size(); i++) {
+            bound.setBytesUnsafe(i - 1, (ByteBuffer) partition.get(i));
+        }
+        return bound.setDefaultTimestamp(timestamp);
+    }
+
+    /**
+     * Reads a single row by its full primary key, without blocking.
+     * Preparing / binding the statement may fail right away too, that fails the future as well
+     */
+    protected CompletableFuture<R> findRowAsync(Object... primaryKey) {
+        return CompletableFutures.start(() -> cassandra.executeAsync(getStatements().getSelectByKey().bind(primaryKey))
+                .thenApply(results -> getMapper().map(results).one()));
+    }
+
+    @Override
+    public CompletableFuture<E> findExistingByIdAsync(@NonNull TenantToken tenantToken, ID id) {
+        return findByIdAsync(tenantToken, id)
+                .thenApply(entity -> entity.orElseThrow(() -> notFound(id)));
+    }
+
+    @Override
+    public CompletableFuture<Optional<E>> findByIdAsync(@NonNull TenantToken tenantToken, ID id) {
+        Object[] primaryKey = getQueryColumns(tenantToken.getTenantId(), id);
+        return orStale(staleById, Arrays.asList(primaryKey), recordAsync(TimedOperation.DAO_FIND_BY_ID, tenantToken,
+                System.nanoTime(), findRowAsync(primaryKey).thenApply(this::toEntity)))
+                .thenApply(Optional::ofNullable);
+    }
+
+    /**
+     * Async equivalent of findById(entityTenantId, id)
+     */
+    protected CompletableFuture<Optional<E>> findByIdAsync(String entityTenantId, ID id) {
+        return findRowAsync(getQueryColumns(entityTenantId,id))
+                .thenApply(row -> Optional.ofNullable(toEntity(row)));
+    }
+
+    @Override
+    public CompletableFuture<List<E>> findAllAsync(@NonNull TenantToken tenantToken) {
+        if (!isPartitionScoped(tenantToken)) {
+            return orStale(staleAll, WHOLE_TABLE, recordAsync(TimedOperation.DAO_FIND_ALL, tenantToken,
+                    System.nanoTime(), CompletableFutures.start(() ->
+                            scanner.scanAsync(getStatements(), this::readAvailable, Comparator.naturalOrder()))));
+        }
+
+        return orStale(staleAll, tenantToken.getTenantId(), recordAsync(TimedOperation.DAO_FIND_ALL, tenantToken,
+                System.nanoTime(), CompletableFutures.start(() -> cassandra.executeAsync(bindFindAll(tenantToken))
+                        .thenCompose(results -> readAllAsync(results, new ArrayList<>()))
+                        .thenApply(all -> {
+                            // ensure always sorted for consistency & testability
+                            Collections.sort(all);
+                            return all;
+                        }))));
+    }
+
+    /**
+     * Keeps the result of a read as its last known good value, or serves that value instead
+     * if the read fails because Cassandra is unavailable. The read itself still gets recorded as failed
+     */
+    private <K, V> CompletableFuture<V> orStale(StaleReads.ReadCache<K, V> cache, K key, CompletableFuture<V> read) {
+        return read.handle((value, e) -> {
+            if (e == null) {
+                cache.put(key, value);
+                return value;
+            }
+            Throwable error = CompletableFutures.unwrap(e);
+            return cache.getStale(key, error).orElseThrow(() -> new CompletionException(error));
+        });
+    }
+
+    // fetches the remaining pages one at a time, without ever blocking on the driver
+    private CompletableFuture<List<E>> readAllAsync(ResultSet results, List<E> entities) {
+        readAvailable(results, entities);
+        if (results.isFullyFetched()) {
+            return CompletableFuture.completedFuture(entities);
+        } else {
+            return CompletableFutures.fromListenable(results.fetchMoreResults())
+                    .thenCompose(more -> readAllAsync(more, entities));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Page<E>> findPageAsync(@NonNull TenantToken tenantToken, int limit, String cursor) {
+        long start = System.nanoTime();
+        CompletableFuture<Page<E>> page;
+        try {
+            page = cassandra.executeAsync(bindFindPage(tenantToken, limit, cursor)).thenApply(this::toPage);
+        } catch (RuntimeException e) {
+            page = CompletableFutures.failed(e);
+        }
+        return recordAsync(TimedOperation.DAO_FIND_PAGE, tenantToken, start, page);
+    }
+
+    /**
+     * Async equivalent of findByLookup()
+     */
+    protected CompletableFuture<List<E>> findByLookupAsync(@NonNull TenantToken tenantToken, String lookupTableName,
+                                                           Object... keyValues) {
+        long start = System.nanoTime();
+        CompletableFuture<List<E>> found;
+        try {
+            found = cassandra.executeAsync(bindFindByLookup(tenantToken, lookupTableName, keyValues))
+                    .thenCompose(results -> readAllAsync(results, new ArrayList<>()))
+                    .thenApply(all -> {
+                        // ensure always sorted for consistency & testability
+                        Collections.sort(all);
+                        return all;
+                    });
+        } catch (RuntimeException e) {
+            found = CompletableFutures.failed(e);
+        }
+        return recordAsync(TimedOperation.DAO_FIND_BY_LOOKUP, tenantToken, start, found);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAsync(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        return recordAsync(TimedOperation.DAO_SAVE, tenantToken, System.nanoTime(),
+                CompletableFutures.start(() -> saveAsyncInternal(tenantToken, entity)));
+    }
+
+    private CompletableFuture<Void> saveAsyncInternal(TenantToken tenantToken, E entity) {
+        ID id = getEntityId(entity);
+        String entityTenantId = getEntityTenantId(tenantToken, entity);
+
+        if (writeMode == WriteMode.CONDITIONAL) {
+            return processSaveAsync(tenantToken, entity, statements -> CompletableFuture.completedFuture(null),
+                    TableStatements::getInsertIfNotExists, () -> conflict(id));
+        }
+
+        // make sure we check for duplicates in the actual tenant the entity belongs to
+        return processSaveAsync(tenantToken, entity,
+                statements -> findRowForWriteAsync(statements, getQueryColumns(entityTenantId, id))
+                        .thenApply(existing -> {
+                            if (existing != null) {
+                                throw conflict(id);
+                            }
+                            return null;
+                        }), TableStatements::getInsert, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        return recordAsync(TimedOperation.DAO_UPDATE, tenantToken, System.nanoTime(),
+                CompletableFutures.start(() -> updateAsyncInternal(tenantToken, entity)));
+    }
+
+    private CompletableFuture<Void> updateAsyncInternal(TenantToken tenantToken, E entity) {
+        ID id = getEntityId(entity);
+        if (writeMode == WriteMode.CONDITIONAL) {
+            return processSaveAsync(tenantToken, entity,
+                    statements -> findPreviousRowAsync(statements, tenantToken, entity),
+                    TableStatements::getUpdateIfExists, () -> notFound(id));
+        }
+
         // ensure entity already exists, since this an update
-        if (findById(tenantToken,id).isPresent()) {
+        return processSaveAsync(tenantToken, entity, statements -> findExistingRowAsync(statements, tenantToken, id),
+                TableStatements::getInsert, null);
+    }
+
+    // existence check before a write, always goes to the DB (unlike findExistingByIdAsync(), which may be cached)
+    private CompletableFuture<R> findExistingRowAsync(DaoStatements statements, TenantToken tenantToken, ID id) {
+        return findRowForWriteAsync(statements, getQueryColumns(tenantToken.getTenantId(), id))
+                .thenApply(existing -> {
+                    if (existing == null) {
+                        throw notFound(id);
+                    }
+                    return existing;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOrUpdateAsync(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        return processSaveAsync(tenantToken, entity, statements -> findPreviousRowAsync(statements, tenantToken, entity),
+                TableStatements::getInsert, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(@NonNull TenantToken tenantToken, @NonNull ID id) {
+        return recordAsync(TimedOperation.DAO_DELETE, tenantToken, System.nanoTime(),
+                CompletableFutures.start(() -> deleteAsyncInternal(resolveStatements(), tenantToken, id)));
+    }
 
-            // trigger pre/post extension points
+    private CompletableFuture<Void> deleteAsyncInternal(DaoStatements statements, TenantToken tenantToken, ID id) {
+        Object[] primaryKey = getQueryColumns(tenantToken.getTenantId(), id);
+
+        if (writeMode == WriteMode.CONDITIONAL) {
+            BoundStatement deleteIfExists = statements.table.getDeleteIfExists().bind(primaryKey);
+            // pre-delete extension point gets triggered before we know if the entity exists
             preDelete(tenantToken, id);
 
-            log.debug("{}: Saving entity of type {} identified by Id {}",
-                    tenantToken.getTenantId(), getEntityName(), id);
-            getMapper().delete(id);
+            // the lookup entries to remove are only known from the row itself
+            CompletableFuture<R> existing = lookupTables.isEmpty() ?
+                    CompletableFuture.completedFuture(null) : findRowForWriteAsync(statements, primaryKey);
+
+            return existing
+                    .thenCompose(row -> {
+                        log.debug("{}: Deleting entity of type {} identified by Id {}",
+                                tenantToken.getTenantId(), getEntityName(), id);
+                        return cassandra.executeAsync(deleteIfExists);
+                    })
+                    .thenCompose(results -> {
+                        if (!results.wasApplied()) {
+                            throw notFound(id);
+                        }
+                        List<Statement> lookups = bindLookups(statements, null, toValues(existing.join()));
+                        return lookups.isEmpty() ? CompletableFuture.completedFuture(null) :
+                                cassandra.executeAsync(toBatch(statements, lookups));
+                    })
+                    .thenRun(() -> onDeleted(tenantToken, id));
+        }
+
+        BoundStatement delete = statements.table.getDelete().bind(primaryKey);
+        return findExistingRowAsync(statements, tenantToken, id)
+                .thenCompose(existing -> {
+                    preDelete(tenantToken, id);
+
+                    log.debug("{}: Deleting entity of type {} identified by Id {}",
+                            tenantToken.getTenantId(), getEntityName(), id);
+                    return cassandra.executeAsync(withLookups(statements, delete,
+                            bindLookups(statements, null, toValues(existing))));
+                })
+                .thenRun(() -> onDeleted(tenantToken, id));
+    }
+
+    // ----- batch writes -----
+
+    /**
+     * One entity (or ID to delete) of a batch write, as it makes its way through the stages.
+     * The stages run one after another, but the entities within a stage get handled in parallel
+     */
+    private class BatchItem {
+        private final E entity;
+        private final ID id;
+        private final String entityTenantId;
+        // the column values to write, null for deletes
+        private Map<String, ByteBuffer> values;
+        // the row being overwritten / deleted, only read if needed
+        private R previous;
+        private volatile Throwable error;
+
+        private BatchItem(E entity, ID id, String entityTenantId) {
+            this.entity = entity;
+            this.id = id;
+            this.entityTenantId = entityTenantId;
+        }
+
+        private boolean isPending() {
+            return error == null;
+        }
+
+        // the first error wins, a later one (e.g. from another batch with the same entity) adds nothing
+        private synchronized void fail(Throwable e) {
+            if (error == null) {
+                error = CompletableFutures.unwrap(e);
+            }
+        }
+    }
+
+    /**
+     * Unlogged batch of statements that all go to the same partition,
+     * with the entities they belong to
+     */
+    private class PartitionBatch {
+        private final List<Statement> statements = new ArrayList<>();
+        private final Set<BatchItem> items = new LinkedHashSet<>();
+
+        private Statement toStatement(DaoStatements daoStatements) {
+            if (statements.size() == 1) {
+                return statements.get(0);
+            }
+            BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+            batch.addAll(statements);
+            batch.setConsistencyLevel(daoStatements.getWriteConsistencyLevel());
+            return batch;
+        }
+    }
+
+    @Override
+    public List<BatchResult<ID>> saveAll(@NonNull TenantToken tenantToken, @NonNull List<E> entities) {
+        return join(saveAllAsync(tenantToken, entities));
+    }
+
+    @Override
+    public List<BatchResult<ID>> saveOrUpdateAll(@NonNull TenantToken tenantToken, @NonNull List<E> entities) {
+        return join(saveOrUpdateAllAsync(tenantToken, entities));
+    }
+
+    @Override
+    public List<BatchResult<ID>> deleteAll(@NonNull TenantToken tenantToken, @NonNull List<ID> ids) {
+        return join(deleteAllAsync(tenantToken, ids));
+    }
+
+    // blocking equivalent of an async batch write
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable error = CompletableFutures.unwrap(e);
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            throw e;
+        }
+    }
 
-            // trigger post-extension point
-            postDelete(tenantToken, id);
+    /**
+     * In the READ_BEFORE_WRITE mode all the existence checks get read in parallel and then the new entities
+     * get written grouped by partition. In the CONDITIONAL mode every insert is a lightweight transaction
+     * of its own, since a batch of them would not get applied at all if just one of the entities existed
+     */
+    @Override
+    public CompletableFuture<List<BatchResult<ID>>> saveAllAsync(@NonNull TenantToken tenantToken,
+                                                                 @NonNull List<E> entities) {
+        long start = System.nanoTime();
+        DaoStatements statements;
+        List<BatchItem> items;
+        try {
+            statements = resolveStatements();
+            items = prepareBatch(tenantToken, entities);
+        } catch (RuntimeException e) {
+            return recordAsync(TimedOperation.DAO_SAVE_ALL, tenantToken, start, CompletableFutures.failed(e));
+        }
 
+        CompletableFuture<Void> written;
+        if (writeMode == WriteMode.CONDITIONAL) {
+            written = validateTenantsAsync(tenantToken, items)
+                    .thenCompose(v -> forEachPending(items, item -> insertIfNotExistsAsync(statements, item)));
         } else {
-            throw new NotFoundException(entityType,String.valueOf(id));
+            // make sure we check for duplicates in the actual tenant the entity belongs to
+            written = validateTenantsAsync(tenantToken, items)
+                    .thenCompose(v -> readPreviousRowsAsync(statements, items,
+                            item -> item.previous != null ? conflict(item.id) : null))
+                    .thenCompose(v -> writeBatchesAsync(statements, items,
+                            item -> bindBatchSave(statements, statements.table.getInsert(), item)));
+        }
+        return recordAsync(TimedOperation.DAO_SAVE_ALL, tenantToken, start,
+                written.thenApply(v -> toBatchResults(items, HttpStatus.CREATED, item -> onSaved(tenantToken, item.entity))));
+    }
+
+    /**
+     * Blind writes grouped by partition, the previous rows only get read if there are lookup tables to keep in sync
+     */
+    @Override
+    public CompletableFuture<List<BatchResult<ID>>> saveOrUpdateAllAsync(@NonNull TenantToken tenantToken,
+                                                                         @NonNull List<E> entities) {
+        long start = System.nanoTime();
+        DaoStatements statements;
+        List<BatchItem> items;
+        try {
+            statements = resolveStatements();
+            items = prepareBatch(tenantToken, entities);
+        } catch (RuntimeException e) {
+            return recordAsync(TimedOperation.DAO_SAVE_OR_UPDATE_ALL, tenantToken, start, CompletableFutures.failed(e));
+        }
+
+        CompletableFuture<Void> previous = lookupTables.isEmpty() ? CompletableFuture.completedFuture(null) :
+                readPreviousRowsAsync(statements, items, item -> null);
+        CompletableFuture<Void> written = CompletableFuture.allOf(validateTenantsAsync(tenantToken, items), previous)
+                .thenCompose(v -> writeBatchesAsync(statements, items,
+                        item -> bindBatchSave(statements, statements.table.getInsert(), item)));
+        return recordAsync(TimedOperation.DAO_SAVE_OR_UPDATE_ALL, tenantToken, start,
+                written.thenApply(v -> toBatchResults(items, HttpStatus.NO_CONTENT, item -> onSaved(tenantToken, item.entity))));
+    }
+
+    /**
+     * In the READ_BEFORE_WRITE mode all the existing rows get read in parallel and then deleted grouped by partition,
+     * in the CONDITIONAL mode every delete is a lightweight transaction of its own
+     */
+    @Override
+    public CompletableFuture<List<BatchResult<ID>>> deleteAllAsync(@NonNull TenantToken tenantToken,
+                                                                   @NonNull List<ID> ids) {
+        long start = System.nanoTime();
+        DaoStatements statements;
+        List<BatchItem> items;
+        try {
+            statements = resolveStatements();
+            validateBatch(ids);
+            items = new ArrayList<>(ids.size());
+            Set<ID> unique = new HashSet<>();
+            for (ID id : ids) {
+                BatchItem item = new BatchItem(null, id, tenantToken.getTenantId());
+                items.add(item);
+                if (id == null) {
+                    item.fail(new IllegalArgumentException("id is required"));
+                } else if (!unique.add(id)) {
+                    item.fail(duplicateInBatch(id));
+                }
+            }
+        } catch (RuntimeException e) {
+            return recordAsync(TimedOperation.DAO_DELETE_ALL, tenantToken, start, CompletableFutures.failed(e));
+        }
+
+        CompletableFuture<Void> deleted;
+        if (writeMode == WriteMode.CONDITIONAL) {
+            deleted = forEachPending(items, item -> deleteAsyncInternal(statements, tenantToken, item.id));
+            // the extension points already ran within every single delete
+            return recordAsync(TimedOperation.DAO_DELETE_ALL, tenantToken, start,
+                    deleted.thenApply(v -> toBatchResults(items, HttpStatus.NO_CONTENT, item -> {})));
+        }
+
+        deleted = readPreviousRowsAsync(statements, items, item -> item.previous == null ? notFound(item.id) : null)
+                .thenCompose(v -> writeBatchesAsync(statements, items, item -> {
+                    preDelete(tenantToken, item.id);
+                    return withLookupList(statements.table.getDelete().bind(getQueryColumns(item.entityTenantId, item.id)),
+                            bindLookups(statements, null, toValues(item.previous)));
+                }));
+        return recordAsync(TimedOperation.DAO_DELETE_ALL, tenantToken, start,
+                deleted.thenApply(v -> toBatchResults(items, HttpStatus.NO_CONTENT, item -> onDeleted(tenantToken, item.id))));
+    }
+
+    /**
+     * Runs all the per entity checks upfront on the calling thread, once per entity,
+     * any entity that fails them does not go any further
+     */
+    private List<BatchItem> prepareBatch(TenantToken tenantToken, List<E> entities) {
+        validateBatch(entities);
+
+        List<BatchItem> items = new ArrayList<>(entities.size());
+        Set<List<Object>> unique = new HashSet<>();
+        for (E entity : entities) {
+            if (entity == null) {
+                BatchItem item = new BatchItem(null, null, null);
+                item.fail(new IllegalArgumentException("Batch cannot contain null entities"));
+                items.add(item);
+                continue;
+            }
+
+            BatchItem item = new BatchItem(entity, getEntityId(entity), getEntityTenantId(tenantToken, entity));
+            items.add(item);
+            try {
+                preSave(tenantToken, entity);
+                validate(tenantToken, entity);
+                if (!unique.add(Arrays.asList(getQueryColumns(item.entityTenantId, item.id)))) {
+                    throw duplicateInBatch(item.id);
+                }
+                item.values = toValues(toRow(entity));
+            } catch (RuntimeException e) {
+                item.fail(e);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Ensures the tenants the entities belong to exist, every tenant gets looked up just once
+     */
+    private CompletableFuture<Void> validateTenantsAsync(TenantToken tenantToken, List<BatchItem> items) {
+        if (!isTenantEntity()) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        Map<String, CompletableFuture<Tenant>> tenants = new HashMap<>();
+        for (BatchItem item : items) {
+            if (item.isPending()) {
+                tenants.computeIfAbsent(item.entityTenantId, tenantId -> CompletableFutures.start(() ->
+                        getTenantDao().findExistingByIdAsync(tenantToken, tenantId)));
+            }
+        }
+        return CompletableFuture.allOf(tenants.values().toArray(new CompletableFuture<?>[tenants.size()]))
+                .handle((v, e) -> {
+                    for (BatchItem item : items) {
+                        if (item.isPending()) {
+                            tenants.get(item.entityTenantId).whenComplete((tenant, error) -> {
+                                if (error != null) {
+                                    item.fail(error);
+                                }
+                            });
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Reads the current row of every pending entity, with a bounded number of reads in flight
+     *
+     * @param check the error the entity fails with given its current row, null if none
+     */
+    private CompletableFuture<Void> readPreviousRowsAsync(DaoStatements statements, List<BatchItem> items,
+                                                          Function<BatchItem, RuntimeException> check) {
+        return forEachPending(items, item -> findRowForWriteAsync(statements, getQueryColumns(item.entityTenantId, item.id))
+                .thenAccept(row -> {
+                    item.previous = row;
+                    RuntimeException error = check.apply(item);
+                    if (error != null) {
+                        throw error;
+                    }
+                }));
+    }
+
+    /**
+     * Runs the operation for every pending entity, with a bounded number of them in flight,
+     * the entity fails if the operation does
+     */
+    private CompletableFuture<Void> forEachPending(List<BatchItem> items, Function<BatchItem, CompletableFuture<?>> operation) {
+        List<BatchItem> pending = items.stream().filter(BatchItem::isPending).collect(Collectors.toList());
+        return CompletableFutures.forEachBounded(pending.size(), config.getCassandra().getBatch().getMaxInFlight(), i -> {
+            BatchItem item = pending.get(i);
+            CompletableFuture<?> done;
+            try {
+                done = operation.apply(item);
+            } catch (RuntimeException e) {
+                done = CompletableFutures.failed(e);
+            }
+            return done.whenComplete((v, e) -> {
+                if (e != null) {
+                    item.fail(e);
+                }
+            });
+        });
+    }
+
+    private CompletableFuture<?> insertIfNotExistsAsync(DaoStatements statements, BatchItem item) {
+        return cassandra.executeAsync(bindValues(statements.table.getInsertIfNotExists(), item.values))
+                .thenCompose(results -> {
+                    if (!results.wasApplied()) {
+                        throw conflict(item.id);
+                    }
+                    // a lightweight transaction cannot be batched with writes to other partitions
+                    List<Statement> lookups = bindLookups(statements, item.values, null);
+                    return lookups.isEmpty() ? CompletableFuture.completedFuture(null) :
+                            cassandra.executeAsync(toBatch(statements, lookups));
+                });
+    }
+
+    private List<Statement> bindBatchSave(DaoStatements statements, PreparedStatement write, BatchItem item) {
+        return withLookupList(bindValues(write, item.values),
+                bindLookups(statements, item.values, toValues(item.previous)));
+    }
+
+    private static List<Statement> withLookupList(Statement write, List<Statement> lookups) {
+        List<Statement> statements = new ArrayList<>(lookups.size() + 1);
+        statements.add(write);
+        statements.addAll(lookups);
+        return statements;
+    }
+
+    /**
+     * Writes the statements of all the pending entities as unlogged batches, every batch with statements
+     * for a single partition only (so the coordinator does not have to fan it out to other nodes),
+     * with a bounded number of batches in flight.
+     *
+     * An entity fails if any of its batches does, but its other batches (e.g. lookup table entries
+     * in other partitions) may still have been written
+     *
+     * @param bind all the statements to write for an entity
+     */
+    private CompletableFuture<Void> writeBatchesAsync(DaoStatements daoStatements, List<BatchItem> items,
+                                                      Function<BatchItem, List<Statement>> bind) {
+        AppConfig.BatchWriteConfig batchConfig = config.getCassandra().getBatch();
+        Configuration configuration = cassandra.getCluster().getConfiguration();
+        ProtocolVersion protocolVersion = configuration.getProtocolOptions().getProtocolVersion();
+        CodecRegistry codecRegistry = configuration.getCodecRegistry();
+
+        // partition -> the batch currently being filled for it
+        Map<Object, PartitionBatch> open = new HashMap<>();
+        List<PartitionBatch> batches = new ArrayList<>();
+        for (BatchItem item : items) {
+            if (!item.isPending()) {
+                continue;
+            }
+            List<Statement> statements;
+            try {
+                statements = bind.apply(item);
+            } catch (RuntimeException e) {
+                item.fail(e);
+                continue;
+            }
+
+            for (Statement statement : statements) {
+                Object partition = getPartition(statement, protocolVersion, codecRegistry);
+                PartitionBatch batch = open.get(partition);
+                if (batch == null || batch.statements.size() >= batchConfig.getMaxStatements()) {
+                    batch = new PartitionBatch();
+                    open.put(partition, batch);
+                    batches.add(batch);
+                }
+                batch.statements.add(statement);
+                batch.items.add(item);
+            }
+        }
+
+        log.debug("Writing {} entities of type {} in {} batches", items.size(), getEntityName(), batches.size());
+        return CompletableFutures.forEachBounded(batches.size(), batchConfig.getMaxInFlight(), i -> {
+            PartitionBatch batch = batches.get(i);
+            return cassandra.executeAsync(batch.toStatement(daoStatements))
+                    .whenComplete((results, e) -> {
+                        if (e != null) {
+                            batch.items.forEach(item -> item.fail(e));
+                        }
+                    });
+        });
+    }
+
+    // statements with equal keys write to the same partition of the same table
+    private static Object getPartition(Statement statement, ProtocolVersion protocolVersion, CodecRegistry codecRegistry) {
+        ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+        if (routingKey == null || !(statement instanceof BoundStatement)) {
+            // not known, so it goes into a batch of its own
+            return new Object();
+        }
+        return Arrays.asList(((BoundStatement) statement).preparedStatement().getVariables().getTable(0), routingKey);
+    }
+
+    /**
+     * Runs the post-write extension point for every entity that got written
+     * and turns the outcome of every entity into its result, in the original order
+     */
+    private List<BatchResult<ID>> toBatchResults(List<BatchItem> items, HttpStatus success, Consumer<BatchItem> postWrite) {
+        List<BatchResult<ID>> results = new ArrayList<>(items.size());
+        for (BatchItem item : items) {
+            if (item.isPending()) {
+                try {
+                    postWrite.accept(item);
+                } catch (RuntimeException e) {
+                    item.fail(e);
+                }
+            }
+
+            if (item.isPending()) {
+                results.add(BatchResult.succeeded(item.id, success));
+            } else {
+                BatchResult<ID> result = BatchResult.failed(item.id, item.error);
+                if (result.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                    log.error("Batch write of {} identified by Id {} failed", getEntityName(), item.id, item.error);
+                }
+                results.add(result);
+            }
+        }
+        return results;
     }
 
     /**
      * Needs to be overriden if the entity type & row type are different
      */
     protected R toRow(E entity) {
-       if (rowType.equals(entityType)) {
+       if (rowType.equals(getEntityType())) {
            return (R)entity;
        } else {
            throw new NotImplementedException("Need to override to toRow() due to entity/row types being different");
@@ -296,7 +1586,7 @@ public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> impleme
      * Needs to be overriden if the entity type & row type are different
      */
     protected E toEntity(R row) {
-        if (rowType.equals(entityType)) {
+        if (rowType.equals(getEntityType())) {
             return (E)row;
         } else {
             throw new NotImplementedException("Need to override to toRow() due to entity/row types being different");
@@ -316,38 +1606,4 @@ public abstract class AbstractCassandraDao<E extends Comparable<E>,R,ID> impleme
                 .collect(Collectors.toList());
     }
 
-    /**
-     * Needs to be overriden so that we can always find what is the ID
-     * of an entity without having to resort to slow reflection
-     */
-    protected abstract ID getEntityId(E entity);
-
-    /**
-     * Extension point for any pre-save logic.
-     * Any DAO can override this if they need to add custom logic,
-     * custom validation, etc
-     */
-    protected void preSave(TenantToken tenantToken, E entity) {}
-
-    /**
-     * Extension point for any post-save logic.
-     * Any DAO can override this if they need to add custom logic
-     */
-    protected void postSave(TenantToken tenantToken, E entity) {}
-
-    /**
-     * Extension point for any pre-delete logic.
-     * Any DAO can override this if they need to add custom logic,
-     * custom validation, etc
-     */
-    protected void preDelete(TenantToken tenantToken, ID id) {}
-
-    /**
-     * Extension point for any post-delete logic.
-     * Any DAO can override this if they need to add custom logic
-     */
-    protected void postDelete(TenantToken tenantToken, ID id) {}
-
-
-
 }
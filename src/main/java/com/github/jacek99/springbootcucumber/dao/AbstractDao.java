@@ -0,0 +1,199 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.ThreadLocals;
+import com.github.jacek99.springbootcucumber.domain.ITenantEntity;
+import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.exception.ConflictException;
+import com.github.jacek99.springbootcucumber.exception.ConstraintViolationException;
+import com.github.jacek99.springbootcucumber.exception.NotFoundException;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import javax.validation.ConstraintViolation;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+/**
+ * Common ancestor for all entity DAOs, regardless of the DB implementation.
+ * Holds the security / validation rules and errors that every implementation must share
+ *
+ * E = entity type
+ * ID = entity ID type (usually String)
+ *
+ * @author Jacek Furmankiewicz
+ */
+public abstract class AbstractDao<E extends Comparable<E>,ID> implements IGenericDao<E,ID>, IGenericAsyncDao<E,ID> {
+
+    @Autowired
+    private LocalValidatorFactoryBean validator;
+
+    @Autowired
+    @Getter(AccessLevel.PROTECTED)
+    private ITenantDao tenantDao;
+
+    @Getter(AccessLevel.PUBLIC)
+    private final Class<E> entityType;
+
+    /**
+     * Tells if this entity is specific to a single tenant (usually the case)
+     * or system-wide
+     */
+    @Getter(AccessLevel.PUBLIC)
+    private final boolean tenantEntity;
+
+    protected AbstractDao(@NonNull Class<E> entityType) {
+        this.entityType = entityType;
+        tenantEntity = ITenantEntity.class.isAssignableFrom(entityType);
+    }
+
+    // helper method for logging, error messages, etc
+    protected String getEntityName() {
+        return entityType.getSimpleName();
+    }
+
+    // finds the tenant the entity belongs to
+    // in case of system account, it may belong to a different tenant
+    protected String getEntityTenantId(TenantToken tenantToken, E entity) {
+        return isTenantEntity() ?
+                ((ITenantEntity)entity).getTenantId() : tenantToken.getTenantId();
+    }
+
+    protected void validateSecurity(TenantToken tenantToken, ITenantEntity entity) {
+
+        if (StringUtils.isEmpty(entity.getTenantId())) {
+            // should never happen, should have gotten validated at the REST layer
+            throw new IllegalArgumentException(ThreadLocals.STRINGBUILDER.get()
+                    .append(getEntityType().getSimpleName())
+                    .append(" identified by ID ").append(getEntityId((E)entity))
+                    .append(" is missing tenantId")
+                    .toString());
+        } else if (!tenantToken.getTenant().getTenantId().equals(Tenant.SYSTEM_TENANT) &&
+            !tenantToken.getTenant().getTenantId().equals(entity.getTenantId())) {
+            // system tenant can create entities for any tenant,
+            // but otherwise tenants can only create entities for their own tenant
+            throw new SecurityException(ThreadLocals.STRINGBUILDER.get()
+                    .append("Tenant ").append(tenantToken.getTenant().getTenantId())
+                    .append(" user ").append(tenantToken.getUser().getUserId())
+                    .append(" attempted to create entity of type ").append(getEntityType().getSimpleName())
+                    .append(" for tenant ").append(entity.getTenantId())
+                    .toString());
+        }
+    }
+
+    /**
+     * Security and bean validation of an entity about to be saved
+     */
+    protected void validate(TenantToken tenantToken, E entity) {
+        // ensure user has rights to save data for this tenant
+        if (isTenantEntity()) {
+            validateSecurity(tenantToken, (ITenantEntity) entity);
+        }
+
+        // ensure it gets validated, should have already happened at the REST layer
+        // but just in case
+        Set<ConstraintViolation<E>> errors = validator.validate(entity);
+        if (errors != null && !errors.isEmpty()) {
+            // sort them in alphabetical order, for consistency in testing
+            Set<ConstraintViolation<E>> sorted = new TreeSet<>(
+                    (o1,o2) -> o1.getPropertyPath().toString()
+                    .compareTo(o2.getPropertyPath().toString())
+            );
+            sorted.addAll(errors);
+
+            ConstraintViolation first = sorted.iterator().next();
+            throw new ConstraintViolationException(
+                    first.getPropertyPath().toString(),
+                    first.getMessage());
+        }
+    }
+
+    /**
+     * Ensures the tenant the entity belongs to exists, if not found will throw 404 error
+     */
+    protected void validateTenantExists(TenantToken tenantToken, E entity) {
+        if (isTenantEntity()) {
+            tenantDao.findExistingById(tenantToken, ((ITenantEntity) entity).getTenantId());
+        }
+    }
+
+    /**
+     * Async equivalent of validateTenantExists(), fails with 404 error if not found
+     */
+    protected CompletableFuture<?> validateTenantExistsAsync(TenantToken tenantToken, E entity) {
+        return isTenantEntity() ?
+                tenantDao.findExistingByIdAsync(tenantToken, ((ITenantEntity) entity).getTenantId()) :
+                CompletableFuture.completedFuture(null);
+    }
+
+    protected NotFoundException notFound(ID id) {
+        return new NotFoundException(entityType,String.valueOf(id));
+    }
+
+    protected ConflictException conflict(ID id) {
+        return new ConflictException(entityType,String.valueOf(id),
+                ThreadLocals.STRINGBUILDER.get()
+                .append(getEntityType().getSimpleName())
+                .append(" identified by ID ")
+                .append(id)
+                .append(" already exists").toString());
+    }
+
+    /**
+     * Rejects a batch write as a whole, before any of its entities get looked at
+     */
+    protected void validateBatch(List<?> batch) {
+        Preconditions.checkArgument(batch.size() <= MAX_BATCH_SIZE, "A batch can have at most %s entries, got %s",
+                MAX_BATCH_SIZE, batch.size());
+    }
+
+    /**
+     * The same entity more than once within a batch write, which would be written in an undefined order
+     */
+    protected IllegalArgumentException duplicateInBatch(ID id) {
+        return new IllegalArgumentException(ThreadLocals.STRINGBUILDER.get()
+                .append(getEntityType().getSimpleName())
+                .append(" identified by ID ")
+                .append(id)
+                .append(" is in the batch more than once").toString());
+    }
+
+    /**
+     * Needs to be overriden so that we can always find what is the ID
+     * of an entity without having to resort to slow reflection
+     */
+    protected abstract ID getEntityId(E entity);
+
+    /**
+     * Extension point for any pre-save logic.
+     * Any DAO can override this if they need to add custom logic,
+     * custom validation, etc
+     */
+    protected void preSave(TenantToken tenantToken, E entity) {}
+
+    /**
+     * Extension point for any post-save logic.
+     * Any DAO can override this if they need to add custom logic
+     */
+    protected void postSave(TenantToken tenantToken, E entity) {}
+
+    /**
+     * Extension point for any pre-delete logic.
+     * Any DAO can override this if they need to add custom logic,
+     * custom validation, etc
+     */
+    protected void preDelete(TenantToken tenantToken, ID id) {}
+
+    /**
+     * Extension point for any post-delete logic.
+     * Any DAO can override this if they need to add custom logic
+     */
+    protected void postDelete(TenantToken tenantToken, ID id) {}
+
+}
@@ -0,0 +1,50 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import lombok.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Outcome of a single entity within a batch write, in the same order as the entities were passed in.
+ * The status is the HTTP status the same operation on the single entity would have resulted in
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class BatchResult<ID> {
+
+    private ID id;
+    private int status;
+
+    /**
+     * Why the entity did not get written, null if it did
+     */
+    private String error;
+
+    public static <ID> BatchResult<ID> succeeded(ID id, HttpStatus status) {
+        return new BatchResult<>(id, status.value(), null);
+    }
+
+    public static <ID> BatchResult<ID> failed(ID id, Throwable error) {
+        return new BatchResult<>(id, toStatus(error).value(), error.getMessage());
+    }
+
+    public boolean isSucceeded() {
+        return error == null;
+    }
+
+    // same mapping as the exception handlers, i.e. the @ResponseStatus of our own exceptions
+    private static HttpStatus toStatus(Throwable error) {
+        ResponseStatus status = AnnotatedElementUtils.findMergedAnnotation(error.getClass(), ResponseStatus.class);
+        if (status != null) {
+            return status.code();
+        } else if (error instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        } else if (error instanceof SecurityException) {
+            return HttpStatus.FORBIDDEN;
+        } else {
+            return HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+/**
+ * Creates the schema / min required data on startup, independent of any DB implementation
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface IDatabaseInitializer {
+
+    /**
+     * Spring profile that replaces Cassandra with the in-memory DAOs
+     */
+    String PROFILE_IN_MEMORY = "inmemory";
+
+    /**
+     * Resets the database back to an empty state (plus the min required data)
+     * For testing support only, needs the TEST_MODE=true env variable
+     * @throws SecurityException if not in test mode
+     */
+    void initForTesting();
+}
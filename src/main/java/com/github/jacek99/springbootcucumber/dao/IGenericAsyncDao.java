@@ -0,0 +1,77 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link IGenericDao}, independent of any DB implementation.
+ * Errors are reported by completing the future exceptionally (with the same exceptions the
+ * blocking DAO would throw), never by throwing from the method itself
+ * @author Jacek Furmankiewicz
+ *
+ * E = entity type
+ * ID = ID type (usually String)
+ */
+public interface IGenericAsyncDao<E extends Comparable<E>,ID> {
+
+    /**
+     * Finds the entity. If not found fails with 404 error
+     */
+    CompletableFuture<E> findExistingByIdAsync(TenantToken tenantToken, ID id);
+
+    /**
+     * Finds the entity, if present
+     */
+    CompletableFuture<Optional<E>> findByIdAsync(TenantToken tenantToken, ID id);
+
+    /**
+     * Finds all entities for the specified tenant
+     */
+    CompletableFuture<List<E>> findAllAsync(TenantToken tenantToken);
+
+    /**
+     * Finds a single page of entities for the specified tenant
+     */
+    CompletableFuture<Page<E>> findPageAsync(TenantToken tenantToken, int limit, String cursor);
+
+    /**
+     * Saves an entity within a tenant.
+     * Fails with ConflictException if entity with this ID already exists
+     */
+    CompletableFuture<Void> saveAsync(TenantToken tenantToken, E entity);
+
+    /**
+     * Updates an existing entity within a tenant
+     * Fails with NotFoundException if entity not found by ID
+     */
+    CompletableFuture<Void> updateAsync(TenantToken tenantToken, E entity);
+
+    /**
+     * Saves the entity, regardless of whether it existed previously or not
+     */
+    CompletableFuture<Void> saveOrUpdateAsync(TenantToken tenantToken, E entity);
+
+    /**
+     * Deletes an entity by ID
+     */
+    CompletableFuture<Void> deleteAsync(TenantToken tenantToken, ID id);
+
+    /**
+     * Saves multiple new entities, completes with the result for every entity.
+     * Only fails as a whole if the batch itself is invalid (e.g. too large)
+     */
+    CompletableFuture<List<BatchResult<ID>>> saveAllAsync(TenantToken tenantToken, List<E> entities);
+
+    /**
+     * Saves multiple entities, regardless of whether they existed previously or not
+     */
+    CompletableFuture<List<BatchResult<ID>>> saveOrUpdateAllAsync(TenantToken tenantToken, List<E> entities);
+
+    /**
+     * Deletes multiple entities by ID
+     */
+    CompletableFuture<List<BatchResult<ID>>> deleteAllAsync(TenantToken tenantToken, List<ID> ids);
+
+}
@@ -1,6 +1,7 @@
 package com.github.jacek99.springbootcucumber.dao;
 
 import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +14,16 @@ import java.util.Optional;
  */
 public interface IGenericDao<E extends Comparable<E>,ID> {
 
+    /**
+     * Max number of entities that can be requested in a single page
+     */
+    int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Max number of entities that can be written in a single batch
+     */
+    int MAX_BATCH_SIZE = 1000;
+
     /**
      * Finds the entity. If not found throws 404 error
      */
@@ -28,6 +39,21 @@ public interface IGenericDao<E extends Comparable<E>,ID> {
      */
     List<E> findAll(TenantToken tenantToken);
 
+    /**
+     * Lazily reads all entities for the specified tenant, for streaming them out without ever
+     * holding all of them in memory. In the DB order, i.e. the entity ID order within a tenant,
+     * but not sorted across tenants (system tenant).
+     * The first read happens right away, so any errors get thrown from this method
+     */
+    Iterator<E> iterate(TenantToken tenantToken);
+
+    /**
+     * Finds a single page of entities for the specified tenant, in a stable order
+     * @param limit max number of entities to return (up to MAX_PAGE_SIZE)
+     * @param cursor the nextCursor of the previous page, null to start from the first page
+     */
+    Page<E> findPage(TenantToken tenantToken, int limit, String cursor);
+
     /**
      * Saves an entity within a tenant.
      * @throws com.github.jacek99.springbootcucumber.exception.ConflictException if entity with this ID already exists
@@ -42,7 +68,7 @@ public interface IGenericDao<E extends Comparable<E>,ID> {
 
     /**
      * Saves the entity, regardless of whether it existed previously or not
-     * Good for batch uploads / mass replace, etc
+     * (for batch uploads / mass replace see saveOrUpdateAll())
      */
     void saveOrUpate(TenantToken tenantToken, E entity);
 
@@ -51,4 +77,24 @@ public interface IGenericDao<E extends Comparable<E>,ID> {
      */
     void delete(TenantToken tenantToken, ID id);
 
+    /**
+     * Saves multiple new entities (up to MAX_BATCH_SIZE), same rules as save() for every one of them.
+     * Not atomic, every entity gets written or rejected on its own
+     * @return the result for every entity, in the same order
+     */
+    List<BatchResult<ID>> saveAll(TenantToken tenantToken, List<E> entities);
+
+    /**
+     * Saves multiple entities (up to MAX_BATCH_SIZE), regardless of whether they existed previously or not.
+     * Good for batch uploads / mass replace, etc
+     * @return the result for every entity, in the same order
+     */
+    List<BatchResult<ID>> saveOrUpdateAll(TenantToken tenantToken, List<E> entities);
+
+    /**
+     * Deletes multiple entities by ID (up to MAX_BATCH_SIZE), same rules as delete() for every one of them
+     * @return the result for every ID, in the same order
+     */
+    List<BatchResult<ID>> deleteAll(TenantToken tenantToken, List<ID> ids);
+
 }
@@ -0,0 +1,38 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.domain.Restaurant;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Restaurant DAO, independent of any DB implementation
+ *
+ * The lookups are always within the caller's own tenant
+ * (even for the system tenant) and match the values exactly
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface IRestaurantDao extends IGenericDao<Restaurant,String>, IGenericAsyncDao<Restaurant,String> {
+
+    /**
+     * Finds all restaurants in a country
+     */
+    List<Restaurant> findByCountry(TenantToken tenantToken, String countryCode);
+
+    /**
+     * Finds all restaurants in a state of a country
+     */
+    List<Restaurant> findByState(TenantToken tenantToken, String countryCode, String stateCode);
+
+    /**
+     * Finds all restaurants with the name
+     */
+    List<Restaurant> findByName(TenantToken tenantToken, String name);
+
+    CompletableFuture<List<Restaurant>> findByCountryAsync(TenantToken tenantToken, String countryCode);
+
+    CompletableFuture<List<Restaurant>> findByStateAsync(TenantToken tenantToken, String countryCode, String stateCode);
+
+    CompletableFuture<List<Restaurant>> findByNameAsync(TenantToken tenantToken, String name);
+}
@@ -0,0 +1,22 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.domain.Tenant;
+import java.util.Optional;
+
+/**
+ * Tenant DAO, independent of any DB implementation
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface ITenantDao extends IGenericDao<Tenant,String>, IGenericAsyncDao<Tenant,String> {
+
+    /**
+     * Required for auth layer support, when the TenantToken has not been created yet
+     */
+    Optional<Tenant> findById(String tenantId);
+
+    /**
+     * Makes sure system tenant is created on an empty DB
+     */
+    void createSystemTenant();
+}
@@ -0,0 +1,59 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.security.PasswordHashingService;
+import java.util.Optional;
+import lombok.Value;
+
+/**
+ * Tenant user DAO, independent of any DB implementation
+ *
+ * @author Jacek Furmankiewicz
+ */
+public interface ITenantUserDao extends IGenericDao<TenantUser,String>, IGenericAsyncDao<TenantUser,String> {
+
+    /**
+     * Name of the system admin user
+     */
+    String ADMIN = "admin";
+
+    /**
+     * Default password of the system admin user
+     */
+    String ADMIN_DEFAULT_PASSWORD = "adminadmin";
+
+    /**
+     * Returned instead of the actual password, which is never stored (only its hash)
+     */
+    String MASKED_PASSWORD = "**********";
+
+    /**
+     * For use in auth filter where the tenant may not be present yet
+     */
+    Optional<TenantUser> findById(String tenantId, String userId);
+
+    /**
+     * When all the tokens issued so far for a user got revoked (i.e. when the user was last changed),
+     * as seen by all the nodes
+     *
+     * @return empty if the user does not exist (any more), i.e. all its tokens are revoked
+     */
+    Optional<Long> findTokensRevokedAt(String tenantId, String userId);
+
+    /**
+     * Creates the system admin account if not present in DB
+     */
+    void createSystemAdmin();
+
+    /**
+     * Return user with password hash info, required by the authentication layer to verify incoming request
+     */
+    Optional<TenantUserWithHashInformation> getPasswordHashInformation(String tenantId, String userId);
+
+    // needed for the password hashing service for authentication verification
+    @Value
+    class TenantUserWithHashInformation {
+        private TenantUser user;
+        private PasswordHashingService.HashInfo hashInfo;
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import java.util.List;
+import lombok.Value;
+
+/**
+ * A single page of entities, returned from paged queries
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class Page<E> {
+
+    private List<E> items;
+
+    /**
+     * Opaque token to pass back in order to get the next page,
+     * null if this was the last page
+     */
+    private String nextCursor;
+}
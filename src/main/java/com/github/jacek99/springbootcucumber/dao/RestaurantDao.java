@@ -1,21 +1,69 @@
 package com.github.jacek99.springbootcucumber.dao;
 
 import com.github.jacek99.springbootcucumber.domain.Restaurant;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.NonNull;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_COUNTRY_CODE;
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_NAME;
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_STATE_CODE;
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.TABLE_RESTAURANT_BY_COUNTRY;
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.TABLE_RESTAURANT_BY_NAME;
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.TABLE_RESTAURANT_BY_STATE;
+
 /**
  * DAO for all restaurants within a tenant
  * @author Jacek Furmankiewicz
  */
 @Repository
-public class RestaurantDao extends AbstractCassandraDao<Restaurant,Restaurant,String> {
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
+public class RestaurantDao extends AbstractCassandraDao<Restaurant,Restaurant,String> implements IRestaurantDao {
 
     public RestaurantDao() {
         super(Restaurant.class);
+
+        addLookupTable(TABLE_RESTAURANT_BY_COUNTRY, COLUMN_COUNTRY_CODE);
+        addLookupTable(TABLE_RESTAURANT_BY_STATE, COLUMN_COUNTRY_CODE, COLUMN_STATE_CODE);
+        addLookupTable(TABLE_RESTAURANT_BY_NAME, COLUMN_NAME);
     }
 
     @Override
     protected String getEntityId(Restaurant entity) {
         return entity.getId();
     }
+
+    @Override
+    public List<Restaurant> findByCountry(@NonNull TenantToken tenantToken, String countryCode) {
+        return findByLookup(tenantToken, TABLE_RESTAURANT_BY_COUNTRY, countryCode);
+    }
+
+    @Override
+    public List<Restaurant> findByState(@NonNull TenantToken tenantToken, String countryCode, String stateCode) {
+        return findByLookup(tenantToken, TABLE_RESTAURANT_BY_STATE, countryCode, stateCode);
+    }
+
+    @Override
+    public List<Restaurant> findByName(@NonNull TenantToken tenantToken, String name) {
+        return findByLookup(tenantToken, TABLE_RESTAURANT_BY_NAME, name);
+    }
+
+    @Override
+    public CompletableFuture<List<Restaurant>> findByCountryAsync(@NonNull TenantToken tenantToken, String countryCode) {
+        return findByLookupAsync(tenantToken, TABLE_RESTAURANT_BY_COUNTRY, countryCode);
+    }
+
+    @Override
+    public CompletableFuture<List<Restaurant>> findByStateAsync(@NonNull TenantToken tenantToken, String countryCode,
+                                                                String stateCode) {
+        return findByLookupAsync(tenantToken, TABLE_RESTAURANT_BY_STATE, countryCode, stateCode);
+    }
+
+    @Override
+    public CompletableFuture<List<Restaurant>> findByNameAsync(@NonNull TenantToken tenantToken, String name) {
+        return findByLookupAsync(tenantToken, TABLE_RESTAURANT_BY_NAME, name);
+    }
 }
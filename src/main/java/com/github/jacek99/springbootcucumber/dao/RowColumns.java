@@ -0,0 +1,93 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.mapping.annotations.Column;
+import com.datastax.driver.mapping.annotations.Transient;
+import com.google.common.reflect.TypeToken;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+
+/**
+ * The mapped columns of a row class, serialized straight from its fields (mapped the same way as
+ * by the object mapper), for binding any prepared statement of the row's table or its lookup tables.
+ * The fields and codecs get resolved once, every row then gets serialized exactly once per write
+ *
+ * @author Jacek Furmankiewicz
+ */
+class RowColumns<R> {
+
+    private final List<ColumnAccessor> columns = new ArrayList<>();
+    private final ProtocolVersion protocolVersion;
+
+    RowColumns(Class<R> rowType, TableMetadata table, CodecRegistry codecRegistry, ProtocolVersion protocolVersion) {
+        this.protocolVersion = protocolVersion;
+        for (Class<?> type = rowType; type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) ||
+                        field.isAnnotationPresent(Transient.class) || field.isSynthetic()) {
+                    continue;
+                }
+                String name = getColumnName(field);
+                ColumnMetadata column = table.getColumn(name);
+                if (column == null) {
+                    throw new IllegalStateException("Field " + field.getName() + " of " + rowType.getSimpleName() +
+                            " has no column " + name + " in table " + table.getName());
+                }
+                field.setAccessible(true);
+                @SuppressWarnings("unchecked")
+                TypeCodec<Object> codec = (TypeCodec<Object>) (TypeCodec<?>) codecRegistry.codecFor(column.getType(),
+                        TypeToken.of(field.getGenericType()).wrap());
+                columns.add(new ColumnAccessor(column.getName(), field, codec));
+            }
+        }
+    }
+
+    private static String getColumnName(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        if (column == null || column.name().isEmpty()) {
+            return field.getName().toLowerCase();
+        }
+        return column.caseSensitive() ? column.name() : column.name().toLowerCase();
+    }
+
+    /**
+     * Column name -> serialized value (null for a null value), null if no row
+     */
+    Map<String, ByteBuffer> serialize(R row) {
+        if (row == null) {
+            return null;
+        }
+        Map<String, ByteBuffer> values = new HashMap<>();
+        for (ColumnAccessor column : columns) {
+            values.put(column.name, column.serialize(row, protocolVersion));
+        }
+        return values;
+    }
+
+    @AllArgsConstructor
+    private static class ColumnAccessor {
+        private final String name;
+        private final Field field;
+        private final TypeCodec<Object> codec;
+
+        private ByteBuffer serialize(Object row, ProtocolVersion protocolVersion) {
+            Object value;
+            try {
+                value = field.get(row);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read field " + field.getName(), e);
+            }
+            return value == null ? null : codec.serialize(value, protocolVersion);
+        }
+    }
+}
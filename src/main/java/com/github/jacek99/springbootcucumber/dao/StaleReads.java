@@ -0,0 +1,145 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.github.jacek99.springbootcucumber.cassandra.CircuitBreaker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.MapMaker;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Last known good reads of the Cassandra DAOs, served instead of failing while Cassandra is unavailable
+ * (circuit breaker open, or the read failing because of it).
+ *
+ * Every DAO holds its own caches. A value served stale gets marked as such, so that the response can carry
+ * a staleness warning no matter which thread completes it. Cached values are shared instances
+ * and must not be modified
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
+public class StaleReads implements AdminStatistics {
+
+    @Autowired
+    private AppConfig config;
+
+    // value served stale -> when it was read, by identity, gone along with the value
+    private final ConcurrentMap<Object, Long> served = new MapMaker().weakKeys().makeMap();
+
+    private final Map<String, Cache<?, ?>> caches = new MapMaker().makeMap();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * A new cache, for a single DAO. Every entity counts towards the configured max, i.e. a list
+     * weighs as much as all its entities
+     */
+    public <K, V> ReadCache<K, V> newCache(String name) {
+        AppConfig.CircuitBreakerConfig circuitBreaker = config.getCassandra().getCircuitBreaker();
+        Cache<K, Entry<V>> cache = CacheBuilder.newBuilder()
+                .maximumWeight(circuitBreaker.getStaleReadsMaxEntities())
+                .<K, Entry<V>>weigher((key, entry) -> entry.value instanceof Collection ?
+                        Math.max(1, ((Collection<?>) entry.value).size()) : 1)
+                .expireAfterWrite(circuitBreaker.getStaleReadsExpirySeconds(), TimeUnit.SECONDS)
+                .build();
+        caches.put(name, cache);
+        return new ReadCache<>(cache, circuitBreaker.getStaleReadsMaxEntities() > 0);
+    }
+
+    /**
+     * When a value served stale was read from Cassandra
+     *
+     * @return null if it was not served stale
+     */
+    public Long getReadAt(Object value) {
+        return served.get(value);
+    }
+
+    @Override
+    public String getName() {
+        return "staleReads";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("served", hits.sum());
+        result.put("missed", misses.sum());
+        Map<String, Object> sizes = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> sizes.put(name, cache.size()));
+        result.put("cached", sizes);
+        return result;
+    }
+
+    @AllArgsConstructor
+    private static class Entry<V> {
+        private final V value;
+        private final long readAt;
+    }
+
+    /**
+     * Last known good values of a single DAO read, e.g. by ID
+     */
+    @AllArgsConstructor
+    public class ReadCache<K, V> {
+
+        private final Cache<K, Entry<V>> cache;
+        private final boolean enabled;
+
+        /**
+         * @param value null if not found, i.e. there is nothing to serve stale
+         */
+        public void put(K key, V value) {
+            if (value == null) {
+                invalidate(key);
+            } else if (enabled) {
+                cache.put(key, new Entry<>(value, System.currentTimeMillis()));
+            }
+        }
+
+        public void invalidate(K key) {
+            if (enabled) {
+                cache.invalidate(key);
+            }
+        }
+
+        /**
+         * Drops all the values whose key matches, e.g. everything of a deleted tenant
+         */
+        public void invalidateAll(Predicate<? super K> keys) {
+            if (enabled) {
+                cache.asMap().keySet().removeIf(keys);
+            }
+        }
+
+        /**
+         * The last known good value, if the read failed because Cassandra is unavailable
+         */
+        public Optional<V> getStale(K key, Throwable error) {
+            if (!enabled || !CircuitBreaker.isUnavailable(error)) {
+                return Optional.empty();
+            }
+            Entry<V> entry = cache.getIfPresent(key);
+            if (entry == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            served.put(entry.value, entry.readAt);
+            return Optional.of(entry.value);
+        }
+    }
+}
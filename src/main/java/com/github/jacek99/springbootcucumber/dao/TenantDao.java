@@ -1,42 +1,251 @@
 package com.github.jacek99.springbootcucumber.dao;
 
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
 import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.exception.NotFoundException;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
 import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 /**
  * Tenant Cassandra DAO
+ *
+ * Lookups by tenant ID (auth layer, tenant checks on every tenant entity save) are served
+ * from an in-memory near-cache, which gets refreshed in the background and invalidated on every tenant change.
+ * Unknown tenant IDs are remembered for a short time as well.
+ *
+ * Tenants returned from the cache are shared instances and must not be modified
+ *
  * @author Jacek Furmankiewicz
  */
 @Repository
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
 @Slf4j
-public class TenantDao extends AbstractCassandraDao<Tenant,Tenant,String> {
+public class TenantDao extends AbstractCassandraDao<Tenant,Tenant,String> implements ITenantDao, AdminStatistics {
+
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TenantPartitionRegistry tenantPartitions;
+
+    @Autowired
+    private StaleReads staleReads;
+
+    @Autowired
+    private AppConfig config;
+
+    // never holds Optional.empty() for long, unknown tenants are kept in a separate cache with a shorter expiry
+    private LoadingCache<String, Optional<Tenant>> tenants;
+    private Cache<String, Boolean> unknownTenants;
+
+    // bumped on every invalidation, protects against caching data read before a concurrent change
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "tenant-cache-refresh");
+        t.setDaemon(true);
+        return t;
+    });
 
     public TenantDao() {
         super(Tenant.class);
     }
 
+    @PostConstruct
+    public void initCache() {
+        AppConfig.TenantCacheConfig cacheConfig = config.getTenantCache();
+        log.info("Tenant cache max size {}, refresh {} sec, expiry {} sec, negative expiry {} sec",
+                cacheConfig.getMaxSize(), cacheConfig.getRefreshSeconds(),
+                cacheConfig.getExpirySeconds(), cacheConfig.getNegativeExpirySeconds());
+
+        // stale tenants keep getting served while being reloaded in the background
+        tenants = CacheBuilder.newBuilder()
+                .maximumSize(cacheConfig.getMaxSize())
+                .refreshAfterWrite(cacheConfig.getRefreshSeconds(), TimeUnit.SECONDS)
+                .expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build(CacheLoader.asyncReloading(CacheLoader.from(this::loadTenant), refreshExecutor));
+
+        unknownTenants = CacheBuilder.newBuilder()
+                .maximumSize(cacheConfig.getMaxSize())
+                .expireAfterWrite(cacheConfig.getNegativeExpirySeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private Optional<Tenant> loadTenant(String tenantId) {
+        return Optional.ofNullable(toEntity(findRow(tenantId)));
+    }
+
     @Override
     protected String getEntityId(@NonNull Tenant entity) {
         return entity.getTenantId();
     }
 
+    @Override
+    protected void postSave(TenantToken tenantToken, Tenant entity) {
+        invalidateCache(entity.getTenantId());
+        authenticationCache.invalidateTenant(entity.getTenantId());
+    }
+
+    @Override
+    protected void preDelete(TenantToken tenantToken, String id) {
+        // would take the system admin user down with it
+        Preconditions.checkArgument(!Tenant.SYSTEM_TENANT.equals(id), "The %s tenant cannot be deleted",
+                Tenant.SYSTEM_TENANT);
+    }
+
+    @Override
+    protected void postDelete(TenantToken tenantToken, String id) {
+        invalidateCache(id);
+        authenticationCache.invalidateTenant(id);
+        tokenService.revokeTenant(id);
+        // all the tenant's data goes in the background, the tenant is gone already anyway.
+        // The registry retries failed tables and keeps track of the ones that never succeed
+        tenantPartitions.deleteTenant(id);
+    }
 
     /**
-     * Required for auth layer support, when the TenantToken has not been created yet
+     * Served from the near-cache
      */
+    @Override
+    public Tenant findExistingById(@NonNull TenantToken tenantToken, String id) {
+        return findById(id).orElseThrow(() -> new NotFoundException(Tenant.class, id));
+    }
+
+    /**
+     * Served from the near-cache, only goes to the DB on a cache miss
+     */
+    @Override
+    public CompletableFuture<Tenant> findExistingByIdAsync(@NonNull TenantToken tenantToken, String id) {
+        Optional<Tenant> cached = tenants.getIfPresent(id);
+        if (cached != null && cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        } else if (unknownTenants.getIfPresent(id) != null) {
+            return CompletableFutures.failed(new NotFoundException(Tenant.class, id));
+        }
+
+        long verifiedGeneration = generation.get();
+        return findByIdAsync(tenantToken, id)
+                .thenApply(tenant -> {
+                    // a last known good tenant served while Cassandra is down must not get cached as a fresh one
+                    boolean stale = tenant.isPresent() && staleReads.getReadAt(tenant.get()) != null;
+                    if (generation.get() == verifiedGeneration && !stale) {
+                        if (tenant.isPresent()) {
+                            tenants.put(id, tenant);
+                        } else {
+                            unknownTenants.put(id, Boolean.TRUE);
+                        }
+                    }
+                    return tenant.orElseThrow(() -> new NotFoundException(Tenant.class, id));
+                });
+    }
+
+    /**
+     * Required for auth layer support, when the TenantToken has not been created yet.
+     * Served from the near-cache
+     */
+    @Override
     public Optional<Tenant> findById(@NonNull String tenantId) {
-        return Optional.ofNullable(toEntity(getMapper().get(tenantId)));
+        if (unknownTenants.getIfPresent(tenantId) != null) {
+            return Optional.empty();
+        }
+
+        long verifiedGeneration = generation.get();
+        Optional<Tenant> tenant;
+        try {
+            tenant = tenants.getUnchecked(tenantId);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+
+        if (generation.get() != verifiedGeneration) {
+            // tenants changed while we were loading, make sure the next lookup reloads
+            tenants.invalidate(tenantId);
+        } else if (!tenant.isPresent()) {
+            tenants.invalidate(tenantId);
+            unknownTenants.put(tenantId, Boolean.TRUE);
+        }
+        return tenant;
     }
 
     /**
-     * Makes sure system tenant is created on an empty DB
+     * Evicts a single tenant (and its negative entry) from the near-cache
      */
+    public void invalidateCache(@NonNull String tenantId) {
+        generation.incrementAndGet();
+        tenants.invalidate(tenantId);
+        unknownTenants.invalidate(tenantId);
+    }
+
+    /**
+     * Evicts everything from the near-cache, for testing support
+     */
+    public void invalidateCache() {
+        generation.incrementAndGet();
+        tenants.invalidateAll();
+        unknownTenants.invalidateAll();
+    }
+
+    @Override
+    public String getName() {
+        return "tenantCache";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = tenants.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", tenants.size());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loads", stats.loadCount());
+        result.put("loadFailures", stats.loadExceptionCount());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        result.put("evictions", stats.evictionCount());
+        result.put("unknownSize", unknownTenants.size());
+        result.put("unknownHits", unknownTenants.stats().hitCount());
+        return result;
+    }
+
+    @Override
     public void createSystemTenant() {
-        Tenant system = getMapper().get(Tenant.SYSTEM_TENANT);
+        Tenant system = findRow(Tenant.SYSTEM_TENANT);
         if (system == null) {
             log.info("Creating {} tenant", Tenant.SYSTEM_TENANT);
 
@@ -45,7 +254,8 @@ public class TenantDao extends AbstractCassandraDao<Tenant,Tenant,String> {
             system.setName(Tenant.SYSTEM_TENANT);
             system.setUrl("system");
 
-            getMapper().save(system);
+            insertRow(system);
+            invalidateCache(Tenant.SYSTEM_TENANT);
         } else {
             log.info("{} tenant already exists, skipping", Tenant.SYSTEM_TENANT);
         }
@@ -0,0 +1,197 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * All the tables partitioned by tenant, i.e. whatever needs to go once a tenant gets deleted.
+ * Every tenant entity DAO registers its own table on startup, so new entities get included automatically.
+ *
+ * A table whose delete fails gets retried (with the same write timestamp) with exponential backoff.
+ * Any still failing after the last attempt are listed in the admin statistics, along with the timestamp
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class TenantPartitionRegistry implements AdminStatistics {
+
+    /**
+     * Deletes all of a tenant's partitions of a table (and of anything derived from it, e.g. lookup tables)
+     */
+    @FunctionalInterface
+    public interface PartitionDeleter {
+        /**
+         * @param timestamp write timestamp (in microseconds) of all the deletes, so that re-running
+         *                  it is harmless and nothing written after the tenant got deleted is affected
+         */
+        CompletableFuture<Void> deleteAsync(String tenantId, long timestamp);
+    }
+
+    @Autowired
+    private AppConfig config;
+
+    // starts the table deletes (never on the thread that deleted the tenant) and their retries
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "tenant-delete");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<String, PartitionDeleter> tables = new ConcurrentHashMap<>();
+
+    // tenant ID -> its delete, until all its tables are done (retries included)
+    private final Map<String, CompletableFuture<Void>> running = new ConcurrentHashMap<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    // the latest tables that failed on every attempt, oldest first
+    private final Deque<Map<String, Object>> failures = new ConcurrentLinkedDeque<>();
+
+    @PreDestroy
+    public void cleanup() {
+        scheduler.shutdownNow();
+        running.keySet().forEach(tenantId ->
+                log.warn("{}: Shutting down before all the tenant's partitions got deleted", tenantId));
+    }
+
+    public void register(@NonNull String tableName, @NonNull PartitionDeleter deleter) {
+        Preconditions.checkState(tables.putIfAbsent(tableName, deleter) == null,
+                "Table %s is registered already", tableName);
+        log.info("Table {} gets deleted along with its tenants", tableName);
+    }
+
+    public Map<String, PartitionDeleter> getTables() {
+        return Collections.unmodifiableMap(tables);
+    }
+
+    /**
+     * Deletes all the tenant's partitions in the background, all the tables in parallel.
+     * A table that fails gets retried with exponential backoff, without holding up the others.
+     * The returned future fails if any table still failed after all the attempts
+     */
+    public CompletableFuture<Void> deleteTenant(@NonNull String tenantId) {
+        long start = System.nanoTime();
+        long timestamp = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+        CompletableFuture<?>[] deletes = tables.entrySet().stream()
+                .map(table -> {
+                    CompletableFuture<Void> deleted = new CompletableFuture<>();
+                    schedule(() -> deleteTable(table.getKey(), table.getValue(), tenantId, timestamp, 1, deleted),
+                            0, deleted);
+                    return deleted;
+                })
+                .toArray(CompletableFuture<?>[]::new);
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(deletes);
+        running.put(tenantId, all);
+        return all.whenComplete((v, e) -> {
+            running.remove(tenantId, all);
+            if (e == null) {
+                completed.incrementAndGet();
+                log.info("{}: Deleted the partitions of {} tables in {} ms", tenantId, deletes.length,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else {
+                failed.incrementAndGet();
+            }
+        });
+    }
+
+    private void schedule(Runnable task, long delayMillis, CompletableFuture<Void> deleted) {
+        try {
+            scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            deleted.completeExceptionally(e);
+        }
+    }
+
+    private void deleteTable(String tableName, PartitionDeleter deleter, String tenantId, long timestamp,
+                             int attempt, CompletableFuture<Void> deleted) {
+        CompletableFuture<Void> attempted;
+        try {
+            attempted = deleter.deleteAsync(tenantId, timestamp);
+        } catch (RuntimeException e) {
+            attempted = CompletableFutures.failed(e);
+        }
+
+        attempted.whenComplete((v, e) -> {
+            if (e == null) {
+                deleted.complete(null);
+                return;
+            }
+
+            Throwable error = CompletableFutures.unwrap(e);
+            AppConfig.TenantDeleteConfig deleteConfig = config.getTenantDeletes();
+            if (attempt < deleteConfig.getMaxAttempts()) {
+                // safe to re-run with the same timestamp
+                long delay = Math.min(deleteConfig.getRetryMaxDelayMillis(),
+                        deleteConfig.getRetryBaseDelayMillis() << Math.min(attempt - 1, 30));
+                log.warn("{}: Failed to delete the partitions of table {} (attempt {}), retrying in {} ms: {}",
+                        tenantId, tableName, attempt, delay, error.toString());
+                retries.incrementAndGet();
+                schedule(() -> deleteTable(tableName, deleter, tenantId, timestamp, attempt + 1, deleted),
+                        delay, deleted);
+            } else {
+                log.error("{}: Failed to delete the partitions of table {} with timestamp {} after {} attempts",
+                        tenantId, tableName, timestamp, attempt, error);
+                recordFailure(tenantId, tableName, timestamp, attempt, error);
+                deleted.completeExceptionally(error);
+            }
+        });
+    }
+
+    private void recordFailure(String tenantId, String tableName, long timestamp, int attempts, Throwable error) {
+        int maxReported = config.getTenantDeletes().getMaxFailuresReported();
+        if (maxReported == 0) {
+            return;
+        }
+        Map<String, Object> failure = new LinkedHashMap<>();
+        failure.put("tenantId", tenantId);
+        failure.put("table", tableName);
+        failure.put("timestamp", timestamp);
+        failure.put("attempts", attempts);
+        failure.put("failedAt", System.currentTimeMillis());
+        failure.put("error", error.toString());
+        failures.addLast(failure);
+        while (failures.size() > maxReported) {
+            failures.pollFirst();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "tenantDeletes";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tables", tables.size());
+        result.put("running", new ArrayList<>(running.keySet()));
+        result.put("completed", completed.get());
+        result.put("failed", failed.get());
+        result.put("retries", retries.get());
+        result.put("failures", new ArrayList<>(failures));
+        return result;
+    }
+}
@@ -7,9 +7,11 @@ import com.datastax.driver.mapping.annotations.Table;
 import com.github.jacek99.springbootcucumber.cassandra.CassandraConstants;
 import com.github.jacek99.springbootcucumber.domain.Tenant;
 import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
 import com.github.jacek99.springbootcucumber.security.PasswordHashingService;
 import com.github.jacek99.springbootcucumber.security.SecurityConstants;
 import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.github.jacek99.springbootcucumber.security.TokenService;
 import com.google.common.collect.ImmutableSet;
 import java.util.Optional;
 import java.util.Set;
@@ -18,10 +20,10 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
-import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_ACTIVE;
@@ -30,6 +32,7 @@ import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_PASSWORD_SALT;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_ROLES;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_TENANT_ID;
+import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_TOKENS_REVOKED_AT;
 import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants.COLUMN_USER_ID;
 
 /**
@@ -37,15 +40,17 @@ import static com.github.jacek99.springbootcucumber.cassandra.CassandraConstants
  * @author Jacek Furmankiewicz
  */
 @Repository
+@Profile("!" + IDatabaseInitializer.PROFILE_IN_MEMORY)
 @Slf4j
-public class TenantUserDao extends AbstractCassandraDao<TenantUser,TenantUserDao.TenantUserRow,String> {
-
-    private static final String MASKED_PASSWORD = "**********";
-
-    public static final String ADMIN = "admin";
+public class TenantUserDao extends AbstractCassandraDao<TenantUser,TenantUserDao.TenantUserRow,String>
+        implements ITenantUserDao {
 
     @Autowired
     private PasswordHashingService passwordHashingService;
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    @Autowired
+    private TokenService tokenService;
 
     public TenantUserDao() {
         super(TenantUser.class,TenantUserRow.class);
@@ -69,6 +74,8 @@ public class TenantUserDao extends AbstractCassandraDao<TenantUser,TenantUserDao
                 .passwordHash(rs.getPasswordHash())
                 .passwordSalt(rs.getSalt())
                 .passwordHashRepetitions(rs.getRepetitions())
+                // password, roles or active flag may have changed
+                .tokensRevokedAt(System.currentTimeMillis())
                 .build();
     }
 
@@ -92,25 +99,39 @@ public class TenantUserDao extends AbstractCassandraDao<TenantUser,TenantUserDao
         return entity.getUserId();
     }
 
-    /**
-     * For use in auth filter where the tenant may not be present yet
-     */
+    @Override
+    protected void postSave(TenantToken tenantToken, TenantUser entity) {
+        // password, roles or active flag may have changed
+        authenticationCache.invalidateUser(entity.getTenantId(), entity.getUserId());
+        tokenService.revokeUser(entity.getTenantId(), entity.getUserId());
+    }
+
+    @Override
+    protected void postDelete(TenantToken tenantToken, String id) {
+        authenticationCache.invalidateUser(tenantToken.getTenantId(), id);
+        tokenService.revokeUser(tenantToken.getTenantId(), id);
+    }
+
+    @Override
     public Optional<TenantUser> findById(String tenantId, String userId) {
-        return Optional.ofNullable(toEntity(getMapper().get(tenantId,userId)));
+        return Optional.ofNullable(toEntity(findRow(tenantId,userId)));
+    }
+
+    @Override
+    public Optional<Long> findTokensRevokedAt(String tenantId, String userId) {
+        TenantUserRow row = findRow(tenantId, userId);
+        return row == null ? Optional.empty() : Optional.of(row.tokensRevokedAt);
     }
 
-    /**
-     * Creates the system admin account if not present in DB
-     */
+    @Override
     public void createSystemAdmin() {
-        TenantUserRow row = getMapper().get(Tenant.SYSTEM_TENANT, ADMIN);
+        TenantUserRow row = findRow(Tenant.SYSTEM_TENANT, ADMIN);
         if (row == null) {
 
             log.info("Creating {}.{} user...", Tenant.SYSTEM_TENANT,ADMIN);
 
-            String pwd = "adminadmin";  // default pwd
             PasswordHashingService.HashInfo result = passwordHashingService
-                    .hashPassword(pwd);
+                    .hashPassword(ADMIN_DEFAULT_PASSWORD);
 
             row = TenantUserRow.builder()
                     .tenantId(Tenant.SYSTEM_TENANT)
@@ -126,7 +147,7 @@ public class TenantUserDao extends AbstractCassandraDao<TenantUser,TenantUserDao
                     ))
                     .build();
 
-            getMapper().save(row);
+            insertRow(row);
 
         } else {
             log.info("User {}.{} exists, skipping", Tenant.SYSTEM_TENANT,ADMIN);
@@ -134,11 +155,9 @@ public class TenantUserDao extends AbstractCassandraDao<TenantUser,TenantUserDao
     }
 
 
-    /**
-     * Return user with password hash info, required by the authentication layer to verify incoming request
-     */
+    @Override
     public Optional<TenantUserWithHashInformation> getPasswordHashInformation(String tenantId, String userId) {
-            TenantUserRow row = getMapper().get(tenantId, userId);
+            TenantUserRow row = findRow(tenantId, userId);
             if (row == null) {
                 return Optional.empty();
             } else {
@@ -179,12 +198,8 @@ public class TenantUserDao extends AbstractCassandraDao<TenantUser,TenantUserDao
         @Column(name = COLUMN_PASSWORD_REP)
         private int passwordHashRepetitions;
 
-    }
+        @Column(name = COLUMN_TOKENS_REVOKED_AT)
+        private long tokensRevokedAt;
 
-    // needed for the password hashing service for authentication verification
-    @Value
-    public static class TenantUserWithHashInformation {
-        private TenantUser user;
-        private PasswordHashingService.HashInfo hashInfo;
     }
 }
@@ -0,0 +1,20 @@
+package com.github.jacek99.springbootcucumber.dao;
+
+/**
+ * How a DAO detects conflicts / missing entities when writing
+ *
+ * @author Jacek Furmankiewicz
+ */
+public enum WriteMode {
+    /**
+     * Reads the row first, then writes it (2 round trips, not atomic)
+     */
+    READ_BEFORE_WRITE,
+    /**
+     * Single lightweight transaction (INSERT IF NOT EXISTS, UPDATE / DELETE IF EXISTS).
+     * Atomic, but each LWT is a Paxos round in Cassandra, so it is more expensive
+     * on the server side than a plain write.
+     * Should not be mixed with plain writes on the same rows
+     */
+    CONDITIONAL
+}
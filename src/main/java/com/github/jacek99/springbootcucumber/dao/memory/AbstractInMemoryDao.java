@@ -0,0 +1,472 @@
+package com.github.jacek99.springbootcucumber.dao.memory;
+
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import com.github.jacek99.springbootcucumber.ThreadLocals;
+import com.github.jacek99.springbootcucumber.dao.AbstractDao;
+import com.github.jacek99.springbootcucumber.dao.BatchResult;
+import com.github.jacek99.springbootcucumber.dao.Page;
+import com.github.jacek99.springbootcucumber.dao.TenantPartitionRegistry;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Abstract ancestor for the in-memory entity DAOs, a stand-in for Cassandra in tests, benchmarks
+ * and local load tests. Same conflict / not found / security / validation rules as the Cassandra DAOs.
+ *
+ * Every tenant gets its own sorted partition (like the Cassandra partition key + clustering column),
+ * system-wide entities all live in a single partition. Writes are atomic per entity,
+ * i.e. behave like the CONDITIONAL write mode
+ *
+ * Rows are never shared with the callers, the subclasses must always copy in toRow() / toEntity()
+ *
+ * E = entity type
+ * R = row type, as stored in memory
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Slf4j
+public abstract class AbstractInMemoryDao<E extends Comparable<E>,R> extends AbstractDao<E,String> {
+
+    // partition key used for all system-wide (i.e. non tenant) entities
+    private static final String SYSTEM_PARTITION = "";
+    private static final char CURSOR_SEPARATOR = '\0';
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // partition key -> entity ID -> row, both sorted so that paging is stable
+    private final ConcurrentNavigableMap<String, ConcurrentNavigableMap<String, R>> partitions =
+            new ConcurrentSkipListMap<>();
+
+    @Autowired
+    private TenantPartitionRegistry tenantPartitions;
+
+    protected AbstractInMemoryDao(Class<E> entityType) {
+        super(entityType);
+    }
+
+    @PostConstruct
+    public void registerTenantPartitions() {
+        if (isTenantEntity()) {
+            tenantPartitions.register(getEntityName(), (tenantId, timestamp) -> {
+                partitions.remove(tenantId);
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+    }
+
+    private String getPartitionKey(String entityTenantId) {
+        return isTenantEntity() ? entityTenantId : SYSTEM_PARTITION;
+    }
+
+    // for reads, never creates the partition
+    private NavigableMap<String, R> readPartition(String entityTenantId) {
+        NavigableMap<String, R> partition = partitions.get(getPartitionKey(entityTenantId));
+        return partition == null ? Collections.emptyNavigableMap() : partition;
+    }
+
+    private ConcurrentNavigableMap<String, R> writePartition(String entityTenantId) {
+        return partitions.computeIfAbsent(getPartitionKey(entityTenantId), k -> new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Reads a single row, null if not found
+     */
+    protected R findRow(String entityTenantId, String id) {
+        return readPartition(entityTenantId).get(id);
+    }
+
+    /**
+     * Writes the row as is, without any validation (for creating base data)
+     * @return false if it already existed
+     */
+    protected boolean insertRow(String entityTenantId, String id, R row) {
+        return writePartition(entityTenantId).putIfAbsent(id, row) == null;
+    }
+
+    /**
+     * Removes all the data, for testing support
+     */
+    public void clear() {
+        partitions.clear();
+    }
+
+    @Override
+    public E findExistingById(@NonNull TenantToken tenantToken, String id) {
+        return findById(tenantToken, id).orElseThrow(() -> notFound(id));
+    }
+
+    @Override
+    public Optional<E> findById(@NonNull TenantToken tenantToken, String id) {
+        return findById(tenantToken.getTenantId(), id);
+    }
+
+    /**
+     * Looks at the actual tenant the entity belongs to, which may not be the
+     * same if it is a system tenant
+     */
+    protected Optional<E> findById(String entityTenantId, String id) {
+        R row = findRow(entityTenantId, id);
+        return row == null ? Optional.empty() : Optional.of(toEntity(row));
+    }
+
+    // limit queries to tenant (unless system tenant)
+    private boolean isPartitionScoped(TenantToken tenantToken) {
+        return isTenantEntity() && !tenantToken.isSystemTenant();
+    }
+
+    @Override
+    public List<E> findAll(@NonNull TenantToken tenantToken) {
+        Collection<? extends Map<String, R>> scanned = isPartitionScoped(tenantToken) ?
+                Collections.singletonList(readPartition(tenantToken.getTenantId())) :
+                partitions.values();
+
+        List<E> all = new ArrayList<>();
+        for (Map<String, R> partition : scanned) {
+            for (R row : partition.values()) {
+                all.add(toEntity(row));
+            }
+        }
+        // ensure always sorted for consistency & testability
+        Collections.sort(all);
+        return all;
+    }
+
+    /**
+     * Iterates over the live partitions (weakly consistent, like a Cassandra result set being paged through)
+     */
+    @Override
+    public Iterator<E> iterate(@NonNull TenantToken tenantToken) {
+        Iterator<R> rows = isPartitionScoped(tenantToken) ?
+                readPartition(tenantToken.getTenantId()).values().iterator() :
+                Iterators.concat(Iterators.transform(partitions.values().iterator(), p -> p.values().iterator()));
+        return Iterators.transform(rows, this::toEntity);
+    }
+
+    /**
+     * Finds the matching entities within the caller's own tenant (even for the system tenant),
+     * the in-memory equivalent of the Cassandra DAO lookup tables
+     */
+    protected List<E> findInTenant(@NonNull TenantToken tenantToken, Predicate<R> filter) {
+        List<E> found = new ArrayList<>();
+        for (R row : readPartition(tenantToken.getTenantId()).values()) {
+            if (filter.test(row)) {
+                found.add(toEntity(row));
+            }
+        }
+        // ensure always sorted for consistency & testability
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Within a tenant the order is the entity ID order, the system tenant pages
+     * across all the partitions in partition key order. The cursor is the (encoded) last key returned
+     */
+    @Override
+    public Page<E> findPage(@NonNull TenantToken tenantToken, int limit, String cursor) {
+        Preconditions.checkArgument(limit > 0 && limit <= MAX_PAGE_SIZE, "limit must be between 1 and %s", MAX_PAGE_SIZE);
+
+        NavigableMap<String, ConcurrentNavigableMap<String, R>> scanned = partitions;
+        if (isPartitionScoped(tenantToken)) {
+            String partitionKey = getPartitionKey(tenantToken.getTenantId());
+            scanned = partitions.subMap(partitionKey, true, partitionKey, true);
+        }
+
+        String fromPartition = null;
+        String fromId = null;
+        if (StringUtils.isNotEmpty(cursor)) {
+            String[] position = decodeCursor(cursor);
+            fromPartition = position[0];
+            fromId = position[1];
+            if (isPartitionScoped(tenantToken) && !fromPartition.equals(tenantToken.getTenantId())) {
+                // cursor from another tenant's partition
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            scanned = scanned.tailMap(fromPartition, true);
+        }
+
+        List<E> items = new ArrayList<>(limit);
+        String lastPartition = null;
+        String lastId = null;
+        for (Map.Entry<String, ConcurrentNavigableMap<String, R>> partition : scanned.entrySet()) {
+            NavigableMap<String, R> rows = partition.getKey().equals(fromPartition) ?
+                    partition.getValue().tailMap(fromId, false) : partition.getValue();
+
+            for (Map.Entry<String, R> row : rows.entrySet()) {
+                if (items.size() == limit) {
+                    return new Page<>(items, encodeCursor(lastPartition, lastId));
+                }
+                items.add(toEntity(row.getValue()));
+                lastPartition = partition.getKey();
+                lastId = row.getKey();
+            }
+        }
+        return new Page<>(items, null);
+    }
+
+    private String encodeCursor(String partitionKey, String id) {
+        return ENCODER.encodeToString(ThreadLocals.STRINGBUILDER.get()
+                .append(partitionKey).append(CURSOR_SEPARATOR).append(id)
+                .toString().getBytes(Charsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(DECODER.decode(cursor), Charsets.UTF_8);
+            int separator = position.indexOf(CURSOR_SEPARATOR);
+            if (separator >= 0) {
+                return new String[]{position.substring(0, separator), position.substring(separator + 1)};
+            }
+        } catch (IllegalArgumentException e) {
+            // handled below
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    /**
+     * Runs all the save logic that precedes the actual write
+     * @return the row to write
+     */
+    private R prepareSave(TenantToken tenantToken, E entity) {
+        // trigger pre-save extension point
+        preSave(tenantToken, entity);
+
+        // ensure tenant is valid, if not found will throw 404 error
+        validateTenantExists(tenantToken, entity);
+
+        validate(tenantToken, entity);
+
+        log.debug("{}: Saving entity of type {} identified by Id {}",
+                tenantToken.getTenantId(), getEntityName(), getEntityId(entity));
+        return toRow(entity);
+    }
+
+    @Override
+    public void save(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        String id = getEntityId(entity);
+        String entityTenantId = getEntityTenantId(tenantToken, entity);
+
+        // make sure we check for duplicates in the actual tenant the entity belongs to
+        // if call made with system account, it could be a different tenant
+        if (findRow(entityTenantId, id) != null) {
+            throw conflict(id);
+        }
+
+        R row = prepareSave(tenantToken, entity);
+        if (!insertRow(entityTenantId, id, row)) {
+            // lost a race with a concurrent save
+            throw conflict(id);
+        }
+
+        postSave(tenantToken, entity);
+    }
+
+    @Override
+    public void update(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        String id = getEntityId(entity);
+
+        // ensure entity already exists, since this an update
+        if (findRow(tenantToken.getTenantId(), id) == null) {
+            throw notFound(id);
+        }
+
+        R row = prepareSave(tenantToken, entity);
+        if (writePartition(getEntityTenantId(tenantToken, entity)).replace(id, row) == null) {
+            throw notFound(id);
+        }
+
+        postSave(tenantToken, entity);
+    }
+
+    @Override
+    public void saveOrUpate(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        R row = prepareSave(tenantToken, entity);
+        writePartition(getEntityTenantId(tenantToken, entity)).put(getEntityId(entity), row);
+
+        postSave(tenantToken, entity);
+    }
+
+    @Override
+    public void delete(@NonNull TenantToken tenantToken, @NonNull String id) {
+        // ensure entity already exists
+        if (findRow(tenantToken.getTenantId(), id) == null) {
+            throw notFound(id);
+        }
+
+        // trigger pre/post extension points
+        preDelete(tenantToken, id);
+
+        log.debug("{}: Deleting entity of type {} identified by Id {}",
+                tenantToken.getTenantId(), getEntityName(), id);
+        Map<String, R> partition = partitions.get(getPartitionKey(tenantToken.getTenantId()));
+        if (partition == null || partition.remove(id) == null) {
+            // lost a race with a concurrent delete
+            throw notFound(id);
+        }
+
+        postDelete(tenantToken, id);
+    }
+
+    /**
+     * Writes are cheap in memory, so a batch is just the single entity writes one after another
+     */
+    @Override
+    public List<BatchResult<String>> saveAll(@NonNull TenantToken tenantToken, @NonNull List<E> entities) {
+        return forEachInBatch(entities, e -> getEntityTenantId(tenantToken, e), this::getEntityId,
+                e -> save(tenantToken, e), HttpStatus.CREATED);
+    }
+
+    @Override
+    public List<BatchResult<String>> saveOrUpdateAll(@NonNull TenantToken tenantToken, @NonNull List<E> entities) {
+        return forEachInBatch(entities, e -> getEntityTenantId(tenantToken, e), this::getEntityId,
+                e -> saveOrUpate(tenantToken, e), HttpStatus.NO_CONTENT);
+    }
+
+    @Override
+    public List<BatchResult<String>> deleteAll(@NonNull TenantToken tenantToken, @NonNull List<String> ids) {
+        return forEachInBatch(ids, id -> tenantToken.getTenantId(), id -> id,
+                id -> delete(tenantToken, id), HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Same batch rules as the Cassandra DAOs: not atomic, every entry succeeds or fails on its own
+     * and the same entity cannot be in the batch twice
+     */
+    private <T> List<BatchResult<String>> forEachInBatch(List<T> batch, Function<T, String> entityTenantId,
+                                                         Function<T, String> id, Consumer<T> operation,
+                                                         HttpStatus success) {
+        validateBatch(batch);
+
+        List<BatchResult<String>> results = new ArrayList<>(batch.size());
+        Set<List<String>> unique = new HashSet<>();
+        for (T entry : batch) {
+            String entryId = null;
+            try {
+                Preconditions.checkArgument(entry != null, "Batch cannot contain null entries");
+                entryId = id.apply(entry);
+                if (!unique.add(Arrays.asList(getPartitionKey(entityTenantId.apply(entry)), entryId))) {
+                    throw duplicateInBatch(entryId);
+                }
+                operation.accept(entry);
+                results.add(BatchResult.succeeded(entryId, success));
+            } catch (RuntimeException e) {
+                results.add(BatchResult.failed(entryId, e));
+            }
+        }
+        return results;
+    }
+
+    // nothing here ever blocks, so the async API just runs the blocking one on the calling thread
+
+    protected static <T> CompletableFuture<T> async(Supplier<T> operation) {
+        try {
+            return CompletableFuture.completedFuture(operation.get());
+        } catch (RuntimeException e) {
+            return CompletableFutures.failed(e);
+        }
+    }
+
+    private static CompletableFuture<Void> async(Runnable operation) {
+        return async(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<E> findExistingByIdAsync(@NonNull TenantToken tenantToken, String id) {
+        return async(() -> findExistingById(tenantToken, id));
+    }
+
+    @Override
+    public CompletableFuture<Optional<E>> findByIdAsync(@NonNull TenantToken tenantToken, String id) {
+        return async(() -> findById(tenantToken, id));
+    }
+
+    @Override
+    public CompletableFuture<List<E>> findAllAsync(@NonNull TenantToken tenantToken) {
+        return async(() -> findAll(tenantToken));
+    }
+
+    @Override
+    public CompletableFuture<Page<E>> findPageAsync(@NonNull TenantToken tenantToken, int limit, String cursor) {
+        return async(() -> findPage(tenantToken, limit, cursor));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAsync(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        return async(() -> save(tenantToken, entity));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        return async(() -> update(tenantToken, entity));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOrUpdateAsync(@NonNull TenantToken tenantToken, @NonNull E entity) {
+        return async(() -> saveOrUpate(tenantToken, entity));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(@NonNull TenantToken tenantToken, @NonNull String id) {
+        return async(() -> delete(tenantToken, id));
+    }
+
+    @Override
+    public CompletableFuture<List<BatchResult<String>>> saveAllAsync(@NonNull TenantToken tenantToken,
+                                                                     @NonNull List<E> entities) {
+        return async(() -> saveAll(tenantToken, entities));
+    }
+
+    @Override
+    public CompletableFuture<List<BatchResult<String>>> saveOrUpdateAllAsync(@NonNull TenantToken tenantToken,
+                                                                             @NonNull List<E> entities) {
+        return async(() -> saveOrUpdateAll(tenantToken, entities));
+    }
+
+    @Override
+    public CompletableFuture<List<BatchResult<String>>> deleteAllAsync(@NonNull TenantToken tenantToken,
+                                                                       @NonNull List<String> ids) {
+        return async(() -> deleteAll(tenantToken, ids));
+    }
+
+    /**
+     * Converts the entity to the stored row, must never return the entity instance itself
+     */
+    protected abstract R toRow(E entity);
+
+    /**
+     * Converts the stored row to a new entity instance
+     */
+    protected abstract E toEntity(R row);
+
+}
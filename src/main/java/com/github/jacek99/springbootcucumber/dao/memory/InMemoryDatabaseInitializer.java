@@ -0,0 +1,72 @@
+package com.github.jacek99.springbootcucumber.dao.memory;
+
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
+import com.github.jacek99.springbootcucumber.dao.ITenantUserDao;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
+import com.github.jacek99.springbootcucumber.security.FailedLoginTracker;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the min required data for the in-memory DAOs.
+ * Activated with the "inmemory" Spring profile (e.g. --spring.profiles.active=inmemory),
+ * no database is required at all
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Profile(IDatabaseInitializer.PROFILE_IN_MEMORY)
+@Slf4j
+public class InMemoryDatabaseInitializer implements IDatabaseInitializer {
+
+    @Autowired
+    private List<AbstractInMemoryDao<?,?>> daos;
+
+    @Autowired
+    private ITenantDao tenantDao;
+    @Autowired
+    private ITenantUserDao tenantUserDao;
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    @Autowired
+    private FailedLoginTracker failedLoginTracker;
+    @Autowired
+    private TokenService tokenService;
+
+    @PostConstruct
+    public void init() {
+        log.warn("Using in-memory DAOs, all data will be lost on shutdown");
+        initDatabase();
+    }
+
+    private void initDatabase() {
+        tenantDao.createSystemTenant();
+        tenantUserDao.createSystemAdmin();
+    }
+
+    @Override
+    public void initForTesting() {
+
+        String testMode = System.getenv("TEST_MODE");
+        if ("true".equals(testMode)) {
+            log.debug("Clearing in-memory DB to reset to empty state for testing");
+
+            daos.forEach(AbstractInMemoryDao::clear);
+
+            authenticationCache.invalidateAll();
+            failedLoginTracker.reset();
+            tokenService.reset();
+
+            initDatabase();
+
+        } else {
+            throw new SecurityException("Attempt to truncate production DB!");
+        }
+    }
+}
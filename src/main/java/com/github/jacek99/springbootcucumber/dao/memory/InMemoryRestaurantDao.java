@@ -0,0 +1,86 @@
+package com.github.jacek99.springbootcucumber.dao.memory;
+
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.IRestaurantDao;
+import com.github.jacek99.springbootcucumber.domain.Restaurant;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * In-memory DAO for all restaurants within a tenant
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Repository
+@Profile(IDatabaseInitializer.PROFILE_IN_MEMORY)
+public class InMemoryRestaurantDao extends AbstractInMemoryDao<Restaurant,Restaurant> implements IRestaurantDao {
+
+    public InMemoryRestaurantDao() {
+        super(Restaurant.class);
+    }
+
+    @Override
+    protected String getEntityId(Restaurant entity) {
+        return entity.getId();
+    }
+
+    @Override
+    protected Restaurant toRow(Restaurant entity) {
+        return copy(entity);
+    }
+
+    @Override
+    protected Restaurant toEntity(Restaurant row) {
+        return copy(row);
+    }
+
+    private Restaurant copy(Restaurant restaurant) {
+        Restaurant copy = new Restaurant();
+        copy.setTenantId(restaurant.getTenantId());
+        copy.setId(restaurant.getId());
+        copy.setName(restaurant.getName());
+        copy.setCountryCode(restaurant.getCountryCode());
+        copy.setStateCode(restaurant.getStateCode());
+        return copy;
+    }
+
+    @Override
+    public List<Restaurant> findByCountry(TenantToken tenantToken, String countryCode) {
+        Preconditions.checkArgument(countryCode != null, "country_code is required");
+        return findInTenant(tenantToken, row -> countryCode.equals(row.getCountryCode()));
+    }
+
+    @Override
+    public List<Restaurant> findByState(TenantToken tenantToken, String countryCode, String stateCode) {
+        Preconditions.checkArgument(countryCode != null, "country_code is required");
+        Preconditions.checkArgument(stateCode != null, "state_code is required");
+        return findInTenant(tenantToken, row -> countryCode.equals(row.getCountryCode()) &&
+                stateCode.equals(row.getStateCode()));
+    }
+
+    @Override
+    public List<Restaurant> findByName(TenantToken tenantToken, String name) {
+        Preconditions.checkArgument(name != null, "name is required");
+        return findInTenant(tenantToken, row -> name.equals(row.getName()));
+    }
+
+    @Override
+    public CompletableFuture<List<Restaurant>> findByCountryAsync(TenantToken tenantToken, String countryCode) {
+        return async(() -> findByCountry(tenantToken, countryCode));
+    }
+
+    @Override
+    public CompletableFuture<List<Restaurant>> findByStateAsync(TenantToken tenantToken, String countryCode,
+                                                                String stateCode) {
+        return async(() -> findByState(tenantToken, countryCode, stateCode));
+    }
+
+    @Override
+    public CompletableFuture<List<Restaurant>> findByNameAsync(TenantToken tenantToken, String name) {
+        return async(() -> findByName(tenantToken, name));
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.jacek99.springbootcucumber.dao.memory;
+
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
+import com.github.jacek99.springbootcucumber.dao.TenantPartitionRegistry;
+import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import com.google.common.base.Preconditions;
+import java.util.Optional;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Tenant in-memory DAO
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Repository
+@Profile(IDatabaseInitializer.PROFILE_IN_MEMORY)
+@Slf4j
+public class InMemoryTenantDao extends AbstractInMemoryDao<Tenant,Tenant> implements ITenantDao {
+
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TenantPartitionRegistry tenantPartitions;
+
+    public InMemoryTenantDao() {
+        super(Tenant.class);
+    }
+
+    @Override
+    protected String getEntityId(@NonNull Tenant entity) {
+        return entity.getTenantId();
+    }
+
+    @Override
+    protected Tenant toRow(Tenant entity) {
+        return copy(entity);
+    }
+
+    @Override
+    protected Tenant toEntity(Tenant row) {
+        return copy(row);
+    }
+
+    private Tenant copy(Tenant tenant) {
+        Tenant copy = new Tenant();
+        copy.setTenantId(tenant.getTenantId());
+        copy.setName(tenant.getName());
+        copy.setUrl(tenant.getUrl());
+        return copy;
+    }
+
+    @Override
+    protected void postSave(TenantToken tenantToken, Tenant entity) {
+        authenticationCache.invalidateTenant(entity.getTenantId());
+    }
+
+    @Override
+    protected void preDelete(TenantToken tenantToken, String id) {
+        // would take the system admin user down with it
+        Preconditions.checkArgument(!Tenant.SYSTEM_TENANT.equals(id), "The %s tenant cannot be deleted",
+                Tenant.SYSTEM_TENANT);
+    }
+
+    @Override
+    protected void postDelete(TenantToken tenantToken, String id) {
+        authenticationCache.invalidateTenant(id);
+        tokenService.revokeTenant(id);
+        // in memory the tenant's data is gone right away, so just wait for it
+        tenantPartitions.deleteTenant(id).join();
+    }
+
+    @Override
+    public Optional<Tenant> findById(@NonNull String tenantId) {
+        return findById(tenantId, tenantId);
+    }
+
+    @Override
+    public void createSystemTenant() {
+        Tenant system = new Tenant();
+        system.setTenantId(Tenant.SYSTEM_TENANT);
+        system.setName(Tenant.SYSTEM_TENANT);
+        system.setUrl("system");
+
+        if (insertRow(Tenant.SYSTEM_TENANT, Tenant.SYSTEM_TENANT, system)) {
+            log.info("Created {} tenant", Tenant.SYSTEM_TENANT);
+        }
+    }
+}
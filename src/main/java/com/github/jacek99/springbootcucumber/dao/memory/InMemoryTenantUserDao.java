@@ -0,0 +1,131 @@
+package com.github.jacek99.springbootcucumber.dao.memory;
+
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.ITenantUserDao;
+import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
+import com.github.jacek99.springbootcucumber.security.PasswordHashingService;
+import com.github.jacek99.springbootcucumber.security.SecurityConstants;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import com.google.common.collect.ImmutableSet;
+import java.util.Optional;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * In-memory DAO for all users within a tenant.
+ * Only the password hash is kept, same as in the Cassandra DAO
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Repository
+@Profile(IDatabaseInitializer.PROFILE_IN_MEMORY)
+@Slf4j
+public class InMemoryTenantUserDao extends AbstractInMemoryDao<TenantUser,ITenantUserDao.TenantUserWithHashInformation>
+        implements ITenantUserDao {
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    @Autowired
+    private TokenService tokenService;
+
+    public InMemoryTenantUserDao() {
+        super(TenantUser.class);
+    }
+
+    @Override
+    protected TenantUserWithHashInformation toRow(@NonNull TenantUser entity) {
+        // sanity check
+        if (MASKED_PASSWORD.equals(entity.getPassword()) || StringUtils.isEmpty(entity.getPassword())) {
+            throw new IllegalArgumentException("Tenant user must have valid password set");
+        }
+
+        // hash password
+        PasswordHashingService.HashInfo hashInfo = passwordHashingService.hashPassword(entity.getPassword());
+        return new TenantUserWithHashInformation(copy(entity), hashInfo);
+    }
+
+    @Override
+    protected TenantUser toEntity(TenantUserWithHashInformation row) {
+        return copy(row.getUser());
+    }
+
+    // never keeps / returns the actual password
+    private TenantUser copy(TenantUser user) {
+        return TenantUser.builder()
+                .tenantId(user.getTenantId())
+                .userId(user.getUserId())
+                .roles(user.getRoles() == null ? ImmutableSet.of() : ImmutableSet.copyOf(user.getRoles()))
+                .active(user.isActive())
+                .password(MASKED_PASSWORD)
+                .build();
+    }
+
+    @Override
+    protected String getEntityId(TenantUser entity) {
+        return entity.getUserId();
+    }
+
+    @Override
+    protected void postSave(TenantToken tenantToken, TenantUser entity) {
+        // password, roles or active flag may have changed
+        authenticationCache.invalidateUser(entity.getTenantId(), entity.getUserId());
+        tokenService.revokeUser(entity.getTenantId(), entity.getUserId());
+    }
+
+    @Override
+    protected void postDelete(TenantToken tenantToken, String id) {
+        authenticationCache.invalidateUser(tenantToken.getTenantId(), id);
+        tokenService.revokeUser(tenantToken.getTenantId(), id);
+    }
+
+    @Override
+    public Optional<TenantUser> findById(String tenantId, String userId) {
+        return super.findById(tenantId, userId);
+    }
+
+    /**
+     * Single node, so the revocations TokenService keeps in memory already cover everything
+     */
+    @Override
+    public Optional<Long> findTokensRevokedAt(String tenantId, String userId) {
+        return findRow(tenantId, userId) == null ? Optional.empty() : Optional.of(0L);
+    }
+
+    @Override
+    public void createSystemAdmin() {
+        TenantUser admin = TenantUser.builder()
+                .tenantId(Tenant.SYSTEM_TENANT)
+                .userId(ADMIN)
+                .active(true)
+                .password(ADMIN_DEFAULT_PASSWORD)
+                .roles(ImmutableSet.of(
+                        SecurityConstants.ROLE_SYSTEM_ADMIN,
+                        SecurityConstants.ROLE_TENANT_ADMIN,
+                        SecurityConstants.ROLE_TENANT_USER
+                ))
+                .build();
+
+        if (insertRow(Tenant.SYSTEM_TENANT, ADMIN, toRow(admin))) {
+            log.info("Created {}.{} user", Tenant.SYSTEM_TENANT, ADMIN);
+        }
+    }
+
+    @Override
+    public Optional<TenantUserWithHashInformation> getPasswordHashInformation(String tenantId, String userId) {
+        TenantUserWithHashInformation row = findRow(tenantId, userId);
+        if (row == null) {
+            return Optional.empty();
+        } else {
+            return Optional.of(new TenantUserWithHashInformation(toEntity(row), row.getHashInfo()));
+        }
+    }
+}
@@ -6,6 +6,12 @@ package com.github.jacek99.springbootcucumber.domain;
  */
 public interface ITenantEntity {
 
+    /**
+     * IDs may not be "batch", that path segment belongs to the batch endpoints
+     */
+    String NOT_RESERVED_ID = "(?!batch$).*";
+    String RESERVED_ID_MESSAGE = "batch is reserved for the batch endpoints";
+
     /**
      * Should be the @PartitionKey of the entity as well
      */
@@ -4,6 +4,7 @@ import com.datastax.driver.mapping.annotations.ClusteringColumn;
 import com.datastax.driver.mapping.annotations.Column;
 import com.datastax.driver.mapping.annotations.PartitionKey;
 import com.datastax.driver.mapping.annotations.Table;
+import javax.validation.constraints.Pattern;
 import lombok.Data;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
@@ -23,6 +24,7 @@ public class Restaurant implements ITenantEntity, Comparable<Restaurant> {
 
     @ClusteringColumn
     @Column(name = COLUMN_ID)
+    @Pattern(regexp = NOT_RESERVED_ID, message = RESERVED_ID_MESSAGE)
     private String id;
 
     @Column(name = COLUMN_NAME)
@@ -2,6 +2,7 @@ package com.github.jacek99.springbootcucumber.domain;
 
 import com.github.jacek99.springbootcucumber.validator.SecurityRoles;
 import java.util.Set;
+import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import lombok.Builder;
 import lombok.Data;
@@ -20,6 +21,7 @@ public class TenantUser implements ITenantEntity, Comparable<TenantUser> {
 
     @NotEmpty
     @Size(min=4,max=30)
+    @Pattern(regexp = NOT_RESERVED_ID, message = RESERVED_ID_MESSAGE)
     private String userId;
 
     @Size(min = 1, max = 3)
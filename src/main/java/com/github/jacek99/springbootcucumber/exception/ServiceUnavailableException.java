@@ -0,0 +1,18 @@
+package com.github.jacek99.springbootcucumber.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the request cannot be handled right now (e.g. too much work queued up already),
+ * but could be if retried later. Should result in 503
+ *
+ * @author Jacek Furmankiewicz
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
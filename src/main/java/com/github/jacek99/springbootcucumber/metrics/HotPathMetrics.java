@@ -0,0 +1,282 @@
+package com.github.jacek99.springbootcucumber.metrics;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters and latency histograms for the hot path operations.
+ *
+ * Recording is meant to be called on every request, so it never allocates
+ * (once a tenant has been seen) and never locks: the counters are striped LongAdders,
+ * latencies go into an HdrHistogram Recorder per operation.
+ * Counts / errors / total time are also kept per tenant, latency percentiles only per operation
+ * (a histogram per tenant per operation would cost too much memory).
+ *
+ * Percentiles are since startup. Only the reporting side (admin endpoint / Prometheus scrape) is synchronized
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class HotPathMetrics implements AdminStatistics {
+
+    // tenant name all the tenants beyond the configured max get aggregated under
+    public static final String OTHER_TENANTS = "_other";
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double MICROS_PER_MILLI = 1_000.0;
+    private static final double MICROS_PER_SECOND = 1_000_000.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final TimedOperation[] OPERATIONS = TimedOperation.values();
+
+    @Autowired
+    private AppConfig config;
+
+    private boolean enabled;
+    private int maxTenants;
+
+    private final LatencyStats[] operations = new LatencyStats[OPERATIONS.length];
+    private final ConcurrentMap<String, TenantStats> tenants = new ConcurrentHashMap<>();
+
+    public HotPathMetrics() {
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new LatencyStats();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        enabled = config.getMetrics().isEnabled();
+        maxTenants = config.getMetrics().getMaxTenants();
+        log.info("Hot path metrics {}, tracking up to {} tenants", enabled ? "enabled" : "disabled", maxTenants);
+    }
+
+    /**
+     * Records a single call of an operation
+     *
+     * @param tenantId tenant the call was made for, null if not known (only the operation totals get updated)
+     * @param startNanos System.nanoTime() from when the call started
+     * @param success false if it failed with an error
+     */
+    public void record(@NonNull TimedOperation operation, String tenantId, long startNanos, boolean success) {
+        if (!enabled) {
+            return;
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        operations[operation.ordinal()].record(elapsedNanos, success);
+        if (tenantId != null) {
+            getTenantStats(tenantId).record(operation, elapsedNanos, success);
+        }
+    }
+
+    private TenantStats getTenantStats(String tenantId) {
+        TenantStats stats = tenants.get(tenantId);
+        if (stats == null) {
+            // protects the memory from tenant ID floods,
+            // the limit may get overshot a bit by concurrent calls, which is harmless
+            String key = tenants.size() < maxTenants ? tenantId : OTHER_TENANTS;
+            stats = tenants.computeIfAbsent(key, k -> new TenantStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Discards everything recorded so far, for testing support
+     */
+    public void reset() {
+        tenants.clear();
+        for (LatencyStats stats : operations) {
+            stats.reset();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "operations";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (TimedOperation operation : OPERATIONS) {
+            LatencyStats stats = operations[operation.ordinal()];
+            long count = stats.getCount();
+            if (count == 0) {
+                continue;
+            }
+
+            Histogram latency = stats.getLatency();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", count);
+            values.put("errors", stats.getErrors());
+            values.put("averageMillis", stats.getTotalNanos() / NANOS_PER_MILLI / count);
+            values.put("p50Millis", latency.getValueAtPercentile(50.0) / MICROS_PER_MILLI);
+            values.put("p99Millis", latency.getValueAtPercentile(99.0) / MICROS_PER_MILLI);
+            values.put("p999Millis", latency.getValueAtPercentile(99.9) / MICROS_PER_MILLI);
+            values.put("maxMillis", latency.getMaxValue() / MICROS_PER_MILLI);
+            values.put("tenants", getTenantStatistics(operation));
+            result.put(operation.getName(), values);
+        }
+        return result;
+    }
+
+    private Map<String, Object> getTenantStatistics(TimedOperation operation) {
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, TenantStats> tenant : tenants.entrySet()) {
+            int i = operation.ordinal();
+            long count = tenant.getValue().counts[i].sum();
+            if (count > 0) {
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("count", count);
+                values.put("errors", tenant.getValue().errors[i].sum());
+                values.put("averageMillis", tenant.getValue().totalNanos[i].sum() / NANOS_PER_MILLI / count);
+                result.put(tenant.getKey(), values);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes all the metrics in the Prometheus text exposition format (version 0.0.4).
+     * Latencies are exposed as summaries per operation, counts / errors / total time as counters
+     * per operation and tenant
+     */
+    public void writePrometheus(@NonNull Writer out) throws IOException {
+        out.write("# HELP app_operation_duration_seconds Latency of the hot path operations since startup\n");
+        out.write("# TYPE app_operation_duration_seconds summary\n");
+        for (TimedOperation operation : OPERATIONS) {
+            LatencyStats stats = operations[operation.ordinal()];
+            Histogram latency = stats.getLatency();
+            for (double quantile : QUANTILES) {
+                sample(out, "app_operation_duration_seconds", operation, null, "quantile", String.valueOf(quantile),
+                        latency.getValueAtPercentile(quantile * 100.0) / MICROS_PER_SECOND);
+            }
+            sample(out, "app_operation_duration_seconds_sum", operation, null, null, null,
+                    stats.getTotalNanos() / NANOS_PER_SECOND);
+            sample(out, "app_operation_duration_seconds_count", operation, null, null, null, stats.getCount());
+        }
+
+        Map<String, TenantStats> sorted = new TreeMap<>(tenants);
+
+        out.write("# HELP app_tenant_operations_total Hot path operation calls per tenant\n");
+        out.write("# TYPE app_tenant_operations_total counter\n");
+        for (Map.Entry<String, TenantStats> tenant : sorted.entrySet()) {
+            for (TimedOperation operation : OPERATIONS) {
+                long count = tenant.getValue().counts[operation.ordinal()].sum();
+                if (count > 0) {
+                    sample(out, "app_tenant_operations_total", operation, tenant.getKey(), null, null, count);
+                }
+            }
+        }
+
+        out.write("# HELP app_tenant_operation_errors_total Failed hot path operation calls per tenant\n");
+        out.write("# TYPE app_tenant_operation_errors_total counter\n");
+        for (Map.Entry<String, TenantStats> tenant : sorted.entrySet()) {
+            for (TimedOperation operation : OPERATIONS) {
+                if (tenant.getValue().counts[operation.ordinal()].sum() > 0) {
+                    sample(out, "app_tenant_operation_errors_total", operation, tenant.getKey(), null, null,
+                            tenant.getValue().errors[operation.ordinal()].sum());
+                }
+            }
+        }
+
+        out.write("# HELP app_tenant_operation_seconds_total Time spent in hot path operations per tenant\n");
+        out.write("# TYPE app_tenant_operation_seconds_total counter\n");
+        for (Map.Entry<String, TenantStats> tenant : sorted.entrySet()) {
+            for (TimedOperation operation : OPERATIONS) {
+                if (tenant.getValue().counts[operation.ordinal()].sum() > 0) {
+                    sample(out, "app_tenant_operation_seconds_total", operation, tenant.getKey(), null, null,
+                            tenant.getValue().totalNanos[operation.ordinal()].sum() / NANOS_PER_SECOND);
+                }
+            }
+        }
+    }
+
+    private static void sample(Writer out, String name, TimedOperation operation, String tenantId,
+                               String extraLabel, String extraValue, double value) throws IOException {
+        out.write(name);
+        out.write("{operation=\"");
+        out.write(operation.getName());
+        out.write('"');
+        if (tenantId != null) {
+            out.write(",tenant=\"");
+            writeLabelValue(out, tenantId);
+            out.write('"');
+        }
+        if (extraLabel != null) {
+            out.write(',');
+            out.write(extraLabel);
+            out.write("=\"");
+            writeLabelValue(out, extraValue);
+            out.write('"');
+        }
+        out.write("} ");
+        out.write(value == Math.rint(value) && !Double.isInfinite(value) ?
+                Long.toString((long) value) : Double.toString(value));
+        out.write('\n');
+    }
+
+    // tenant IDs come from the outside world, so they must be escaped
+    private static void writeLabelValue(Writer out, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                default:
+                    out.write(c);
+            }
+        }
+    }
+
+    /**
+     * Per operation counters of a single tenant, indexed by the operation ordinal
+     */
+    private static class TenantStats {
+        private final LongAdder[] counts = newAdders();
+        private final LongAdder[] errors = newAdders();
+        private final LongAdder[] totalNanos = newAdders();
+
+        private static LongAdder[] newAdders() {
+            LongAdder[] adders = new LongAdder[OPERATIONS.length];
+            for (int i = 0; i < adders.length; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+
+        void record(TimedOperation operation, long elapsedNanos, boolean success) {
+            int i = operation.ordinal();
+            counts[i].increment();
+            totalNanos[i].add(elapsedNanos);
+            if (!success) {
+                errors[i].increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.jacek99.springbootcucumber.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Count, errors, total time and latency distribution of a single kind of call.
+ * Recording never allocates and never locks, only the reporting side is synchronized
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class LatencyStats {
+
+    // latencies are recorded in microseconds, anything longer than a minute is recorded as a minute
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    // 1% precision is plenty, and keeps the histograms small
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+    // everything recorded so far, only touched when reporting
+    private final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    public void record(long elapsedNanos, boolean success) {
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        if (!success) {
+            errors.increment();
+        }
+        latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return a copy of the latency distribution (in microseconds) recorded since startup
+     */
+    public synchronized Histogram getLatency() {
+        interval = latency.getIntervalHistogram(interval);
+        total.add(interval);
+        return total.copy();
+    }
+
+    public synchronized void reset() {
+        count.reset();
+        errors.reset();
+        totalNanos.reset();
+        latency.reset();
+        total.reset();
+    }
+}
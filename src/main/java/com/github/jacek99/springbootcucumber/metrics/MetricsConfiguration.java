@@ -0,0 +1,22 @@
+package com.github.jacek99.springbootcucumber.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Hooks the REST call timing into Spring MVC
+ * @author Jacek Furmankiewicz
+ */
+@Configuration
+public class MetricsConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private MetricsInterceptor metricsInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(metricsInterceptor);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.jacek99.springbootcucumber.metrics;
+
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import java.security.Principal;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Times every REST call, from the controller being invoked to the response being complete.
+ *
+ * Async (DeferredResult) requests go through preHandle() twice, once for the initial call
+ * and once for the dispatch with the result, afterCompletion() only after the latter.
+ * Only 5xx responses are counted as errors, 4xx are the caller's fault
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+public class MetricsInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String START_ATTRIBUTE = MetricsInterceptor.class.getName() + ".start";
+
+    @Autowired
+    private HotPathMetrics metrics;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            Principal principal = request.getUserPrincipal();
+            String tenantId = principal instanceof TenantToken ? ((TenantToken) principal).getTenantId() : null;
+            boolean success = ex == null && response.getStatus() < HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            metrics.record(TimedOperation.HTTP_REQUEST, tenantId, (Long) start, success);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.jacek99.springbootcucumber.metrics;
+
+import lombok.Getter;
+
+/**
+ * The hot path operations we collect timings for
+ *
+ * @author Jacek Furmankiewicz
+ */
+public enum TimedOperation {
+
+    HTTP_REQUEST("http.request"),
+
+    DAO_FIND_BY_ID("dao.findById"),
+    DAO_FIND_ALL("dao.findAll"),
+    DAO_FIND_PAGE("dao.findPage"),
+    DAO_FIND_BY_LOOKUP("dao.findByLookup"),
+    DAO_SAVE("dao.save"),
+    DAO_UPDATE("dao.update"),
+    DAO_DELETE("dao.delete"),
+    DAO_PROCESS_SAVE("dao.processSave"),
+    DAO_SAVE_ALL("dao.saveAll"),
+    DAO_SAVE_OR_UPDATE_ALL("dao.saveOrUpdateAll"),
+    DAO_DELETE_ALL("dao.deleteAll"),
+
+    PASSWORD_HASH("password.hash"),
+    PASSWORD_VERIFY("password.verify"),
+
+    AUTHENTICATE("auth.authenticate");
+
+    /**
+     * Name shown in the statistics / used as the metric label
+     */
+    @Getter
+    private final String name;
+
+    TimedOperation(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import lombok.Value;
+
+/**
+ * Issued bearer token, as returned to the client
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Value
+public class AccessToken {
+    private String accessToken;
+    private String tokenType;
+    // seconds
+    private long expiresIn;
+}
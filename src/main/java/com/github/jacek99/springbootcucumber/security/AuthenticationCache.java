@@ -0,0 +1,165 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of successfully verified credentials, so that the expensive password hash
+ * check (and the DB lookups required for it) do not need to run on every HTTP Basic request.
+ *
+ * Passwords are never stored, only a keyed digest of them (the key is random and exists only in memory).
+ * Invalidations only reach this node's cache, every hit needs to be checked against the user changes
+ * made on the other nodes (see {@link TokenService#isUserRevokedSince(String, String, long)})
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class AuthenticationCache implements PublicMetrics {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    @Autowired
+    private AppConfig config;
+
+    private Cache<CacheKey, VerifiedToken> cache;
+
+    // bumped on every invalidation, protects against caching a token that was
+    // verified against data that got changed while the verification was in progress
+    private final AtomicLong generation = new AtomicLong();
+
+    private final SecretKeySpec digestKey;
+    private final ThreadLocal<Mac> mac;
+
+    public AuthenticationCache() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        digestKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance(HMAC_ALGORITHM);
+                m.init(digestKey);
+                return m;
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        AppConfig.AuthConfig auth = config.getAuth();
+        log.info("Authentication cache max size {}, expiry {} sec", auth.getCacheMaxSize(), auth.getCacheExpirySeconds());
+
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(auth.getCacheMaxSize())
+                .expireAfterWrite(auth.getCacheExpirySeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Creates the lookup key for a set of credentials
+     */
+    public CacheKey createKey(String tenantId, String userId, String password) {
+        byte[] digest = mac.get().doFinal(password.getBytes(Charsets.UTF_8));
+        return new CacheKey(tenantId, userId, HashCode.fromBytes(digest));
+    }
+
+    /**
+     * Returns the generation that must be passed to {@link #put(CacheKey, TenantToken, long)}.
+     * Needs to be called BEFORE the DB lookups are done
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public Optional<VerifiedToken> get(CacheKey key) {
+        return Optional.ofNullable(cache.getIfPresent(key));
+    }
+
+    /**
+     * Caches a verified token, unless any tenant or user got modified since the verification started
+     *
+     * @param verifiedAt when the DB lookups started (i.e. any change since then may not have been seen)
+     */
+    public void put(CacheKey key, TenantToken token, long verifiedGeneration, long verifiedAt) {
+        if (generation.get() == verifiedGeneration) {
+            cache.put(key, new VerifiedToken(token, verifiedAt));
+            // an invalidation may have run in between the check and the put
+            if (generation.get() != verifiedGeneration) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Needs to be called whenever a user is saved, updated or deleted
+     */
+    public void invalidateUser(String tenantId, String userId) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(k -> k.getTenantId().equals(tenantId) && k.getUserId().equals(userId));
+    }
+
+    /**
+     * Needs to be called whenever a tenant is saved, updated or deleted
+     */
+    public void invalidateTenant(String tenantId) {
+        generation.incrementAndGet();
+        cache.asMap().keySet().removeIf(k -> k.getTenantId().equals(tenantId));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = cache.stats();
+        return ImmutableList.of(
+                new Metric<>("auth.cache.hits", stats.hitCount()),
+                new Metric<>("auth.cache.misses", stats.missCount()),
+                new Metric<>("auth.cache.evictions", stats.evictionCount()),
+                new Metric<>("auth.cache.size", cache.size()));
+    }
+
+    @Value
+    public static class VerifiedToken {
+        private TenantToken token;
+        private long verifiedAt;
+    }
+
+    @Value
+    public static class CacheKey {
+        private String tenantId;
+        private String userId;
+        private HashCode passwordDigest;
+    }
+}
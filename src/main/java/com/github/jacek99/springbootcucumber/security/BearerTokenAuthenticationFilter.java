@@ -0,0 +1,90 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
+import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.google.common.collect.ImmutableSet;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Authenticates requests carrying a bearer token issued by {@link TokenService}.
+ * The TenantToken is rebuilt from the token itself (plus the tenant near-cache),
+ * so no password hashing or user lookup happens per request.
+ *
+ * Requests without a bearer token are passed on untouched to the Basic auth filter.
+ * Not a Spring bean on purpose, so that it does not get registered as a regular servlet filter as well
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class BearerTokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = TokenService.TOKEN_TYPE + " ";
+
+    private final TokenService tokenService;
+    private final ITenantDao tenantDao;
+    private final AuthenticationEntryPoint authenticationEntryPoint;
+
+    public BearerTokenAuthenticationFilter(TokenService tokenService, ITenantDao tenantDao,
+                                           AuthenticationEntryPoint authenticationEntryPoint) {
+        this.tokenService = tokenService;
+        this.tenantDao = tenantDao;
+        this.authenticationEntryPoint = authenticationEntryPoint;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (!StringUtils.startsWithIgnoreCase(header, BEARER_PREFIX)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Optional<TenantToken> tenantToken = tokenService.verify(header.substring(BEARER_PREFIX.length()).trim())
+                .flatMap(this::toTenantToken);
+
+        if (tenantToken.isPresent()) {
+            SecurityContextHolder.getContext().setAuthentication(tenantToken.get());
+            chain.doFilter(request, response);
+        } else {
+            SecurityContextHolder.clearContext();
+            authenticationEntryPoint.commence(request, response, new BadCredentialsException("Invalid token"));
+        }
+    }
+
+    private Optional<TenantToken> toTenantToken(TokenService.Claims claims) {
+        Optional<Tenant> tenant = tenantDao.findById(claims.getTenantId());
+        if (!tenant.isPresent()) {
+            return Optional.empty();
+        }
+
+        TenantUser user = TenantUser.builder()
+                .tenantId(claims.getTenantId())
+                .userId(claims.getUserId())
+                .roles(ImmutableSet.copyOf(claims.getRoles()))
+                .active(true)
+                .build();
+
+        List<GrantedAuthority> roles = claims.getRoles().stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+
+        return Optional.of(new TenantToken(user, tenant.get(), roles));
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.ThreadLocals;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps track of recent failed logins per tenant user and per client IP
+ * and calculates the escalating penalty delay for the next failure.
+ *
+ * The counters are kept in segmented (lock striped) caches, so concurrent failures
+ * for unrelated users / IPs do not contend with each other
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+public class FailedLoginTracker {
+
+    private static final int MAX_TRACKED_KEYS = 100000;
+    private static final int STRIPES = 16;
+
+    @Autowired
+    private AppConfig config;
+
+    private Cache<String, AtomicInteger> userFailures;
+    private Cache<String, AtomicInteger> ipFailures;
+
+    @PostConstruct
+    public void init() {
+        userFailures = createCache();
+        ipFailures = createCache();
+    }
+
+    private Cache<String, AtomicInteger> createCache() {
+        return CacheBuilder.newBuilder()
+                .concurrencyLevel(STRIPES)
+                .maximumSize(MAX_TRACKED_KEYS)
+                .expireAfterWrite(config.getAuth().getFailedLoginWindowSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Records a failed login
+     * @param tenantId may be null if tenant is not known
+     * @param userId may be null if user is not known
+     * @param ip may be null if client IP is not known
+     * @return how long (in ms) the response should be delayed
+     */
+    public long recordFailure(String tenantId, String userId, String ip) {
+        int failures = 0;
+        if (tenantId != null && userId != null) {
+            failures = increment(userFailures, getUserKey(tenantId, userId));
+        }
+        if (ip != null) {
+            failures = Math.max(failures, increment(ipFailures, ip));
+        }
+        return getDelay(Math.max(failures, 1));
+    }
+
+    /**
+     * Successful login resets the user counter, but not the IP one
+     * (a single client may be trying many different accounts)
+     */
+    public void recordSuccess(String tenantId, String userId) {
+        userFailures.invalidate(getUserKey(tenantId, userId));
+    }
+
+    /**
+     * Forgets all failures, for testing support only
+     */
+    public void reset() {
+        userFailures.invalidateAll();
+        ipFailures.invalidateAll();
+    }
+
+    // exponential backoff: base, 2 x base, 4 x base... up to the max
+    private long getDelay(int failures) {
+        AppConfig.AuthConfig auth = config.getAuth();
+        long delay = ((long) auth.getFailedLoginBaseDelayMillis()) << Math.min(failures - 1, 20);
+        return Math.min(delay, auth.getFailedLoginMaxDelayMillis());
+    }
+
+    private int increment(Cache<String, AtomicInteger> cache, String key) {
+        try {
+            return cache.get(key, AtomicInteger::new).incrementAndGet();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String getUserKey(String tenantId, String userId) {
+        return ThreadLocals.STRINGBUILDER.get().append(tenantId).append('/').append(userId).toString();
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import lombok.Getter;
+import org.springframework.security.authentication.BadCredentialsException;
+
+/**
+ * Failed login that should only be reported back to the client after a delay,
+ * to make brute force attacks harder
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class LoginPenaltyException extends BadCredentialsException {
+
+    @Getter
+    private final long delayMillis;
+
+    public LoginPenaltyException(String msg, long delayMillis) {
+        super(msg);
+        this.delayMillis = delayMillis;
+    }
+}
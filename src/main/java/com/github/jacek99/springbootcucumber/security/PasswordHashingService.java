@@ -1,7 +1,8 @@
 package com.github.jacek99.springbootcucumber.security;
 
-import com.google.common.base.Charsets;
-import java.math.BigInteger;
+import com.github.jacek99.springbootcucumber.metrics.HotPathMetrics;
+import com.github.jacek99.springbootcucumber.metrics.TimedOperation;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
@@ -10,15 +11,62 @@ import java.util.concurrent.ThreadLocalRandom;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
  * Service for secure hashing of password
+ *
+ * The crypto objects are expensive to look up and not thread-safe (or synchronized),
+ * so every thread gets its own instance, created once and reused.
+ *
+ * Stored hashes / salts are always hex, so any salt format used in the past
+ * (older versions hex-encoded a textual representation of the salt bytes) stays valid
  */
 @Component
 public class PasswordHashingService {
 
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+
     private static final int MIN_REPETITIONS = 1000;
+    private static final int SALT_BYTES = 16;
+    // PBKDF2 computes the full iteration count for every block of HMAC output (20 bytes for SHA1),
+    // asking for more than one block only slows us down, not an attacker (who only needs to match the first block)
+    private static final int HASH_BYTES = 20;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private static final ThreadLocal<SecretKeyFactory> KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(() -> {
+        try {
+            return SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    // optional, so that the service can be used standalone (e.g. in tests)
+    @Autowired(required = false)
+    private HotPathMetrics metrics;
 
     /**
      * Hashes a password, with a unique salt and random
@@ -26,22 +74,18 @@ public class PasswordHashingService {
      * table attacks)
      */
     public HashInfo hashPassword(String password) {
-
+        long start = System.nanoTime();
+        boolean success = false;
         try {
-            char[] chars = password.toCharArray();
-            byte[] salt = getSalt().getBytes(Charsets.UTF_8);
+            byte[] salt = getSalt();
             int repetitions = getRepetitions();
 
-            PBEKeySpec spec = new PBEKeySpec(chars, salt, repetitions, 64 * 8);
-            SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-
-            byte[] hash = skf.generateSecret(spec).getEncoded();
-
-            return new HashInfo(toHex(hash), toHex(salt), repetitions);
-
-
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-            throw new RuntimeException(e);
+            byte[] hash = hash(password, salt, repetitions, HASH_BYTES);
+            HashInfo hashInfo = new HashInfo(toHex(hash), toHex(salt), repetitions);
+            success = true;
+            return hashInfo;
+        } finally {
+            record(TimedOperation.PASSWORD_HASH, start, success);
         }
     }
 
@@ -50,66 +94,78 @@ public class PasswordHashingService {
      */
     public boolean isHashValid(String password, String expectedHash,
                                String salt, int repetitions) {
-
+        long start = System.nanoTime();
+        boolean success = false;
         try {
-
             byte[] rawHash = fromHex(expectedHash);
+            byte[] testHash = hash(password, fromHex(salt), repetitions, rawHash.length);
+
+            // constant time comparison
+            boolean valid = MessageDigest.isEqual(testHash, rawHash);
+            success = true;
+            return valid;
+        } finally {
+            record(TimedOperation.PASSWORD_VERIFY, start, success);
+        }
+    }
 
-            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(),
-                    fromHex(salt),
-                    repetitions,
-                    rawHash.length * 8);
-            SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            byte[] testHash = skf.generateSecret(spec).getEncoded();
-
-            return Arrays.equals(testHash,rawHash);
+    // no tenant here, the callers record per tenant
+    private void record(TimedOperation operation, long start, boolean success) {
+        if (metrics != null) {
+            metrics.record(operation, null, start, success);
+        }
+    }
 
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+    private byte[] hash(String password, byte[] salt, int repetitions, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, repetitions, length * 8);
+        try {
+            return KEY_FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException e) {
             throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
         }
-
     }
 
     private int getRepetitions() {
         return MIN_REPETITIONS + ThreadLocalRandom.current().nextInt(1000);
     }
 
-    private String getSalt()  {
-        SecureRandom sr = null;
-        try {
-            sr = SecureRandom.getInstance("SHA1PRNG");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-        byte[] salt = new byte[16];
-        sr.nextBytes(salt);
-        return Arrays.toString(salt);
+    private byte[] getSalt()  {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.get().nextBytes(salt);
+        return salt;
     }
 
-
-    private String toHex(byte[] array) throws NoSuchAlgorithmException
-    {
-        BigInteger bi = new BigInteger(1, array);
-        String hex = bi.toString(16);
-        int paddingLength = (array.length * 2) - hex.length();
-        if(paddingLength > 0)
-        {
-            return String.format("%0"  +paddingLength + "d", 0) + hex;
-        }else{
-            return hex;
+    private static String toHex(byte[] array) {
+        char[] hex = new char[array.length * 2];
+        for (int i = 0; i < array.length; i++) {
+            int b = array[i] & 0xFF;
+            hex[2 * i] = HEX_DIGITS[b >>> 4];
+            hex[2 * i + 1] = HEX_DIGITS[b & 0x0F];
         }
+        return new String(hex);
     }
 
-    private byte[] fromHex(String hex) throws NoSuchAlgorithmException
-    {
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid hex value length: " + hex.length());
+        }
         byte[] bytes = new byte[hex.length() / 2];
-        for(int i = 0; i<bytes.length ;i++)
-        {
-            bytes[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ((hexValue(hex.charAt(2 * i)) << 4) | hexValue(hex.charAt(2 * i + 1)));
         }
         return bytes;
     }
 
+    private static int hexValue(char c) {
+        int value = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid hex character: " + c);
+        }
+        return value;
+    }
+
 
     @Value
     public static class HashInfo {
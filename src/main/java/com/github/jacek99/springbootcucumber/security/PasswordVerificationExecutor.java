@@ -0,0 +1,158 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.admin.AdminStatistics;
+import com.google.common.collect.ImmutableList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the CPU heavy password hash verification on a dedicated pool sized to the cores,
+ * so that a login storm cannot starve the request threads serving cheap endpoints of CPU.
+ *
+ * The pool queue is bounded, when it is full the login is rejected right away
+ * (as a 503) instead of queueing up behind all the others
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class PasswordVerificationExecutor implements AdminStatistics, PublicMetrics {
+
+    @Autowired
+    private AppConfig config;
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AppConfig.AuthConfig auth = config.getAuth();
+        if (auth.isVerificationInline()) {
+            log.info("Password verification runs inline on the request threads");
+            return;
+        }
+
+        int threads = auth.getVerificationThreads() > 0 ?
+                auth.getVerificationThreads() : Runtime.getRuntime().availableProcessors();
+        log.info("Password verification pool with {} threads, queue size {}", threads, auth.getVerificationQueueSize());
+
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(auth.getVerificationQueueSize()),
+                r -> {
+                    Thread t = new Thread(r, "password-verification-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifies the password hash, blocking until the verification is done
+     * @throws VerificationOverloadedException if the verification queue is full
+     */
+    public boolean isHashValid(String password, PasswordHashingService.HashInfo hashInfo) {
+        verifications.increment();
+        if (executor == null) {
+            return verify(password, hashInfo);
+        }
+
+        long submitted = System.nanoTime();
+        Future<Boolean> result;
+        try {
+            result = executor.submit(() -> {
+                recordWait(System.nanoTime() - submitted);
+                return verify(password, hashInfo);
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new VerificationOverloadedException("Too many concurrent logins, try again later",
+                    config.getAuth().getVerificationRetryAfterSeconds());
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new AuthenticationServiceException("Interrupted while verifying password", e);
+        } catch (ExecutionException e) {
+            throw new AuthenticationServiceException("Password verification failed", e.getCause());
+        }
+    }
+
+    private boolean verify(String password, PasswordHashingService.HashInfo hashInfo) {
+        return passwordHashingService.isHashValid(password, hashInfo.getPasswordHash(), hashInfo.getSalt(),
+                hashInfo.getRepetitions());
+    }
+
+    private void recordWait(long waitNanos) {
+        waits.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    @Override
+    public String getName() {
+        return "passwordVerification";
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("inline", executor == null);
+        result.put("verifications", verifications.sum());
+        result.put("rejections", rejections.sum());
+        if (executor != null) {
+            long waitCount = waits.sum();
+            result.put("threads", executor.getPoolSize());
+            result.put("active", executor.getActiveCount());
+            result.put("queueDepth", executor.getQueue().size());
+            result.put("averageWaitMillis", waitCount == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / waitCount);
+            result.put("maxWaitMillis", maxWaitNanos.get() / 1_000_000.0);
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return ImmutableList.of(
+                new Metric<>("auth.verification.count", verifications.sum()),
+                new Metric<>("auth.verification.rejections", rejections.sum()),
+                new Metric<>("auth.verification.queue", executor == null ? 0 : executor.getQueue().size()),
+                new Metric<>("auth.verification.wait.total.ms", totalWaitNanos.sum() / 1_000_000));
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.jacek99.springbootcucumber.security;
 
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -25,6 +26,12 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     @Autowired
     private TenantUserAuthenticationProvider authenticationProvider;
+    @Autowired
+    private TenantAuthenticationEntryPoint authenticationEntryPoint;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private ITenantDao tenantDao;
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
@@ -33,7 +40,13 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         http.csrf().disable();
 
         http.authorizeRequests().anyRequest().fullyAuthenticated();
-        http.httpBasic();
+        http.httpBasic()
+                .realmName(TenantAuthenticationEntryPoint.REALM)
+                .authenticationEntryPoint(authenticationEntryPoint);
+
+        // bearer tokens get checked first, Basic auth is only used if no token was sent
+        http.addFilterBefore(new BearerTokenAuthenticationFilter(tokenService, tenantDao, authenticationEntryPoint),
+                BasicAuthenticationFilter.class);
 
 //        http.antMatcher("/myapp/system/**")
 //                // SYSTEM ADMIN APIs
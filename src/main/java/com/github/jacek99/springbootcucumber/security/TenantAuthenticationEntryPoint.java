@@ -0,0 +1,83 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTTP Basic entry point that applies the failed login penalty delay
+ * without holding on to the request thread: the request is put into async mode
+ * and the 401 gets sent later from a scheduler thread.
+ *
+ * Logins rejected because password verification is overloaded get a 503 with Retry-After instead
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class TenantAuthenticationEntryPoint implements AuthenticationEntryPoint {
+
+    public static final String REALM = "Realm";
+
+    // extra time on top of the delay before the container times out the async request
+    private static final long ASYNC_TIMEOUT_MARGIN_MILLIS = 5000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "failed-login-penalty");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Override
+    public void commence(HttpServletRequest request, HttpServletResponse response,
+                         AuthenticationException authException) throws IOException {
+
+        if (authException instanceof VerificationOverloadedException) {
+            // not the client's fault, shed the load quickly
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(((VerificationOverloadedException) authException).getRetryAfterSeconds()));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, authException.getMessage());
+            return;
+        }
+
+        response.addHeader("WWW-Authenticate", "Basic realm=\"" + REALM + "\"");
+
+        long delay = (authException instanceof LoginPenaltyException) ?
+                ((LoginPenaltyException) authException).getDelayMillis() : 0;
+
+        if (delay > 0 && request.isAsyncSupported()) {
+            AsyncContext async = request.startAsync(request, response);
+            async.setTimeout(delay + ASYNC_TIMEOUT_MARGIN_MILLIS);
+
+            scheduler.schedule(() -> {
+                try {
+                    ((HttpServletResponse) async.getResponse())
+                            .sendError(HttpServletResponse.SC_UNAUTHORIZED, authException.getMessage());
+                } catch (IOException | IllegalStateException e) {
+                    // client most likely gone already
+                    log.debug("Unable to send delayed 401 response", e);
+                } finally {
+                    async.complete();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+
+        } else {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, authException.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,22 +1,26 @@
 package com.github.jacek99.springbootcucumber.security;
 
-import com.github.jacek99.springbootcucumber.dao.TenantDao;
-import com.github.jacek99.springbootcucumber.dao.TenantUserDao;
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
+import com.github.jacek99.springbootcucumber.dao.ITenantUserDao;
 import com.github.jacek99.springbootcucumber.domain.Tenant;
 import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.metrics.HotPathMetrics;
+import com.github.jacek99.springbootcucumber.metrics.TimedOperation;
 import com.google.common.base.Preconditions;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
-import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 
 /**
@@ -27,15 +31,35 @@ import org.springframework.stereotype.Component;
 public class TenantUserAuthenticationProvider implements AuthenticationProvider {
 
     @Autowired
-    private PasswordHashingService passwordHashingService;
+    private PasswordVerificationExecutor passwordVerificationExecutor;
     @Autowired
-    private TenantDao tenantDao;
+    private ITenantDao tenantDao;
     @Autowired
-    private TenantUserDao userDao;
+    private ITenantUserDao userDao;
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    @Autowired
+    private FailedLoginTracker failedLoginTracker;
+    @Autowired
+    private TokenService tokenService;
+    @Autowired
+    private HotPathMetrics metrics;
 
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        long start = System.nanoTime();
+        TenantToken token = null;
+        try {
+            token = authenticateUser(authentication);
+            return token;
+        } finally {
+            // only tracked per tenant once authenticated, unknown tenant IDs would flood the metrics
+            metrics.record(TimedOperation.AUTHENTICATE, token == null ? null : token.getTenantId(), start,
+                    token != null);
+        }
+    }
 
+    private TenantToken authenticateUser(Authentication authentication) {
         String userName = authentication.getName();
         String password = String.valueOf(authentication.getCredentials());
 
@@ -47,35 +71,57 @@ public class TenantUserAuthenticationProvider implements AuthenticationProvider
         }
 
         String tenantId = parts[1];
+        String userId = parts[0];
+
+        // already verified recently, skip the DB lookups and hash check
+        // (unless the user got changed on another node since)
+        AuthenticationCache.CacheKey cacheKey = authenticationCache.createKey(tenantId, userId, password);
+        Optional<AuthenticationCache.VerifiedToken> cached = authenticationCache.get(cacheKey);
+        if (cached.isPresent()) {
+            if (!tokenService.isUserRevokedSince(tenantId, userId, cached.get().getVerifiedAt())) {
+                return cached.get().getToken();
+            }
+            authenticationCache.invalidateUser(tenantId, userId);
+        }
+        long generation = authenticationCache.getGeneration();
+        long verifiedAt = System.currentTimeMillis();
+
+        // unknown tenants/users are only penalized per client IP
         Tenant tenant = tenantDao.findById(tenantId)
-                .orElseThrow(() -> new UsernameNotFoundException("Unknown user"));
+                .orElseThrow(() -> failedLogin(authentication, null, null, "Unknown user"));
 
         // find user
-        String userId = parts[0];
-        TenantUserDao.TenantUserWithHashInformation user = userDao.getPasswordHashInformation(tenantId, userId)
-                .orElseThrow(() -> new UsernameNotFoundException("Unknown user"));
+        ITenantUserDao.TenantUserWithHashInformation user = userDao.getPasswordHashInformation(tenantId, userId)
+                .orElseThrow(() -> failedLogin(authentication, null, null, "Unknown user"));
 
-        // validate pwd
-        PasswordHashingService.HashInfo hashInfo = user.getHashInfo();
-        if (passwordHashingService.isHashValid(password, hashInfo.getPasswordHash(), hashInfo.getSalt(),
-                hashInfo.getRepetitions())) {
+        // validate pwd (on the verification pool, may get rejected with 503 if overloaded)
+        if (passwordVerificationExecutor.isHashValid(password, user.getHashInfo())) {
 
             List<GrantedAuthority> roles = user.getUser().getRoles().stream()
                     .map(r -> new SimpleGrantedAuthority(r))
                     .collect(Collectors.toList());
 
-            return new TenantToken(user.getUser(), tenant, roles);
+            TenantToken token = new TenantToken(user.getUser(), tenant, Collections.unmodifiableList(roles));
+            authenticationCache.put(cacheKey, token, generation, verifiedAt);
+            failedLoginTracker.recordSuccess(tenantId, userId);
+            return token;
 
         } else {
-            // delay 1 sec to make brute force attacks harder
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {}
-
-            throw new BadCredentialsException("Wrong password");
+            throw failedLogin(authentication, tenantId, userId, "Wrong password");
         }
     }
 
+    // delays the 401 response to make brute force attacks harder
+    // (applied by TenantAuthenticationEntryPoint, without blocking the request thread)
+    private LoginPenaltyException failedLogin(Authentication authentication, String tenantId, String userId,
+                                              String message) {
+        String ip = (authentication.getDetails() instanceof WebAuthenticationDetails) ?
+                ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress() : null;
+
+        long delay = failedLoginTracker.recordFailure(tenantId, userId, ip);
+        return new LoginPenaltyException(message, delay);
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return (UsernamePasswordAuthenticationToken.class
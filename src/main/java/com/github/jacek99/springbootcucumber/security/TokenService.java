@@ -0,0 +1,279 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.ThreadLocals;
+import com.github.jacek99.springbootcucumber.dao.ITenantUserDao;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Issues and verifies the signed bearer tokens, so that the password only needs to be verified once
+ * at login and not on every request.
+ *
+ * Token format: base64url(payload).base64url(HMAC-SHA256(payload)), where the payload is
+ * userId@tenantId@roles@issuedAt@expiresAt. The '@' separator is safe, since it can never
+ * be part of the user or tenant ID of a user that was able to log in (user@tenant login name format).
+ *
+ * Any token issued before its user was last changed gets rejected. The node making the change knows right away,
+ * every other one within auth.tokenRevocationRefreshSeconds: the time of the last change is part of the user row
+ * and gets re-read in the background through a near-cache, i.e. the first use after that still sees the previous
+ * state while it reloads (node clocks are assumed to be in sync).
+ * A deleted user has no tokens left at all. Tokens of a deleted tenant get rejected here right away,
+ * elsewhere as soon as the tenant near-cache sees the tenant gone (which the bearer token filter checks)
+ *
+ * @author Jacek Furmankiewicz
+ */
+@Component
+@Slf4j
+public class TokenService {
+
+    public static final String TOKEN_TYPE = "Bearer";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final char SEPARATOR = '@';
+    private static final Splitter PAYLOAD_SPLITTER = Splitter.on(SEPARATOR);
+    private static final Splitter ROLES_SPLITTER = Splitter.on(',').omitEmptyStrings();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Autowired
+    private AppConfig config;
+
+    @Autowired
+    private ITenantUserDao tenantUserDao;
+
+    private ThreadLocal<Mac> mac;
+
+    // revocations made on this node, only need to be kept for as long as a token can live
+    private Cache<String, Long> revokedUsers;
+    private Cache<String, Long> revokedTenants;
+
+    // user key -> when all of its tokens got revoked as seen by all the nodes, empty if the user is gone
+    private LoadingCache<String, Optional<Long>> sharedRevokedUsers;
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "token-revocation-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void init() {
+        AppConfig.AuthConfig auth = config.getAuth();
+
+        byte[] secret;
+        if (StringUtils.isEmpty(auth.getTokenSecret())) {
+            log.warn("No auth.tokenSecret configured, using a random one. Tokens will only be valid on this node until restart");
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else {
+            secret = auth.getTokenSecret().getBytes(Charsets.UTF_8);
+        }
+        SecretKeySpec key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance(HMAC_ALGORITHM);
+                m.init(key);
+                return m;
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        revokedUsers = createRevocationCache(auth.getTokenExpirySeconds());
+        revokedTenants = createRevocationCache(auth.getTokenExpirySeconds());
+
+        // served while being reloaded in the background, so that only the first token of a user hits the DB
+        sharedRevokedUsers = CacheBuilder.newBuilder()
+                .maximumSize(auth.getCacheMaxSize())
+                .refreshAfterWrite(auth.getTokenRevocationRefreshSeconds(), TimeUnit.SECONDS)
+                .expireAfterAccess(auth.getTokenExpirySeconds(), TimeUnit.SECONDS)
+                .build(CacheLoader.asyncReloading(CacheLoader.from(this::loadRevokedAt), refreshExecutor));
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private Optional<Long> loadRevokedAt(String userKey) {
+        int slash = userKey.indexOf('/');
+        return tenantUserDao.findTokensRevokedAt(userKey.substring(0, slash), userKey.substring(slash + 1));
+    }
+
+    private Cache<String, Long> createRevocationCache(int tokenExpirySeconds) {
+        return CacheBuilder.newBuilder()
+                .expireAfterWrite(tokenExpirySeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Issues a new token for an already authenticated user
+     */
+    public AccessToken issue(@NonNull TenantToken tenantToken) {
+        long issuedAt = System.currentTimeMillis();
+        int expirySeconds = config.getAuth().getTokenExpirySeconds();
+
+        String roles = tenantToken.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+
+        String payload = ThreadLocals.STRINGBUILDER.get()
+                .append(tenantToken.getUser().getUserId()).append(SEPARATOR)
+                .append(tenantToken.getTenantId()).append(SEPARATOR)
+                .append(roles).append(SEPARATOR)
+                .append(issuedAt).append(SEPARATOR)
+                .append(issuedAt + TimeUnit.SECONDS.toMillis(expirySeconds))
+                .toString();
+
+        byte[] payloadBytes = payload.getBytes(Charsets.UTF_8);
+        String token = ThreadLocals.STRINGBUILDER.get()
+                .append(ENCODER.encodeToString(payloadBytes))
+                .append('.')
+                .append(ENCODER.encodeToString(mac.get().doFinal(payloadBytes)))
+                .toString();
+
+        return new AccessToken(token, TOKEN_TYPE, expirySeconds);
+    }
+
+    /**
+     * Verifies the token signature, expiry and revocation
+     * @return the token claims, empty if the token is not valid (for whatever reason)
+     */
+    public Optional<Claims> verify(String token) {
+        int dot = StringUtils.indexOf(token, '.');
+        if (dot <= 0) {
+            return Optional.empty();
+        }
+
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            payloadBytes = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        // constant time comparison
+        if (!MessageDigest.isEqual(mac.get().doFinal(payloadBytes), signature)) {
+            return Optional.empty();
+        }
+
+        // signature is valid, so the payload is the one we created
+        List<String> parts = PAYLOAD_SPLITTER.splitToList(new String(payloadBytes, Charsets.UTF_8));
+        Claims claims = new Claims(parts.get(1), parts.get(0),
+                ROLES_SPLITTER.splitToList(parts.get(2)),
+                Long.parseLong(parts.get(3)), Long.parseLong(parts.get(4)));
+
+        if (claims.getExpiresAt() <= System.currentTimeMillis() || isRevoked(claims)) {
+            return Optional.empty();
+        }
+        return Optional.of(claims);
+    }
+
+    private boolean isRevoked(Claims claims) {
+        Long tenantRevoked = revokedTenants.getIfPresent(claims.getTenantId());
+        if (tenantRevoked != null && claims.getIssuedAt() <= tenantRevoked) {
+            return true;
+        }
+        String userKey = getUserKey(claims.getTenantId(), claims.getUserId());
+        Long userRevoked = revokedUsers.getIfPresent(userKey);
+        if (userRevoked != null && claims.getIssuedAt() <= userRevoked) {
+            return true;
+        }
+
+        return isSharedRevoked(userKey, claims.getIssuedAt());
+    }
+
+    /**
+     * Whether the user got updated or deleted on any node since the given time
+     * (as seen on the last refresh, i.e. up to auth.tokenRevocationRefreshSeconds late),
+     * for anything else trusting an earlier verification of the user, e.g. cached credentials
+     */
+    public boolean isUserRevokedSince(String tenantId, String userId, long since) {
+        return isSharedRevoked(getUserKey(tenantId, userId), since);
+    }
+
+    private boolean isSharedRevoked(String userKey, long since) {
+        Optional<Long> sharedRevoked;
+        try {
+            sharedRevoked = sharedRevokedUsers.getUnchecked(userKey);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        return !sharedRevoked.isPresent() || since <= sharedRevoked.get();
+    }
+
+    /**
+     * Rejects all the tokens issued so far for a user,
+     * needs to be called whenever a user is updated or deleted
+     */
+    public void revokeUser(String tenantId, String userId) {
+        String userKey = getUserKey(tenantId, userId);
+        revokedUsers.put(userKey, System.currentTimeMillis());
+        sharedRevokedUsers.invalidate(userKey);
+    }
+
+    /**
+     * Rejects all the tokens issued so far for all the users of a tenant
+     */
+    public void revokeTenant(String tenantId) {
+        revokedTenants.put(tenantId, System.currentTimeMillis());
+    }
+
+    /**
+     * Forgets all revocations, for testing support only
+     */
+    public void reset() {
+        revokedUsers.invalidateAll();
+        revokedTenants.invalidateAll();
+        sharedRevokedUsers.invalidateAll();
+    }
+
+    private String getUserKey(String tenantId, String userId) {
+        return ThreadLocals.STRINGBUILDER.get().append(tenantId).append('/').append(userId).toString();
+    }
+
+    /**
+     * Verified token content
+     */
+    @Value
+    public static class Claims {
+        private String tenantId;
+        private String userId;
+        private List<String> roles;
+        private long issuedAt;
+        private long expiresAt;
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.jacek99.springbootcucumber.security;
+
+import lombok.Getter;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Password verification could not even be attempted, because too many
+ * logins are already waiting for it. The client should retry later
+ *
+ * @author Jacek Furmankiewicz
+ */
+public class VerificationOverloadedException extends AuthenticationServiceException {
+
+    @Getter
+    private final int retryAfterSeconds;
+
+    public VerificationOverloadedException(String msg, int retryAfterSeconds) {
+        super(msg);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
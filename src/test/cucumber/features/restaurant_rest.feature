@@ -0,0 +1,223 @@
+@restaurant
+Feature: Restaurant REST API
+
+    Background:
+      # create a tenant with an admin user that manages its restaurants
+      Given "admin@system:adminadmin" sends POST "/myapp/system/tenants" using JSON:
+        | tenantId    | name        |
+        | mcdonalds   | McDonalds   |
+      Given "admin@system:adminadmin" sends POST "/myapp/admin/users" with JSON
+      """
+      {
+        "tenantId": "mcdonalds",
+        "userId":"manager",
+        "active": true,
+        "roles": ["TENANT_ADMIN","TENANT_USER"],
+        "password": "password1"
+      }
+      """
+      Given "manager@mcdonalds:password1" sends POST "/myapp/api/restaurants" using JSON:
+        | tenantId  | id      | name        | countryCode | stateCode |
+        | mcdonalds | toronto | Toronto     | CA          | ON        |
+        | mcdonalds | nyc     | New York    | US          | NY        |
+        | mcdonalds | buffalo | Buffalo     | US          | NY        |
+        | mcdonalds | la      | Los Angeles | US          | CA        |
+
+  @restaurant_filter
+  Scenario Outline: Filter by country and state
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?<query>"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      <restaurants>
+    """
+
+    Examples:
+      | query                         | restaurants                                                   |
+      | countryCode=US                | [{"id":"buffalo"},{"id":"la"},{"id":"nyc"}]                   |
+      | countryCode=US&stateCode=NY   | [{"id":"buffalo"},{"id":"nyc"}]                               |
+      | countryCode=US&stateCode=CA   | [{"id":"la"}]                                                 |
+      | countryCode=CA                | [{"id":"toronto"}]                                            |
+      | countryCode=MX                | []                                                            |
+
+  @restaurant_lookup_update
+  Scenario: Moving a restaurant to another country updates the lookups
+    When "manager@mcdonalds:password1" sends PATCH "/myapp/api/restaurants/buffalo" with JSON
+    """
+    {
+      "tenantId": "mcdonalds",
+      "id": "buffalo",
+      "name": "Buffalo",
+      "countryCode": "CA",
+      "stateCode": "ON"
+    }
+    """
+    Then I expect HTTP code 204
+    # the old country/state entry must be gone
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=US&stateCode=NY"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "nyc", "name": "New York", "countryCode": "US", "stateCode": "NY"}
+      ]
+    """
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=US"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "la", "name": "Los Angeles", "countryCode": "US", "stateCode": "CA"},
+        {"id": "nyc", "name": "New York", "countryCode": "US", "stateCode": "NY"}
+      ]
+    """
+    # and the new one present
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=CA&stateCode=ON"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "buffalo", "name": "Buffalo", "countryCode": "CA", "stateCode": "ON"},
+        {"id": "toronto", "name": "Toronto", "countryCode": "CA", "stateCode": "ON"}
+      ]
+    """
+    # deleting it removes it from the new lookup entry as well
+    When "manager@mcdonalds:password1" sends DELETE "/myapp/api/restaurants/buffalo"
+    Then I expect HTTP code 204
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=CA"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "toronto", "name": "Toronto", "countryCode": "CA", "stateCode": "ON"}
+      ]
+    """
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=US"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "la", "name": "Los Angeles", "countryCode": "US", "stateCode": "CA"},
+        {"id": "nyc", "name": "New York", "countryCode": "US", "stateCode": "NY"}
+      ]
+    """
+
+  @restaurant_batch
+  Scenario: Batch add, update and delete
+    # each item gets its own result, in the order it was sent
+    When "manager@mcdonalds:password1" sends POST "/myapp/api/restaurants/batch" with JSON
+    """
+    [
+      {"tenantId": "mcdonalds", "id": "miami", "name": "Miami", "countryCode": "US", "stateCode": "FL"},
+      {"tenantId": "mcdonalds", "id": "toronto", "name": "Toronto", "countryCode": "CA", "stateCode": "ON"},
+      {"tenantId": "mcdonalds", "id": "chicago", "name": "Chicago", "countryCode": "US", "stateCode": "IL"},
+      {"tenantId": "mcdonalds", "id": "miami", "name": "Miami", "countryCode": "US", "stateCode": "FL"}
+    ]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "miami", "status": 201, "error": null},
+        {"id": "toronto", "status": 409, "error": "Restaurant identified by ID toronto already exists"},
+        {"id": "chicago", "status": 201, "error": null},
+        {"id": "miami", "status": 400, "error": "Restaurant identified by ID miami is in the batch more than once"}
+      ]
+    """
+    # upsert both existing and new restaurants
+    When "manager@mcdonalds:password1" sends PUT "/myapp/api/restaurants/batch" with JSON
+    """
+    [
+      {"tenantId": "mcdonalds", "id": "nyc", "name": "Brooklyn", "countryCode": "US", "stateCode": "NY"},
+      {"tenantId": "mcdonalds", "id": "montreal", "name": "Montreal", "countryCode": "CA", "stateCode": "QC"}
+    ]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "nyc", "status": 204, "error": null},
+        {"id": "montreal", "status": 204, "error": null}
+      ]
+    """
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=US&stateCode=NY"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "buffalo", "name": "Buffalo"},
+        {"id": "nyc", "name": "Brooklyn"}
+      ]
+    """
+    When "manager@mcdonalds:password1" sends DELETE "/myapp/api/restaurants/batch" with JSON
+    """
+      ["nyc", "WRONG_ID", "montreal", "nyc"]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "nyc", "status": 204, "error": null},
+        {"id": "WRONG_ID", "status": 404, "error": "Entity Restaurant with ID WRONG_ID does not exist"},
+        {"id": "montreal", "status": 204, "error": null},
+        {"id": "nyc", "status": 400, "error": "Restaurant identified by ID nyc is in the batch more than once"}
+      ]
+    """
+    # the lookup entries of the deleted restaurants are gone too
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=US"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "buffalo"},
+        {"id": "chicago"},
+        {"id": "la"},
+        {"id": "miami"}
+      ]
+    """
+    When "manager@mcdonalds:password1" sends GET "/myapp/api/restaurants?countryCode=CA"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "toronto"}
+      ]
+    """
+
+  @restaurant_batch_reserved
+  Scenario Outline: batch is not a valid restaurant ID
+    When "manager@mcdonalds:password1" sends <method> "/myapp/api/restaurants" with JSON
+    """
+    {
+      "tenantId": "mcdonalds",
+      "id": "batch",
+      "name": "Batch"
+    }
+    """
+    Then I expect HTTP code 400
+    And I expect JSON equivalent to
+    """
+      {
+        "errors": [
+          {"field": "id", "defaultMessage": "batch is reserved for the batch endpoints"}
+        ]
+      }
+    """
+    When "manager@mcdonalds:password1" sends <method> "/myapp/api/restaurants/batch" with JSON
+    """
+    [
+      {"tenantId": "mcdonalds", "id": "batch", "name": "Batch"}
+    ]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "batch", "status": 400, "error": "id:batch is reserved for the batch endpoints"}
+      ]
+    """
+
+    Examples:
+      | method |
+      | POST   |
+      | PUT    |
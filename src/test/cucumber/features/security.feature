@@ -25,3 +25,28 @@ Feature: Tests for the Basic Auth security layer
       | ronald@system     | null              | 401         | Unknown user                            |
       # right user/tenant, wrong password
       | admin@system      | wrongiswrong      | 401         | Wrong password                          |
+
+  @security_token
+  Scenario: Bearer token issued for Basic auth credentials
+    When "admin@system:adminadmin" sends POST "/myapp/auth/token"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      {
+        "tokenType": "Bearer",
+        "expiresIn": 3600
+      }
+    """
+    And I keep the JSON at "accessToken" as "TOKEN"
+    # token replaces the Basic auth credentials
+    When I set HTTP header "Authorization" to "Bearer %{TOKEN}"
+    And "nobody@system:nothing" sends GET "/myapp/system/tenants"
+    Then I expect HTTP code 200
+    # a token cannot be used to obtain another token
+    When I set HTTP header "Authorization" to "Bearer %{TOKEN}"
+    And "nobody@system:nothing" sends POST "/myapp/auth/token"
+    Then I expect HTTP code 403
+    # tampered token
+    When I set HTTP header "Authorization" to "Bearer %{TOKEN}x"
+    And "nobody@system:nothing" sends GET "/myapp/system/tenants"
+    Then I expect HTTP code 401
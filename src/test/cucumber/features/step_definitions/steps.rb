@@ -81,7 +81,7 @@ When /^"(.+):(.+)" sends (POST|PUT|PATCH) "([^"]+)" with (CSV|text) file "([^"]+
   execute_http_request(http,request)
 end
 
-When /^"(.+):(.+)" sends (POST|PUT|PATCH) "([^"]+)" with (text|json|JSON|csv)$/ do |user,password,method,url,content_type,text|
+When /^"(.+):(.+)" sends (POST|PUT|PATCH|DELETE) "([^"]+)" with (text|json|JSON|csv)$/ do |user,password,method,url,content_type,text|
   http, request = get_http_request(method,url, user, password)
   case content_type
     when "json","JSON"
@@ -97,7 +97,7 @@ end
 
 
 When /^I set HTTP header "([^"]*)" to "([^"]*)"$/ do |header_name, header_value|
-  @http_headers[header_name] = header_value
+  @http_headers[header_name] = replace_memorized_variables(header_value)
 end
 
 When(/^"(.+):(.+)" sends (GET|POST) "([^"]+)" on admin port$/) do |user,password,method,url|
@@ -4,6 +4,11 @@ require 'pathname'
 require "yaml"
 require "net/http"
 
+# json_spec ignores "id" by default, but restaurants are keyed by it
+JsonSpec.configure do
+  exclude_keys "created_at", "updated_at"
+end
+
 AfterConfiguration do |config|
   # read config file
   $config = load_environment("env.yml")
@@ -332,3 +332,161 @@ Feature: Tenant User REST API
       | admin       | mcdonalds   | testpassword  |
 
 
+
+  @tenant_user_paging
+  Scenario: Query in pages
+    Given "admin@system:adminadmin" sends POST "/myapp/admin/users" using JSON:
+      | tenantId    | userId    | active  | password      |
+      | mcdonalds   | ronald    | true    | testpassword  |
+      | mcdonalds   | grimace   | true    | testpassword  |
+      | mcdonalds   | hamburglar| true    | testpassword  |
+      | harveys     | harvey    | true    | testpassword  |
+    # first page, sorted by user ID within the tenant
+    When "admin@system:adminadmin" sends POST "/myapp/admin/users" with JSON
+    """
+    {
+      "tenantId": "mcdonalds",
+      "userId":"admin",
+      "active": true,
+      "roles": ["TENANT_ADMIN","TENANT_USER"],
+      "password": "testpassword"
+    }
+    """
+    When "admin@mcdonalds:testpassword" sends GET "/myapp/admin/users?limit=3"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      {
+        "items": [
+          {"tenantId": "mcdonalds", "userId": "admin"},
+          {"tenantId": "mcdonalds", "userId": "grimace"},
+          {"tenantId": "mcdonalds", "userId": "hamburglar"}
+        ]
+      }
+    """
+    And I keep the JSON at "nextCursor" as "CURSOR"
+    # last page
+    When "admin@mcdonalds:testpassword" sends GET "/myapp/admin/users?limit=3&cursor=%{CURSOR}"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      {
+        "items": [
+          {"tenantId": "mcdonalds", "userId": "ronald"}
+        ],
+        "nextCursor": null
+      }
+    """
+
+  @tenant_user_batch
+  Scenario: Batch add, update and delete
+    # each item gets its own result, in the order it was sent
+    When "admin@system:adminadmin" sends POST "/myapp/admin/users/batch" with JSON
+    """
+    [
+      {"tenantId": "mcdonalds", "userId": "admin", "active": true, "roles": ["TENANT_ADMIN","TENANT_USER"], "password": "testpassword"},
+      {"tenantId": "mcdonalds", "userId": "ronald", "active": true, "roles": ["TENANT_USER"], "password": "testpassword"},
+      {"tenantId": "mcdonalds", "userId": "grimace", "active": true, "roles": ["TENANT_USER"], "password": "testpassword"},
+      {"tenantId": "mcdonalds", "userId": "ronald", "active": true, "roles": ["TENANT_USER"], "password": "testpassword"}
+    ]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "admin", "status": 201, "error": null},
+        {"id": "ronald", "status": 201, "error": null},
+        {"id": "grimace", "status": 201, "error": null},
+        {"id": "ronald", "status": 400, "error": "TenantUser identified by ID ronald is in the batch more than once"}
+      ]
+    """
+    When "admin@system:adminadmin" sends POST "/myapp/admin/users/batch" with JSON
+    """
+    [
+      {"tenantId": "mcdonalds", "userId": "ronald", "active": true, "roles": ["TENANT_USER"], "password": "testpassword"},
+      {"tenantId": "mcdonalds", "userId": "hamburglar", "active": true, "roles": ["TENANT_USER"], "password": "testpassword"}
+    ]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "ronald", "status": 409, "error": "TenantUser identified by ID ronald already exists"},
+        {"id": "hamburglar", "status": 201, "error": null}
+      ]
+    """
+    # upsert both existing and new users
+    When "admin@system:adminadmin" sends PUT "/myapp/admin/users/batch" with JSON
+    """
+    [
+      {"tenantId": "mcdonalds", "userId": "ronald", "active": false, "roles": ["TENANT_USER"], "password": "testpassword"},
+      {"tenantId": "mcdonalds", "userId": "birdie", "active": true, "roles": ["TENANT_USER"], "password": "testpassword"}
+    ]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "ronald", "status": 204, "error": null},
+        {"id": "birdie", "status": 204, "error": null}
+      ]
+    """
+    # deletes are by ID within the caller's own tenant
+    When "admin@mcdonalds:testpassword" sends DELETE "/myapp/admin/users/batch" with JSON
+    """
+      ["ronald", "WRONG_ID", "birdie"]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "ronald", "status": 204, "error": null},
+        {"id": "WRONG_ID", "status": 404, "error": "Entity TenantUser with ID WRONG_ID does not exist"},
+        {"id": "birdie", "status": 204, "error": null}
+      ]
+    """
+    When "admin@mcdonalds:testpassword" sends GET "/myapp/admin/users"
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"tenantId": "mcdonalds", "userId": "admin"},
+        {"tenantId": "mcdonalds", "userId": "grimace"},
+        {"tenantId": "mcdonalds", "userId": "hamburglar"}
+      ]
+    """
+
+  @tenant_user_batch_reserved
+  Scenario: batch is not a valid user ID
+    When "admin@system:adminadmin" sends POST "/myapp/admin/users" with JSON
+    """
+    {
+      "tenantId": "mcdonalds",
+      "userId":"batch",
+      "active": true,
+      "roles": ["TENANT_USER"],
+      "password": "testpassword"
+    }
+    """
+    Then I expect HTTP code 400
+    And I expect JSON equivalent to
+    """
+      {
+        "errors": [
+          {"field": "userId", "defaultMessage": "batch is reserved for the batch endpoints"}
+        ]
+      }
+    """
+    When "admin@system:adminadmin" sends POST "/myapp/admin/users/batch" with JSON
+    """
+    [
+      {"tenantId": "mcdonalds", "userId": "batch", "active": true, "roles": ["TENANT_USER"], "password": "testpassword"}
+    ]
+    """
+    Then I expect HTTP code 200
+    And I expect JSON equivalent to
+    """
+      [
+        {"id": "batch", "status": 400, "error": "userId:batch is reserved for the batch endpoints"}
+      ]
+    """
@@ -0,0 +1,124 @@
+package com.github.jacek99.springbootcucumber.test;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.metrics.HotPathMetrics;
+import com.github.jacek99.springbootcucumber.metrics.TimedOperation;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Tests for the hot path metrics
+ * @author Jacek Furmankiewicz
+ */
+public class HotPathMetricsTests {
+
+    private AnnotationConfigApplicationContext context;
+    private HotPathMetrics metrics;
+
+    @Before
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(AppConfig.class, HotPathMetrics.class);
+        metrics = context.getBean(HotPathMetrics.class);
+    }
+
+    @After
+    public void cleanup() {
+        context.close();
+    }
+
+    // pretends the operation started the given number of millis ago
+    private long started(long millis) {
+        return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> statistics(TimedOperation operation) {
+        return (Map<String, Object>) metrics.getStatistics().get(operation.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> tenantStatistics(TimedOperation operation, String tenantId) {
+        return (Map<String, Object>) ((Map<String, Object>) statistics(operation).get("tenants")).get(tenantId);
+    }
+
+    @Test
+    public void basicTest() {
+        metrics.record(TimedOperation.DAO_FIND_BY_ID, "acme", started(10), true);
+        metrics.record(TimedOperation.DAO_FIND_BY_ID, "acme", started(20), false);
+        metrics.record(TimedOperation.DAO_FIND_BY_ID, "other", started(30), true);
+        metrics.record(TimedOperation.DAO_FIND_BY_ID, null, started(40), true);
+
+        Map<String, Object> stats = statistics(TimedOperation.DAO_FIND_BY_ID);
+        Assert.assertEquals(4L, stats.get("count"));
+        Assert.assertEquals(1L, stats.get("errors"));
+        Assert.assertTrue((Double) stats.get("maxMillis") >= 40.0);
+
+        Assert.assertEquals(2L, tenantStatistics(TimedOperation.DAO_FIND_BY_ID, "acme").get("count"));
+        Assert.assertEquals(1L, tenantStatistics(TimedOperation.DAO_FIND_BY_ID, "acme").get("errors"));
+        Assert.assertEquals(1L, tenantStatistics(TimedOperation.DAO_FIND_BY_ID, "other").get("count"));
+
+        // operations never called are not shown
+        Assert.assertNull(statistics(TimedOperation.DAO_DELETE));
+    }
+
+    @Test
+    public void percentilesAccumulateTest() {
+        metrics.record(TimedOperation.DAO_SAVE, "acme", started(100), true);
+        Assert.assertEquals(1L, statistics(TimedOperation.DAO_SAVE).get("count"));
+
+        // reading the statistics must not reset them
+        metrics.record(TimedOperation.DAO_SAVE, "acme", started(1), true);
+        Map<String, Object> stats = statistics(TimedOperation.DAO_SAVE);
+        Assert.assertEquals(2L, stats.get("count"));
+        Assert.assertTrue((Double) stats.get("maxMillis") >= 100.0);
+    }
+
+    @Test
+    public void maxTenantsTest() {
+        context.getBean(AppConfig.class).getMetrics().setMaxTenants(2);
+        metrics.init();
+
+        metrics.record(TimedOperation.AUTHENTICATE, "t1", started(1), true);
+        metrics.record(TimedOperation.AUTHENTICATE, "t2", started(1), true);
+        metrics.record(TimedOperation.AUTHENTICATE, "t3", started(1), true);
+        metrics.record(TimedOperation.AUTHENTICATE, "t4", started(1), true);
+        // already known tenants keep their own counters
+        metrics.record(TimedOperation.AUTHENTICATE, "t1", started(1), true);
+
+        Assert.assertEquals(2L, tenantStatistics(TimedOperation.AUTHENTICATE, "t1").get("count"));
+        Assert.assertEquals(2L, tenantStatistics(TimedOperation.AUTHENTICATE, HotPathMetrics.OTHER_TENANTS).get("count"));
+        Assert.assertNull(tenantStatistics(TimedOperation.AUTHENTICATE, "t3"));
+    }
+
+    @Test
+    public void disabledTest() {
+        context.getBean(AppConfig.class).getMetrics().setEnabled(false);
+        metrics.init();
+
+        metrics.record(TimedOperation.AUTHENTICATE, "t1", started(1), true);
+        Assert.assertTrue(metrics.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void prometheusTest() throws IOException {
+        metrics.record(TimedOperation.HTTP_REQUEST, "acme", started(5), true);
+        metrics.record(TimedOperation.HTTP_REQUEST, "ac\"me", started(5), false);
+
+        StringWriter out = new StringWriter();
+        metrics.writePrometheus(out);
+        String text = out.toString();
+
+        Assert.assertTrue(text, text.contains("# TYPE app_operation_duration_seconds summary\n"));
+        Assert.assertTrue(text, text.contains("app_operation_duration_seconds{operation=\"http.request\",quantile=\"0.99\"} "));
+        Assert.assertTrue(text, text.contains("app_operation_duration_seconds_count{operation=\"http.request\"} 2\n"));
+        Assert.assertTrue(text, text.contains("app_tenant_operations_total{operation=\"http.request\",tenant=\"acme\"} 1\n"));
+        Assert.assertTrue(text, text.contains("app_tenant_operation_errors_total{operation=\"http.request\",tenant=\"ac\\\"me\"} 1\n"));
+    }
+}
@@ -0,0 +1,335 @@
+package com.github.jacek99.springbootcucumber.test;
+
+import com.github.jacek99.springbootcucumber.AppConfig;
+import com.github.jacek99.springbootcucumber.CompletableFutures;
+import com.github.jacek99.springbootcucumber.dao.BatchResult;
+import com.github.jacek99.springbootcucumber.dao.IDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.IRestaurantDao;
+import com.github.jacek99.springbootcucumber.dao.ITenantDao;
+import com.github.jacek99.springbootcucumber.dao.ITenantUserDao;
+import com.github.jacek99.springbootcucumber.dao.Page;
+import com.github.jacek99.springbootcucumber.dao.TenantPartitionRegistry;
+import com.github.jacek99.springbootcucumber.dao.memory.InMemoryDatabaseInitializer;
+import com.github.jacek99.springbootcucumber.dao.memory.InMemoryRestaurantDao;
+import com.github.jacek99.springbootcucumber.dao.memory.InMemoryTenantDao;
+import com.github.jacek99.springbootcucumber.dao.memory.InMemoryTenantUserDao;
+import com.github.jacek99.springbootcucumber.domain.Restaurant;
+import com.github.jacek99.springbootcucumber.domain.Tenant;
+import com.github.jacek99.springbootcucumber.domain.TenantUser;
+import com.github.jacek99.springbootcucumber.exception.ConflictException;
+import com.github.jacek99.springbootcucumber.exception.ConstraintViolationException;
+import com.github.jacek99.springbootcucumber.exception.NotFoundException;
+import com.github.jacek99.springbootcucumber.security.AuthenticationCache;
+import com.github.jacek99.springbootcucumber.security.FailedLoginTracker;
+import com.github.jacek99.springbootcucumber.security.PasswordHashingService;
+import com.github.jacek99.springbootcucumber.security.SecurityConstants;
+import com.github.jacek99.springbootcucumber.security.TenantToken;
+import com.github.jacek99.springbootcucumber.security.TokenService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+/**
+ * Tests for the in-memory DAOs, which need to behave the same as the Cassandra ones
+ * @author Jacek Furmankiewicz
+ */
+public class InMemoryDaoTests {
+
+    private AnnotationConfigApplicationContext context;
+
+    private ITenantDao tenantDao;
+    private ITenantUserDao userDao;
+    private IRestaurantDao restaurantDao;
+
+    private TenantToken system;
+    private TenantToken acme;
+
+    @Before
+    public void setup() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles(IDatabaseInitializer.PROFILE_IN_MEMORY);
+        context.register(AppConfig.class, LocalValidatorFactoryBean.class, PasswordHashingService.class,
+                AuthenticationCache.class, FailedLoginTracker.class, TokenService.class,
+                TenantPartitionRegistry.class, InMemoryTenantDao.class, InMemoryTenantUserDao.class,
+                InMemoryRestaurantDao.class, InMemoryDatabaseInitializer.class);
+        context.refresh();
+
+        tenantDao = context.getBean(ITenantDao.class);
+        userDao = context.getBean(ITenantUserDao.class);
+        restaurantDao = context.getBean(IRestaurantDao.class);
+
+        system = token(tenantDao.findById(Tenant.SYSTEM_TENANT).get(),
+                userDao.findById(Tenant.SYSTEM_TENANT, ITenantUserDao.ADMIN).get());
+
+        tenantDao.save(system, tenant("acme"));
+        acme = token(tenantDao.findById("acme").get(), user("acme", "john"));
+    }
+
+    @After
+    public void cleanup() {
+        context.close();
+    }
+
+    private TenantToken token(Tenant tenant, TenantUser user) {
+        return new TenantToken(user, tenant, Collections.emptyList());
+    }
+
+    private Tenant tenant(String tenantId) {
+        Tenant tenant = new Tenant();
+        tenant.setTenantId(tenantId);
+        tenant.setName(tenantId);
+        tenant.setUrl("http://" + tenantId + ".com");
+        return tenant;
+    }
+
+    private TenantUser user(String tenantId, String userId) {
+        return TenantUser.builder()
+                .tenantId(tenantId)
+                .userId(userId)
+                .password("password" + userId)
+                .roles(ImmutableSet.of(SecurityConstants.ROLE_TENANT_USER))
+                .active(true)
+                .build();
+    }
+
+    private Restaurant restaurant(String tenantId, String id) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setTenantId(tenantId);
+        restaurant.setId(id);
+        restaurant.setName("Restaurant " + id);
+        restaurant.setCountryCode("US");
+        restaurant.setStateCode("NY");
+        return restaurant;
+    }
+
+    @Test
+    public void basicTest() {
+        restaurantDao.save(acme, restaurant("acme", "r1"));
+
+        Restaurant found = restaurantDao.findExistingById(acme, "r1");
+        Assert.assertEquals("Restaurant r1", found.getName());
+
+        found.setName("Changed");
+        restaurantDao.update(acme, found);
+        Assert.assertEquals("Changed", restaurantDao.findExistingById(acme, "r1").getName());
+
+        restaurantDao.delete(acme, "r1");
+        Assert.assertFalse(restaurantDao.findById(acme, "r1").isPresent());
+    }
+
+    @Test
+    public void isolationTest() {
+        Restaurant restaurant = restaurant("acme", "r1");
+        restaurantDao.save(acme, restaurant);
+
+        // the stored row must not be shared with the caller
+        restaurant.setName("Changed");
+        restaurantDao.findExistingById(acme, "r1").setName("Changed");
+        Assert.assertEquals("Restaurant r1", restaurantDao.findExistingById(acme, "r1").getName());
+
+        // other tenants do not see it, only the system tenant
+        tenantDao.save(system, tenant("other"));
+        TenantToken other = token(tenantDao.findById("other").get(), user("other", "jane"));
+        Assert.assertFalse(restaurantDao.findById(other, "r1").isPresent());
+        Assert.assertEquals(0, restaurantDao.findAll(other).size());
+        Assert.assertEquals(1, restaurantDao.findAll(system).size());
+    }
+
+    @Test(expected = ConflictException.class)
+    public void conflictTest() {
+        restaurantDao.save(acme, restaurant("acme", "r1"));
+        restaurantDao.save(acme, restaurant("acme", "r1"));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void updateNotFoundTest() {
+        restaurantDao.update(acme, restaurant("acme", "r1"));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void deleteNotFoundTest() {
+        restaurantDao.delete(acme, "r1");
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void unknownTenantTest() {
+        restaurantDao.save(system, restaurant("unknown", "r1"));
+    }
+
+    @Test(expected = SecurityException.class)
+    public void securityTest() {
+        tenantDao.save(system, tenant("other"));
+        restaurantDao.save(acme, restaurant("other", "r1"));
+    }
+
+    @Test(expected = ConstraintViolationException.class)
+    public void validationTest() {
+        tenantDao.save(system, tenant("x"));
+    }
+
+    @Test
+    public void pagingTest() {
+        for (int i = 0; i < 5; i++) {
+            restaurantDao.save(acme, restaurant("acme", "r" + i));
+        }
+
+        Page<Restaurant> page = restaurantDao.findPage(acme, 2, null);
+        Assert.assertEquals(2, page.getItems().size());
+        Assert.assertEquals("r0", page.getItems().get(0).getId());
+
+        page = restaurantDao.findPage(acme, 2, page.getNextCursor());
+        Assert.assertEquals("r2", page.getItems().get(0).getId());
+
+        page = restaurantDao.findPage(acme, 2, page.getNextCursor());
+        Assert.assertEquals(1, page.getItems().size());
+        Assert.assertNull(page.getNextCursor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pagingOtherTenantCursorTest() {
+        restaurantDao.save(acme, restaurant("acme", "r1"));
+        restaurantDao.save(acme, restaurant("acme", "r2"));
+        String cursor = restaurantDao.findPage(acme, 1, null).getNextCursor();
+
+        tenantDao.save(system, tenant("other"));
+        TenantToken other = token(tenantDao.findById("other").get(), user("other", "jane"));
+        restaurantDao.findPage(other, 1, cursor);
+    }
+
+    @Test
+    public void iterateTest() {
+        for (int i = 0; i < 3; i++) {
+            restaurantDao.save(acme, restaurant("acme", "r" + i));
+        }
+        tenantDao.save(system, tenant("other"));
+        restaurantDao.save(system, restaurant("other", "o1"));
+
+        List<String> ids = new ArrayList<>();
+        restaurantDao.iterate(acme).forEachRemaining(r -> ids.add(r.getId()));
+        Assert.assertEquals(ImmutableList.of("r0", "r1", "r2"), ids);
+
+        // the system tenant sees all tenants
+        Assert.assertEquals(4, Iterators.size(restaurantDao.iterate(system)));
+    }
+
+    @Test
+    public void lookupTest() {
+        restaurantDao.save(acme, restaurant("acme", "r1"));
+        Restaurant r2 = restaurant("acme", "r2");
+        r2.setStateCode("CA");
+        restaurantDao.save(acme, r2);
+
+        Assert.assertEquals(2, restaurantDao.findByCountry(acme, "US").size());
+        Assert.assertEquals("r2", restaurantDao.findByState(acme, "US", "CA").get(0).getId());
+        Assert.assertEquals(1, restaurantDao.findByName(acme, "Restaurant r1").size());
+
+        // follows the updates
+        r2.setCountryCode("CA");
+        r2.setStateCode("ON");
+        restaurantDao.update(acme, r2);
+        Assert.assertEquals(0, restaurantDao.findByState(acme, "US", "CA").size());
+        Assert.assertEquals(1, restaurantDao.findByCountryAsync(acme, "CA").join().size());
+
+        // always within the caller's own tenant
+        Assert.assertEquals(0, restaurantDao.findByCountry(system, "US").size());
+
+        restaurantDao.delete(acme, "r1");
+        Assert.assertEquals(0, restaurantDao.findByCountry(acme, "US").size());
+    }
+
+    @Test
+    public void batchTest() {
+        restaurantDao.save(acme, restaurant("acme", "r1"));
+        tenantDao.save(system, tenant("other"));
+
+        List<BatchResult<String>> results = restaurantDao.saveAll(acme, ImmutableList.of(
+                restaurant("acme", "r1"), restaurant("acme", "r2"), restaurant("acme", "r2"),
+                restaurant("other", "r3"), restaurant("acme", "r5")));
+
+        // every entity on its own, in the same order
+        Assert.assertEquals(ImmutableList.of(409, 201, 400, 403, 201),
+                results.stream().map(BatchResult::getStatus).collect(Collectors.toList()));
+        Assert.assertEquals("r2", results.get(2).getId());
+        Assert.assertNull(results.get(1).getError());
+        Assert.assertEquals(3, restaurantDao.findAll(acme).size());
+
+        Restaurant changed = restaurant("acme", "r1");
+        changed.setName("Changed");
+        results = restaurantDao.saveOrUpdateAll(acme, ImmutableList.of(changed, restaurant("acme", "r6")));
+        Assert.assertTrue(results.stream().allMatch(BatchResult::isSucceeded));
+        Assert.assertEquals("Changed", restaurantDao.findExistingById(acme, "r1").getName());
+
+        results = restaurantDao.deleteAllAsync(acme, ImmutableList.of("r1", "r7", "r6")).join();
+        Assert.assertEquals(ImmutableList.of(204, 404, 204),
+                results.stream().map(BatchResult::getStatus).collect(Collectors.toList()));
+        Assert.assertEquals(2, restaurantDao.findAll(acme).size());
+
+        results = tenantDao.saveAll(system, ImmutableList.of(tenant("x"), tenant("third")));
+        Assert.assertEquals(400, results.get(0).getStatus());
+        Assert.assertTrue(results.get(1).isSucceeded());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchTooLargeTest() {
+        restaurantDao.deleteAll(acme, Collections.nCopies(IRestaurantDao.MAX_BATCH_SIZE + 1, "r1"));
+    }
+
+    @Test
+    public void tenantDeleteTest() {
+        tenantDao.save(system, tenant("other"));
+        TenantToken other = token(tenantDao.findById("other").get(), user("other", "jane"));
+        restaurantDao.save(acme, restaurant("acme", "r1"));
+        restaurantDao.save(other, restaurant("other", "r1"));
+        userDao.save(acme, user("acme", "john"));
+
+        tenantDao.delete(system, "acme");
+
+        // only the deleted tenant's data is gone
+        Assert.assertEquals(0, restaurantDao.findAll(acme).size());
+        Assert.assertEquals(0, userDao.findAll(acme).size());
+        Assert.assertEquals(1, restaurantDao.findAll(other).size());
+        Assert.assertTrue(userDao.findById(Tenant.SYSTEM_TENANT, ITenantUserDao.ADMIN).isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void systemTenantDeleteTest() {
+        tenantDao.delete(system, Tenant.SYSTEM_TENANT);
+    }
+
+    @Test
+    public void passwordTest() {
+        userDao.save(acme, user("acme", "john"));
+
+        Assert.assertEquals(ITenantUserDao.MASKED_PASSWORD, userDao.findExistingById(acme, "john").getPassword());
+
+        ITenantUserDao.TenantUserWithHashInformation info = userDao.getPasswordHashInformation("acme", "john").get();
+        PasswordHashingService.HashInfo hash = info.getHashInfo();
+        Assert.assertTrue(context.getBean(PasswordHashingService.class)
+                .isHashValid("passwordjohn", hash.getPasswordHash(), hash.getSalt(), hash.getRepetitions()));
+    }
+
+    @Test
+    public void asyncErrorTest() {
+        // errors get reported via the future, never thrown
+        CompletableFuture<Void> result = restaurantDao.deleteAsync(acme, "r1");
+        Assert.assertTrue(result.isCompletedExceptionally());
+
+        try {
+            result.join();
+            Assert.fail("Should have failed");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(CompletableFutures.unwrap(e) instanceof NotFoundException);
+        }
+    }
+}
@@ -40,6 +40,27 @@ public class PasswordHashingServiceTests {
         Assert.assertEquals(false, valid);
     }
 
+    @Test
+    public void compactEncodingTest() {
+        PasswordHashingService.HashInfo result = svc.hashPassword("ressfdsdfaserea");
+
+        // 16 byte salt, 20 byte hash, both hex
+        Assert.assertEquals(32, result.getSalt().length());
+        Assert.assertEquals(40, result.getPasswordHash().length());
+    }
+
+    @Test
+    public void legacyHashTest() {
+        // as stored by older versions: 64 byte hash, salt was the hex of the textual form of the salt bytes
+        String hash = "e095988484d17265ee4ad45131f164b17677bf958b130c037152ca12a9d76ddc" +
+                "728368815818f71f486208e929e84df3d59d019f9e97f0860c1ea39011776206";
+        String salt = "5b3131332c202d34382c2036392c202d3130382c202d34372c202d32392c202d3131302c20" +
+                "3131342c203131302c202d34302c202d33302c2035372c2035342c2035312c202d32332c2039385d";
+
+        Assert.assertEquals(true, svc.isHashValid("legacy-password", hash, salt, 1651));
+        Assert.assertEquals(false, svc.isHashValid("legacy-passwordx", hash, salt, 1651));
+    }
+
 
 
 }
@@ -0,0 +1,79 @@
+package com.github.jacek99.springbootcucumber.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jacek99.springbootcucumber.controller.StreamingResults;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * Tests for streaming entities out as a JSON array
+ * @author Jacek Furmankiewicz
+ */
+public class StreamingResultsTests {
+
+    private AnnotationConfigApplicationContext context;
+    private StreamingResults streamingResults;
+
+    @Before
+    public void setup() {
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("objectMapper", new ObjectMapper());
+        context.register(StreamingResults.class);
+        context.refresh();
+        streamingResults = context.getBean(StreamingResults.class);
+    }
+
+    @After
+    public void cleanup() {
+        context.close();
+    }
+
+    private String write(Iterator<?> items, ByteArrayOutputStream out) throws IOException {
+        streamingResults.of(items).getBody().writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writeTest() throws IOException {
+        Assert.assertEquals("[\"a\",\"b\",\"c\"]",
+                write(ImmutableList.of("a", "b", "c").iterator(), new ByteArrayOutputStream()));
+        Assert.assertEquals("[]", write(ImmutableList.of().iterator(), new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void failureLeavesArrayOpenTest() {
+        Iterator<String> items = new AbstractIterator<String>() {
+            private int count;
+
+            @Override
+            protected String computeNext() {
+                if (count++ == 2) {
+                    throw new IllegalStateException("Read failed");
+                }
+                return "item" + count;
+            }
+        };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(items, out);
+            Assert.fail("Read failure not propagated");
+        } catch (IllegalStateException | IOException e) {
+            Assert.assertEquals("Read failed", e.getMessage());
+        }
+
+        // whatever got out must not parse as a complete array
+        String written = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(written, written.startsWith("[\"item1\""));
+        Assert.assertFalse(written, written.endsWith("]"));
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.jacek99.springbootcucumber.test;
+
+import com.github.jacek99.springbootcucumber.cassandra.TokenRangeScanner;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for merging the token ranges read by the scanner
+ * @author Jacek Furmankiewicz
+ */
+public class TokenRangeScannerTests {
+
+    @Test
+    public void mergeTest() {
+        List<String> merged = TokenRangeScanner.merge(ImmutableList.of(
+                ImmutableList.of("b", "e", "f"),
+                ImmutableList.of(),
+                ImmutableList.of("a", "c"),
+                ImmutableList.of("d", "g")), Comparator.naturalOrder());
+
+        Assert.assertEquals(ImmutableList.of("a", "b", "c", "d", "e", "f", "g"), merged);
+        Assert.assertTrue(TokenRangeScanner.merge(Collections.<List<String>>emptyList(), Comparator.naturalOrder())
+                .isEmpty());
+    }
+
+    @Test
+    public void mergeRandomTest() {
+        Random random = new Random(42);
+        List<Integer> all = new ArrayList<>();
+        List<List<Integer>> ranges = new ArrayList<>();
+        for (int r = 0; r < 50; r++) {
+            List<Integer> range = new ArrayList<>();
+            for (int i = random.nextInt(100); i > 0; i--) {
+                range.add(random.nextInt(1000));
+            }
+            Collections.sort(range);
+            ranges.add(range);
+            all.addAll(range);
+        }
+        Collections.sort(all);
+
+        Assert.assertEquals(all, TokenRangeScanner.merge(ranges, Comparator.naturalOrder()));
+    }
+}